@@ -0,0 +1,300 @@
+package app;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totais de vendas mantidos a cada evento, em vez de recalculados: receita e
+ * unidades por {@link Categoria}, receita e unidades por produto, receita e
+ * pedidos por cliente, e pedidos e valor por {@link StatusPedido}.
+ *
+ * <p>{@link #pedidoCriado} soma um pedido novo e {@link #statusAlterado} (um
+ * {@link StatusListener} do processador) move o pedido de um status para
+ * outro. Os contadores por categoria e status são {@link LongAdder}, que
+ * espalham as escritas concorrentes em células separadas, então os workers não
+ * disputam entre si nem com quem lê. Os contadores por ID também são
+ * {@link LongAdder}, guardados em uma tabela esparsa. Toda leitura é O(1) e não
+ * bloqueia; um painel que lê vários contadores pode ver um evento aplicado só
+ * em parte, mas nunca perde atualizações.
+ *
+ * <p>Ao carregar os dados, {@link #reconstruir} recalcula tudo a partir do
+ * snapshot em uma única passada.
+ */
+public final class AgregadosVendas implements StatusListener {
+
+    private final LongAdder pedidos = new LongAdder();
+    private final LongAdder itens = new LongAdder();
+    private final LongAdder receitaTotal = new LongAdder();
+    private final LongAdder[] receitaPorCategoria = novosContadores(Categoria.values().length);
+    private final LongAdder[] unidadesPorCategoria = novosContadores(Categoria.values().length);
+    private final LongAdder[] pedidosPorStatus = novosContadores(StatusPedido.values().length);
+    private final LongAdder[] valorPorStatus = novosContadores(StatusPedido.values().length);
+    private final ContadoresPorId receitaPorProduto = new ContadoresPorId();
+    private final ContadoresPorId unidadesPorProduto = new ContadoresPorId();
+    private final ContadoresPorId receitaPorCliente = new ContadoresPorId();
+    private final ContadoresPorId pedidosPorCliente = new ContadoresPorId();
+
+    /**
+     * Soma um pedido recém-criado no status em que ele está. Deve ser chamado
+     * antes de o pedido ir para o processador, para que as transições seguintes
+     * partam deste status.
+     */
+    public void pedidoCriado(Pedido pedido) {
+        long valor = 0;
+        for (ItemPedido item : pedido.getItens()) {
+            Produto produto = item.getProduto();
+            long subtotal = item.calcularSubtotalCentavos();
+            receitaPorCategoria[produto.getCategoria().ordinal()].add(subtotal);
+            unidadesPorCategoria[produto.getCategoria().ordinal()].add(item.getQuantidade());
+            receitaPorProduto.somar(produto.getId(), subtotal);
+            unidadesPorProduto.somar(produto.getId(), item.getQuantidade());
+            valor += subtotal;
+        }
+        itens.add(pedido.getItens().size());
+        receitaPorCliente.somar(pedido.getCliente().getId(), valor);
+        pedidosPorCliente.somar(pedido.getCliente().getId(), 1);
+        pedidosPorStatus[pedido.getStatus().ordinal()].increment();
+        valorPorStatus[pedido.getStatus().ordinal()].add(valor);
+        receitaTotal.add(valor);
+        pedidos.increment();
+    }
+
+    /** Move o pedido da contagem do status anterior para a do novo. */
+    @Override
+    public void statusAlterado(Pedido pedido, StatusPedido anterior, StatusPedido novo) {
+        if (anterior == novo) return;
+        long valor = pedido.getTotalCentavos();
+        pedidosPorStatus[anterior.ordinal()].decrement();
+        valorPorStatus[anterior.ordinal()].add(-valor);
+        pedidosPorStatus[novo.ordinal()].increment();
+        valorPorStatus[novo.ordinal()].add(valor);
+    }
+
+    /**
+     * Zera os totais e os recalcula a partir de todos os pedidos, em uma única
+     * passada paralela ({@link RelatorioVendas#calcular}). Deve ser chamado com
+     * o processador ainda sem pedidos, como no carregamento.
+     */
+    public synchronized void reconstruir(List<Pedido> todos) {
+        RelatorioVendas.Acumulador soma = RelatorioVendas.calcular(todos).dados();
+        definir(pedidos, soma.pedidos);
+        definir(itens, soma.itens);
+        definir(receitaTotal, soma.receitaTotal);
+        definir(receitaPorCategoria, soma.receitaPorCategoria);
+        definir(unidadesPorCategoria, soma.unidadesPorCategoria);
+        definir(pedidosPorStatus, soma.pedidosPorStatus);
+        definir(valorPorStatus, soma.valorPorStatus);
+        definir(receitaPorProduto, unidadesPorProduto, soma.porProduto);
+        definir(receitaPorCliente, pedidosPorCliente, soma.porCliente);
+    }
+
+    public long getPedidos() {
+        return pedidos.sum();
+    }
+
+    public long getItens() {
+        return itens.sum();
+    }
+
+    public long getReceitaTotalCentavos() {
+        return receitaTotal.sum();
+    }
+
+    public long getReceitaCentavos(Categoria categoria) {
+        return receitaPorCategoria[categoria.ordinal()].sum();
+    }
+
+    public long getUnidades(Categoria categoria) {
+        return unidadesPorCategoria[categoria.ordinal()].sum();
+    }
+
+    public long getPedidos(StatusPedido status) {
+        return pedidosPorStatus[status.ordinal()].sum();
+    }
+
+    public long getValorCentavos(StatusPedido status) {
+        return valorPorStatus[status.ordinal()].sum();
+    }
+
+    public long getReceitaProdutoCentavos(int produtoId) {
+        return receitaPorProduto.valor(produtoId);
+    }
+
+    public long getUnidadesProduto(int produtoId) {
+        return unidadesPorProduto.valor(produtoId);
+    }
+
+    public long getReceitaClienteCentavos(int clienteId) {
+        return receitaPorCliente.valor(clienteId);
+    }
+
+    public long getPedidosCliente(int clienteId) {
+        return pedidosPorCliente.valor(clienteId);
+    }
+
+    /**
+     * Copia os totais atuais para um {@link RelatorioVendas}, sem percorrer os
+     * pedidos (custo proporcional à quantidade de produtos e clientes, e não ao
+     * maior ID).
+     */
+    public RelatorioVendas relatorio() {
+        RelatorioVendas.Acumulador copia = new RelatorioVendas.Acumulador();
+        copia.pedidos = pedidos.sum();
+        copia.itens = itens.sum();
+        copia.receitaTotal = receitaTotal.sum();
+        copiar(receitaPorCategoria, copia.receitaPorCategoria);
+        copiar(unidadesPorCategoria, copia.unidadesPorCategoria);
+        copiar(pedidosPorStatus, copia.pedidosPorStatus);
+        copiar(valorPorStatus, copia.valorPorStatus);
+        copia.porProduto = copiar(receitaPorProduto, unidadesPorProduto);
+        copia.porCliente = copiar(receitaPorCliente, pedidosPorCliente);
+        return new RelatorioVendas(copia);
+    }
+
+    private static LongAdder[] novosContadores(int quantidade) {
+        LongAdder[] contadores = new LongAdder[quantidade];
+        for (int i = 0; i < quantidade; i++) contadores[i] = new LongAdder();
+        return contadores;
+    }
+
+    private static void definir(LongAdder contador, long valor) {
+        contador.reset();
+        contador.add(valor);
+    }
+
+    private static void definir(LongAdder[] contadores, long[] valores) {
+        for (int i = 0; i < contadores.length; i++) definir(contadores[i], valores[i]);
+    }
+
+    /** Substitui os valores dos dois contadores pelas somas (receita e quantidade) de cada ID. */
+    private static void definir(ContadoresPorId receita, ContadoresPorId quantidade, RelatorioVendas.SomasPorId somas) {
+        receita.limpar();
+        quantidade.limpar();
+        somas.percorrer((id, receitaId, quantidadeId) -> {
+            receita.somar(id, receitaId);
+            quantidade.somar(id, quantidadeId);
+        });
+    }
+
+    /** Valores diferentes de zero dos dois contadores, juntos por ID. */
+    private static RelatorioVendas.SomasPorId copiar(ContadoresPorId receita, ContadoresPorId quantidade) {
+        RelatorioVendas.SomasPorId somas = new RelatorioVendas.SomasPorId();
+        receita.percorrer((id, valor) -> somas.somar(id, valor, 0));
+        quantidade.percorrer((id, valor) -> somas.somar(id, 0, valor));
+        return somas;
+    }
+
+    private static void copiar(LongAdder[] origem, long[] destino) {
+        for (int i = 0; i < origem.length; i++) destino[i] = origem[i].sum();
+    }
+
+    /**
+     * Contadores por ID em uma tabela de endereçamento aberto, esparsa como a
+     * {@link RelatorioVendas.SomasPorId}: o tamanho acompanha a quantidade de
+     * IDs e não o maior ID. Cada ID tem o seu {@link LongAdder}, então um
+     * produto ou cliente muito vendido não vira ponto de disputa entre os
+     * workers. A busca não bloqueia; só a inclusão de um ID novo (e o
+     * redimensionamento) é sincronizada. O redimensionamento reaproveita os
+     * mesmos contadores, então somas feitas na tabela antiga não se perdem.
+     */
+    private static final class ContadoresPorId {
+        private static final int CAPACIDADE_MINIMA = 64;
+
+        private volatile Tabela tabela = new Tabela(CAPACIDADE_MINIMA);
+
+        void somar(int id, long delta) {
+            LongAdder contador = tabela.buscar(id);
+            if (contador == null) contador = criar(id);
+            contador.add(delta);
+        }
+
+        long valor(int id) {
+            LongAdder contador = tabela.buscar(id);
+            return contador == null ? 0 : contador.sum();
+        }
+
+        /** Entrega cada ID com valor diferente de zero, em ordem arbitrária. */
+        void percorrer(Visitante visitante) {
+            Tabela atual = tabela;
+            for (int i = 0; i < atual.contadores.length(); i++) {
+                LongAdder contador = atual.contadores.get(i);
+                if (contador == null) continue;
+                long valor = contador.sum();
+                if (valor != 0) visitante.visitar(atual.ids[i], valor);
+            }
+        }
+
+        @FunctionalInterface
+        interface Visitante {
+            void visitar(int id, long valor);
+        }
+
+        /** Descarta todos os valores. */
+        synchronized void limpar() {
+            tabela = new Tabela(CAPACIDADE_MINIMA);
+        }
+
+        private synchronized LongAdder criar(int id) {
+            Tabela atual = tabela;
+            LongAdder contador = atual.buscar(id);
+            if (contador != null) return contador;
+            if (atual.tamanho + 1 > atual.ids.length / 2) { // fator de carga de 50%, como no IndiceInt
+                atual = atual.redimensionada();
+                tabela = atual;
+            }
+            contador = new LongAdder();
+            atual.colocar(id, contador);
+            return contador;
+        }
+
+        /**
+         * Arrays da tabela. O ID é gravado antes do contador, e o contador é
+         * publicado pelo {@link AtomicReferenceArray}; quem lê um contador não
+         * nulo vê também o ID da posição.
+         */
+        private static final class Tabela {
+            final int[] ids;
+            final AtomicReferenceArray<LongAdder> contadores;
+            int tamanho; // só usado sob o bloqueio do ContadoresPorId
+
+            Tabela(int capacidade) {
+                ids = new int[capacidade];
+                contadores = new AtomicReferenceArray<>(capacidade);
+            }
+
+            LongAdder buscar(int id) {
+                int mascara = ids.length - 1;
+                for (int i = espalhar(id, mascara); ; i = (i + 1) & mascara) {
+                    LongAdder contador = contadores.get(i);
+                    if (contador == null) return null;
+                    if (ids[i] == id) return contador;
+                }
+            }
+
+            void colocar(int id, LongAdder contador) {
+                int mascara = ids.length - 1;
+                int i = espalhar(id, mascara);
+                while (contadores.get(i) != null) i = (i + 1) & mascara;
+                ids[i] = id;
+                contadores.set(i, contador);
+                tamanho++;
+            }
+
+            Tabela redimensionada() {
+                Tabela maior = new Tabela(ids.length * 2);
+                for (int i = 0; i < ids.length; i++) {
+                    LongAdder contador = contadores.get(i);
+                    if (contador != null) maior.colocar(ids[i], contador);
+                }
+                return maior;
+            }
+
+            /** Espalha IDs sequenciais pela tabela (mesma função do {@link IndiceInt}). */
+            private static int espalhar(int id, int mascara) {
+                int h = id * 0x9E3779B9;
+                return (h ^ (h >>> 16)) & mascara;
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package app;
+
+import java.util.List;
+
+/**
+ * Agrupa todos os dados que são salvos e carregados do arquivo de persistência.
+ * É como uma "caixa" que guarda listas de clientes, produtos e pedidos.
+ */
+final class DadosPersistidos {
+    List<Cliente> clientes;
+    List<Produto> produtos;
+    List<Pedido> pedidos;
+}
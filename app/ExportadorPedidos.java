@@ -0,0 +1,213 @@
+package app;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exportação dos pedidos em formato plano, uma linha por {@link ItemPedido},
+ * para ferramentas de BI que não precisam ler o snapshot inteiro.
+ *
+ * <p>Cada linha tem o pedido (ID, data de criação, status), o cliente, o
+ * produto, a quantidade, o preço unitário e o subtotal. Em CSV a primeira
+ * linha é o cabeçalho; em NDJSON cada linha é um objeto JSON. Os pedidos podem
+ * ser filtrados por status e por intervalo de data de criação (pedidos com
+ * data desconhecida ficam de fora quando há filtro de data).
+ *
+ * <p>O log do {@link Repositorio} é dividido em partições de posições
+ * consecutivas, formatadas em paralelo e escritas no destino na ordem do log.
+ * No máximo algumas partições ficam em memória ao mesmo tempo, então o custo
+ * de memória não depende da quantidade de pedidos. A leitura do repositório não
+ * usa bloqueios, então a exportação não atrapalha o processador nem o menu.
+ */
+final class ExportadorPedidos {
+    private static final int PEDIDOS_POR_PARTICAO = 4096;
+    private static final String CABECALHO_CSV = "pedido_id,criado_em,status,cliente_id,cliente_nome,"
+            + "produto_id,produto_nome,categoria,quantidade,preco_unitario,subtotal";
+
+    enum Formato { CSV, NDJSON }
+
+    private final Formato formato;
+    private final StatusPedido status;
+    private final long criadoDe;
+    private final long criadoAte;
+    private final int threads;
+
+    private long pedidosExportados;
+    private long linhasExportadas;
+
+    /**
+     * @param status    status exigido, ou {@code null} para todos
+     * @param criadoDe  início do intervalo de criação (inclusivo, ms desde 1970), ou {@link Long#MIN_VALUE}
+     * @param criadoAte fim do intervalo de criação (exclusivo), ou {@link Long#MAX_VALUE}
+     */
+    ExportadorPedidos(Formato formato, StatusPedido status, long criadoDe, long criadoAte, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("Quantidade de threads deve ser positiva");
+        if (criadoAte < criadoDe) throw new IllegalArgumentException("Intervalo de datas inválido");
+        this.formato = formato;
+        this.status = status;
+        this.criadoDe = criadoDe;
+        this.criadoAte = criadoAte;
+        this.threads = threads;
+    }
+
+    /** Escreve os pedidos que atendem ao filtro no destino, que não é fechado. */
+    void exportar(Repositorio<Pedido> pedidos, Writer destino) throws IOException {
+        if (formato == Formato.CSV) destino.write(CABECALHO_CSV + "\n");
+        int fim = pedidos.tamanhoLog(); // pedidos criados durante a exportação ficam de fora
+        ExecutorService formatadores = Executors.newFixedThreadPool(threads, PedidoProcessor.fabrica("exportacao"));
+        ArrayDeque<Future<Particao>> emAndamento = new ArrayDeque<>();
+        try {
+            for (int inicio = 0; inicio < fim; inicio += PEDIDOS_POR_PARTICAO) {
+                int inicioParticao = inicio;
+                int fimParticao = Math.min(fim, inicio + PEDIDOS_POR_PARTICAO);
+                emAndamento.add(formatadores.submit(() -> formatar(pedidos, inicioParticao, fimParticao)));
+                // Limita as partições em memória: escreve a mais antiga antes de formatar outras
+                if (emAndamento.size() > 2 * threads) escrever(emAndamento.poll(), destino);
+            }
+            while (!emAndamento.isEmpty()) escrever(emAndamento.poll(), destino);
+            destino.flush();
+        } finally {
+            formatadores.shutdownNow();
+        }
+    }
+
+    long getPedidosExportados() {
+        return pedidosExportados;
+    }
+
+    long getLinhasExportadas() {
+        return linhasExportadas;
+    }
+
+    /** Texto de uma partição já formatada. */
+    private static final class Particao {
+        final StringWriter texto = new StringWriter(64 * 1024);
+        int pedidos;
+        int linhas;
+    }
+
+    private void escrever(Future<Particao> futura, Writer destino) throws IOException {
+        Particao particao;
+        try {
+            particao = futura.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Exportação interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha ao formatar pedidos: " + e.getCause().getMessage(), e.getCause());
+        }
+        destino.write(particao.texto.getBuffer().toString());
+        pedidosExportados += particao.pedidos;
+        linhasExportadas += particao.linhas;
+    }
+
+    private Particao formatar(Repositorio<Pedido> pedidos, int inicio, int fim) {
+        Particao particao = new Particao();
+        JsonUtil.Saida json = new JsonUtil.Saida(particao.texto, true);
+        pedidos.percorrer(inicio, fim, pedido -> {
+            // Status lido uma vez, para que o filtro e todas as linhas do pedido usem o mesmo
+            StatusPedido statusAtual = pedido.getStatus();
+            if (!atende(pedido, statusAtual)) return;
+            particao.pedidos++;
+            for (ItemPedido item : pedido.getItens()) {
+                try {
+                    if (formato == Formato.CSV) {
+                        linhaCsv(particao.texto, pedido, statusAtual, item);
+                    } else {
+                        linhaJson(json, pedido, statusAtual, item);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e); // StringWriter não lança IOException
+                }
+                particao.linhas++;
+            }
+        });
+        return particao;
+    }
+
+    private boolean atende(Pedido pedido, StatusPedido statusAtual) {
+        if (status != null && statusAtual != status) return false;
+        if (criadoDe == Long.MIN_VALUE && criadoAte == Long.MAX_VALUE) return true;
+        long criadoEm = pedido.getCriadoEm();
+        return criadoEm != 0 && criadoEm >= criadoDe && criadoEm < criadoAte;
+    }
+
+    private static void linhaCsv(StringWriter saida, Pedido pedido, StatusPedido status, ItemPedido item) {
+        Produto produto = item.getProduto();
+        StringBuffer linha = saida.getBuffer();
+        linha.append(pedido.getId()).append(',')
+             .append(data(pedido.getCriadoEm())).append(',')
+             .append(status.name()).append(',')
+             .append(pedido.getCliente().getId()).append(',');
+        campoCsv(linha, pedido.getCliente().getNome());
+        linha.append(',').append(produto.getId()).append(',');
+        campoCsv(linha, produto.getNome());
+        linha.append(',').append(produto.getCategoria().name())
+             .append(',').append(item.getQuantidade())
+             .append(',').append(decimal(produto.getPrecoCentavos()))
+             .append(',').append(decimal(item.calcularSubtotalCentavos()))
+             .append('\n');
+    }
+
+    private static void linhaJson(JsonUtil.Saida json, Pedido pedido, StatusPedido status, ItemPedido item)
+            throws IOException {
+        Produto produto = item.getProduto();
+        json.append('{');
+        json.campo(0, "pedidoId").append(pedido.getId()).append(',');
+        json.campo(0, "criadoEm");
+        if (pedido.getCriadoEm() == 0) {
+            json.literal("null");
+        } else {
+            json.texto(data(pedido.getCriadoEm()));
+        }
+        json.append(',');
+        json.campo(0, "status").texto(status.name()).append(',');
+        json.campo(0, "clienteId").append(pedido.getCliente().getId()).append(',');
+        json.campo(0, "clienteNome").texto(pedido.getCliente().getNome()).append(',');
+        json.campo(0, "produtoId").append(produto.getId()).append(',');
+        json.campo(0, "produtoNome").texto(produto.getNome()).append(',');
+        json.campo(0, "categoria").texto(produto.getCategoria().name()).append(',');
+        json.campo(0, "quantidade").append(item.getQuantidade()).append(',');
+        json.campo(0, "precoUnitario").literal(decimal(produto.getPrecoCentavos())).append(',');
+        json.campo(0, "subtotal").literal(decimal(item.calcularSubtotalCentavos()));
+        json.append('}').append('\n');
+    }
+
+    /** Data em ISO-8601 (UTC), ou vazio se desconhecida. */
+    private static String data(long criadoEm) {
+        return criadoEm == 0 ? "" : Instant.ofEpochMilli(criadoEm).toString();
+    }
+
+    /** Centavos como número decimal com duas casas ("12.50"), sem passar por double. */
+    static String decimal(long centavos) {
+        long resto = Math.abs(centavos % 100);
+        return (centavos < 0 && centavos > -100 ? "-" : "") + centavos / 100 + (resto < 10 ? ".0" : ".") + resto;
+    }
+
+    /** Escreve o campo entre aspas se ele tiver vírgula, aspas ou quebra de linha. */
+    private static void campoCsv(StringBuffer linha, String valor) {
+        boolean especial = false;
+        for (int i = 0; i < valor.length() && !especial; i++) {
+            char c = valor.charAt(i);
+            especial = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!especial) {
+            linha.append(valor);
+            return;
+        }
+        linha.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') linha.append('"');
+            linha.append(c);
+        }
+        linha.append('"');
+    }
+}
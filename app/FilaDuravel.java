@@ -0,0 +1,275 @@
+package app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro em disco dos pedidos entregues ao {@link PedidoProcessor}, para que
+ * o trabalho pendente sobreviva a uma queda do processo.
+ *
+ * <p>Cada pedido enfileirado recebe uma posição sequencial e seu ID (4 bytes)
+ * é anexado ao segmento atual, um arquivo {@code <primeira posição>.seg} no
+ * diretório da fila. Quando o pedido chega a {@code FINALIZADO} ele é
+ * confirmado; o deslocamento do consumidor é a menor posição ainda não
+ * confirmada e é gravado no arquivo {@code checkpoint} por
+ * {@link #avancarCheckpoint(long)}, chamado só depois que os status
+ * {@code FINALIZADO} correspondentes estão em disco (no fsync do
+ * {@link Journal} ou depois de um snapshot). Os segmentos inteiramente abaixo
+ * do checkpoint são apagados.
+ *
+ * <p>Na abertura só os registros a partir do checkpoint são lidos, então a
+ * retomada custa O(pendentes) e não O(todos os pedidos). Como os pedidos
+ * terminam fora de ordem, alguns registros depois do checkpoint podem já estar
+ * finalizados; quem retoma confere o status de cada um.
+ */
+final class FilaDuravel implements Closeable {
+    private static final String EXTENSAO = ".seg";
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path diretorio;
+    private final int registrosPorSegmento;
+    private final boolean nova;
+    private final ScheduledExecutorService sincronizador;
+    private final ByteBuffer registro = ByteBuffer.allocate(Integer.BYTES);
+
+    // Pedidos registrados e ainda não confirmados: posição -> ID e ID -> posição
+    private final TreeMap<Long, Integer> pendentes = new TreeMap<>();
+    private final Map<Integer, Long> posicoes = new HashMap<>();
+
+    private FileChannel segmento;
+    private long inicioSegmento;
+    private long proximaPosicao;
+    private long checkpointGravado;
+    private boolean pendenteFsync;
+
+    /**
+     * Abre (ou cria) a fila no diretório informado, lendo os registros a partir
+     * do último checkpoint.
+     *
+     * @param registrosPorSegmento pedidos por arquivo de segmento
+     * @param intervaloFsyncMs     intervalo entre os fsync em lote dos segmentos
+     */
+    FilaDuravel(Path diretorio, int registrosPorSegmento, long intervaloFsyncMs) throws IOException {
+        if (registrosPorSegmento <= 0) throw new IllegalArgumentException("Registros por segmento deve ser positivo");
+        if (intervaloFsyncMs <= 0) throw new IllegalArgumentException("Intervalo de fsync deve ser positivo");
+        this.diretorio = diretorio;
+        this.registrosPorSegmento = registrosPorSegmento;
+        this.nova = !Files.isDirectory(diretorio);
+        Files.createDirectories(diretorio);
+        recuperar();
+        sincronizador = Executors.newSingleThreadScheduledExecutor(PedidoProcessor.fabrica("fila-fsync"));
+        sincronizador.scheduleWithFixedDelay(this::sincronizarSilenciosamente,
+                intervaloFsyncMs, intervaloFsyncMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Indica se o diretório não existia ao abrir. Nesse caso os pedidos
+     * pendentes de dados anteriores a esta fila precisam ser registrados a
+     * partir de uma varredura completa.
+     */
+    boolean isNova() {
+        return nova;
+    }
+
+    /**
+     * Anexa o pedido à fila. Um pedido que já está pendente não é registrado de
+     * novo.
+     */
+    synchronized void registrar(Pedido pedido) throws IOException {
+        if (posicoes.containsKey(pedido.getId())) return;
+        if (segmento == null || proximaPosicao - inicioSegmento >= registrosPorSegmento) novoSegmento();
+        registro.clear();
+        registro.putInt(pedido.getId()).flip();
+        while (registro.hasRemaining()) segmento.write(registro);
+        pendentes.put(proximaPosicao, pedido.getId());
+        posicoes.put(pedido.getId(), proximaPosicao);
+        proximaPosicao++;
+        pendenteFsync = true;
+    }
+
+    /** Marca o pedido como concluído; não faz nada se ele não estiver pendente. */
+    synchronized void confirmar(Pedido pedido) {
+        Long posicao = posicoes.remove(pedido.getId());
+        if (posicao != null) pendentes.remove(posicao);
+    }
+
+    /** IDs dos pedidos pendentes, na ordem em que foram registrados. */
+    synchronized List<Integer> pendentes() {
+        return new ArrayList<>(pendentes.values());
+    }
+
+    synchronized int quantidadePendente() {
+        return pendentes.size();
+    }
+
+    /**
+     * Posição até a qual os pedidos já foram confirmados. Deve ser lida antes de
+     * tornar durável o status desses pedidos e depois passada a
+     * {@link #avancarCheckpoint(long)}.
+     */
+    synchronized long posicaoConfirmada() {
+        return deslocamento();
+    }
+
+    /**
+     * Grava o checkpoint até {@code posicao}, obtida de {@link #posicaoConfirmada()}
+     * antes do fsync do journal (ou do snapshot) que tornou as confirmações duráveis.
+     * Sem essa garantia o checkpoint não avança, e os pedidos são conferidos de novo
+     * na retomada.
+     */
+    synchronized void avancarCheckpoint(long posicao) throws IOException {
+        if (segmento == null) return;
+        sincronizar();
+        gravarCheckpoint(Math.min(posicao, deslocamento()));
+    }
+
+    /** Faz o fsync do segmento atual. */
+    synchronized void sincronizar() throws IOException {
+        if (segmento == null || !pendenteFsync) return;
+        segmento.force(false);
+        pendenteFsync = false;
+    }
+
+    /** Sincroniza e fecha o segmento; o checkpoint fica no último valor durável. */
+    @Override
+    public synchronized void close() throws IOException {
+        sincronizador.shutdown();
+        if (segmento == null) return;
+        segmento.force(false);
+        segmento.close();
+        segmento = null;
+    }
+
+    /** Menor posição ainda não confirmada. */
+    private long deslocamento() {
+        return pendentes.isEmpty() ? proximaPosicao : pendentes.firstKey();
+    }
+
+    private void recuperar() throws IOException {
+        long checkpoint = lerCheckpoint();
+        TreeMap<Long, Path> segmentos = listarSegmentos();
+        proximaPosicao = checkpoint;
+        for (Map.Entry<Long, Path> entrada : segmentos.entrySet()) {
+            long inicio = entrada.getKey();
+            Path arquivo = entrada.getValue();
+            long registros = Files.size(arquivo) / Integer.BYTES;
+            if (inicio + registros <= checkpoint) {
+                Files.delete(arquivo); // totalmente confirmado (a remoção anterior não chegou a acontecer)
+                continue;
+            }
+            lerSegmento(arquivo, inicio, registros, checkpoint);
+            proximaPosicao = inicio + registros;
+        }
+
+        // Continua anexando no último segmento, descartando um registro incompleto no final
+        if (!segmentos.isEmpty() && Files.exists(segmentos.lastEntry().getValue())) {
+            inicioSegmento = segmentos.lastKey();
+            segmento = FileChannel.open(segmentos.lastEntry().getValue(), StandardOpenOption.WRITE);
+            segmento.truncate((proximaPosicao - inicioSegmento) * Integer.BYTES);
+            segmento.position(segmento.size());
+        }
+        checkpointGravado = checkpoint;
+    }
+
+    private void lerSegmento(Path arquivo, long inicio, long registros, long checkpoint) throws IOException {
+        long primeiro = Math.max(0, checkpoint - inicio);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            canal.position(primeiro * Integer.BYTES);
+            long posicao = inicio + primeiro;
+            long fim = inicio + registros;
+            while (posicao < fim) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (fim - posicao) * Integer.BYTES));
+                while (buffer.hasRemaining()) {
+                    if (canal.read(buffer) < 0) throw new IOException("Segmento truncado: " + arquivo);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    int id = buffer.getInt();
+                    Long anterior = posicoes.put(id, posicao);
+                    if (anterior != null) pendentes.remove(anterior);
+                    pendentes.put(posicao, id);
+                    posicao++;
+                }
+            }
+        }
+    }
+
+    private void novoSegmento() throws IOException {
+        if (segmento != null) {
+            segmento.force(false);
+            segmento.close();
+        }
+        inicioSegmento = proximaPosicao;
+        segmento = FileChannel.open(diretorio.resolve(String.format("%020d", inicioSegmento) + EXTENSAO),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        pendenteFsync = false;
+    }
+
+    private long lerCheckpoint() throws IOException {
+        Path arquivo = diretorio.resolve(CHECKPOINT);
+        if (!Files.exists(arquivo)) return 0;
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        if (conteudo.length != Long.BYTES) throw new IOException("Checkpoint da fila inválido: " + arquivo);
+        return ByteBuffer.wrap(conteudo).getLong();
+    }
+
+    /** Grava o checkpoint de forma atômica e apaga os segmentos que ficaram inteiramente abaixo dele. */
+    private void gravarCheckpoint(long deslocamento) throws IOException {
+        if (deslocamento <= checkpointGravado) return;
+        Path temporario = diretorio.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(deslocamento).flip();
+            while (buffer.hasRemaining()) canal.write(buffer);
+            canal.force(false);
+        }
+        Files.move(temporario, diretorio.resolve(CHECKPOINT),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpointGravado = deslocamento;
+
+        // Um segmento pode ser apagado quando o seguinte começa até o checkpoint
+        TreeMap<Long, Path> segmentos = listarSegmentos();
+        Long seguinte = null;
+        for (Map.Entry<Long, Path> entrada : segmentos.descendingMap().entrySet()) {
+            if (seguinte != null && seguinte <= deslocamento) Files.delete(entrada.getValue());
+            seguinte = entrada.getKey();
+        }
+    }
+
+    /** Segmentos no diretório, indexados pela posição do primeiro registro. */
+    private TreeMap<Long, Path> listarSegmentos() throws IOException {
+        TreeMap<Long, Path> segmentos = new TreeMap<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                segmentos.put(Long.parseLong(nome.substring(0, nome.length() - EXTENSAO.length())), arquivo);
+            }
+        }
+        return segmentos;
+    }
+
+    private void sincronizarSilenciosamente() {
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            System.out.println("Falha ao sincronizar a fila de pedidos: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package app;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fila limitada de pedidos aguardando processamento, com faixas de prioridade.
+ *
+ * <p>Cada faixa é um buffer circular de {@code Pedido[]} que cresce sob
+ * demanda até a capacidade e depois só reaproveita posições, sem criar nós
+ * por elemento como a {@code LinkedBlockingQueue}. A capacidade vale para a
+ * soma das faixas; quando ela se esgota, a {@link Politica} decide se quem
+ * enfileira espera (até um prazo) ou é recusado na hora.
+ *
+ * <p>A retirada atende primeiro a faixa mais prioritária, mas a cada
+ * {@value #RODADA} retiradas começa pela menos prioritária, para que pedidos
+ * de baixa prioridade não fiquem parados indefinidamente.
+ *
+ * <p>Uma fila pode ser dividida em partições independentes com
+ * {@link #particionar}; a fila original passa a servir só para as métricas,
+ * somando o estado das partições.
+ */
+final class FilaPedidos {
+
+    /** Faixas da fila, da mais para a menos prioritária. */
+    enum Prioridade {
+        ALTA,
+        NORMAL,
+        BAIXA
+    }
+
+    /** O que fazer quando a fila está cheia. */
+    enum Politica {
+        /** Espera uma vaga até o prazo configurado; depois recusa. */
+        BLOQUEAR,
+        /** Recusa imediatamente. */
+        REJEITAR
+    }
+
+    /** Decide a faixa de cada pedido no momento em que entra na fila. */
+    @FunctionalInterface
+    interface Classificador {
+        Prioridade classificar(Pedido pedido);
+
+        /** Todos os pedidos na mesma faixa (FIFO simples). */
+        static Classificador nenhum() {
+            return pedido -> Prioridade.NORMAL;
+        }
+
+        /** Pedidos a partir de {@code altaCentavos} vão para ALTA; abaixo de {@code baixaCentavos}, para BAIXA. */
+        static Classificador porValor(long altaCentavos, long baixaCentavos) {
+            return pedido -> {
+                long total = pedido.getTotalCentavos();
+                if (total >= altaCentavos) return Prioridade.ALTA;
+                return total < baixaCentavos ? Prioridade.BAIXA : Prioridade.NORMAL;
+            };
+        }
+
+        /** Pedidos com algum item das categorias informadas vão para ALTA. */
+        static Classificador porCategoria(Set<Categoria> categorias) {
+            return pedido -> {
+                for (ItemPedido item : pedido.getItens()) {
+                    if (categorias.contains(item.getProduto().getCategoria())) return Prioridade.ALTA;
+                }
+                return Prioridade.NORMAL;
+            };
+        }
+    }
+
+    private static final int RODADA = 8;
+    private static final int CAPACIDADE_INICIAL_FAIXA = 1024;
+
+    private final int capacidade;
+    private final Politica politica;
+    private final long esperaMaximaNs;
+    private final Classificador classificador;
+
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition naoVazia = trava.newCondition();
+    private final Condition naoCheia = trava.newCondition();
+
+    private final Faixa[] faixas = new Faixa[Prioridade.values().length];
+    private int tamanho;
+    private int retiradas;
+
+    // Saturação (atualizados sob a trava, lidos sem ela pelas métricas)
+    private volatile int pico;
+    private volatile long rejeitados;
+    private volatile long bloqueios;
+    private volatile long tempoBloqueadoNs;
+
+    // Partições criadas por particionar(); quando existem, os getters somam o estado delas
+    private volatile FilaPedidos[] particoes;
+
+    /**
+     * @param capacidade     máximo de pedidos somando todas as faixas
+     * @param politica       comportamento quando a fila está cheia
+     * @param esperaMaximaMs prazo de espera por vaga na política {@link Politica#BLOQUEAR}
+     * @param classificador  escolhe a faixa de cada pedido
+     */
+    FilaPedidos(int capacidade, Politica politica, long esperaMaximaMs, Classificador classificador) {
+        if (capacidade <= 0) throw new IllegalArgumentException("Capacidade da fila deve ser positiva");
+        if (politica == null) throw new IllegalArgumentException("Política da fila obrigatória");
+        if (esperaMaximaMs < 0) throw new IllegalArgumentException("Espera máxima inválida");
+        if (classificador == null) throw new IllegalArgumentException("Classificador de prioridade obrigatório");
+        this.capacidade = capacidade;
+        this.politica = politica;
+        this.esperaMaximaNs = TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+        this.classificador = classificador;
+        for (int i = 0; i < faixas.length; i++) {
+            faixas[i] = new Faixa(Math.min(capacidade, CAPACIDADE_INICIAL_FAIXA));
+        }
+    }
+
+    /**
+     * Enfileira o pedido na faixa indicada pelo classificador, aplicando a
+     * política de fila cheia.
+     *
+     * @return {@code false} se o pedido foi recusado por falta de vaga
+     */
+    boolean oferecer(Pedido pedido) throws InterruptedException {
+        if (particoes != null) throw new IllegalStateException("Fila particionada: enfileire na partição");
+        Prioridade prioridade = classificador.classificar(pedido);
+        trava.lockInterruptibly();
+        try {
+            if (tamanho == capacidade) {
+                if (politica == Politica.REJEITAR || !esperarVaga()) {
+                    rejeitados++;
+                    return false;
+                }
+            }
+            faixas[prioridade.ordinal()].adicionar(pedido, capacidade);
+            if (++tamanho > pico) pico = tamanho;
+            naoVazia.signal();
+            return true;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Retira o próximo pedido, esperando até o prazo se a fila estiver vazia.
+     *
+     * @return o pedido, ou {@code null} se o prazo acabou
+     */
+    Pedido retirar(long prazo, TimeUnit unidade) throws InterruptedException {
+        long restante = unidade.toNanos(prazo);
+        trava.lockInterruptibly();
+        try {
+            while (tamanho == 0) {
+                if (restante <= 0) return null;
+                restante = naoVazia.awaitNanos(restante);
+            }
+            return retirarUm();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Move para {@code destino} até {@code maximo} pedidos já disponíveis, na
+     * mesma ordem em que {@link #retirar} os entregaria. Não espera.
+     *
+     * @return quantidade de pedidos movidos
+     */
+    int drenar(Collection<? super Pedido> destino, int maximo) {
+        trava.lock();
+        try {
+            int movidos = 0;
+            while (movidos < maximo && tamanho > 0) {
+                destino.add(retirarUm());
+                movidos++;
+            }
+            return movidos;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Divide a fila em {@code quantidade} filas independentes, com a mesma
+     * política e o mesmo prazo de espera, repartindo a capacidade entre elas.
+     * Cada partição tem sua própria trava, então produtores e consumidores de
+     * partições diferentes não disputam entre si. As partições são FIFO simples
+     * ({@link Classificador#nenhum()}): com prioridades, um pedido posterior de
+     * um cliente poderia passar à frente dos anteriores do mesmo cliente. Deve
+     * ser chamado com a fila vazia.
+     */
+    FilaPedidos[] particionar(int quantidade) {
+        if (quantidade <= 0) throw new IllegalArgumentException("Quantidade de partições deve ser positiva");
+        trava.lock();
+        try {
+            if (particoes != null) throw new IllegalStateException("Fila já particionada");
+            if (tamanho > 0) throw new IllegalStateException("Fila com pedidos não pode ser particionada");
+            int capacidadeParticao = (capacidade + quantidade - 1) / quantidade;
+            FilaPedidos[] novas = new FilaPedidos[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                novas[i] = new FilaPedidos(capacidadeParticao, politica,
+                        TimeUnit.NANOSECONDS.toMillis(esperaMaximaNs), Classificador.nenhum());
+            }
+            particoes = novas;
+            return novas.clone();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    int tamanho() {
+        if (particoes != null) return (int) somar(FilaPedidos::tamanho);
+        trava.lock();
+        try {
+            return tamanho;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    int tamanho(Prioridade prioridade) {
+        if (particoes != null) return (int) somar(particao -> particao.tamanho(prioridade));
+        trava.lock();
+        try {
+            return faixas[prioridade.ordinal()].quantidade;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    int getCapacidade() {
+        if (particoes != null) return (int) somar(FilaPedidos::getCapacidade);
+        return capacidade;
+    }
+
+    Politica getPolitica() {
+        return politica;
+    }
+
+    /**
+     * Maior quantidade de pedidos já vista na fila ao mesmo tempo. Com
+     * partições, a soma dos picos de cada uma (limite superior do pico conjunto).
+     */
+    int getPico() {
+        if (particoes != null) return (int) somar(FilaPedidos::getPico);
+        return pico;
+    }
+
+    /** Pedidos recusados por falta de vaga. */
+    long getRejeitados() {
+        if (particoes != null) return somar(FilaPedidos::getRejeitados);
+        return rejeitados;
+    }
+
+    /** Vezes em que quem enfileirava precisou esperar por vaga. */
+    long getBloqueios() {
+        if (particoes != null) return somar(FilaPedidos::getBloqueios);
+        return bloqueios;
+    }
+
+    /** Tempo total que produtores passaram esperando por vaga. */
+    long getTempoBloqueadoNs() {
+        if (particoes != null) return somar(FilaPedidos::getTempoBloqueadoNs);
+        return tempoBloqueadoNs;
+    }
+
+    private long somar(ToLongFunction<FilaPedidos> valor) {
+        long soma = 0;
+        for (FilaPedidos particao : particoes) soma += valor.applyAsLong(particao);
+        return soma;
+    }
+
+    /** Espera por uma vaga (com a trava adquirida). */
+    private boolean esperarVaga() throws InterruptedException {
+        bloqueios++;
+        long inicio = System.nanoTime();
+        long restante = esperaMaximaNs;
+        try {
+            while (tamanho == capacidade) {
+                if (restante <= 0) return false;
+                restante = naoCheia.awaitNanos(restante);
+            }
+            return true;
+        } finally {
+            tempoBloqueadoNs += System.nanoTime() - inicio;
+        }
+    }
+
+    /** Retira da faixa adequada (com a trava adquirida e a fila não vazia). */
+    private Pedido retirarUm() {
+        boolean inverter = ++retiradas % RODADA == 0;
+        for (int i = 0; i < faixas.length; i++) {
+            Faixa faixa = faixas[inverter ? faixas.length - 1 - i : i];
+            if (faixa.quantidade > 0) {
+                tamanho--;
+                naoCheia.signal();
+                return faixa.remover();
+            }
+        }
+        throw new IllegalStateException("Fila vazia");
+    }
+
+    /** Buffer circular de uma faixa. */
+    private static final class Faixa {
+        private Pedido[] buffer;
+        private int cabeca;
+        private int quantidade;
+
+        Faixa(int capacidadeInicial) {
+            buffer = new Pedido[capacidadeInicial];
+        }
+
+        void adicionar(Pedido pedido, int capacidadeMaxima) {
+            if (quantidade == buffer.length) crescer(capacidadeMaxima);
+            buffer[(cabeca + quantidade) % buffer.length] = pedido;
+            quantidade++;
+        }
+
+        Pedido remover() {
+            Pedido pedido = buffer[cabeca];
+            buffer[cabeca] = null; // não segura a referência depois de entregue
+            cabeca = (cabeca + 1) % buffer.length;
+            quantidade--;
+            return pedido;
+        }
+
+        private void crescer(int capacidadeMaxima) {
+            Pedido[] maior = new Pedido[(int) Math.min(capacidadeMaxima, buffer.length * 2L)];
+            for (int i = 0; i < quantidade; i++) {
+                maior[i] = buffer[(cabeca + i) % buffer.length];
+            }
+            buffer = maior;
+            cabeca = 0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package app;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências com memória fixa, no estilo do HdrHistogram: faixas
+ * em potências de 2, cada uma dividida em 128 sub-faixas lineares, o que dá
+ * erro relativo abaixo de 1% em qualquer valor entre 1 ns e cerca de 4 horas.
+ *
+ * <p>Registrar um valor é um incremento atômico em uma posição do array, sem
+ * alocação nem bloqueio, e pode ser feito por várias threads ao mesmo tempo.
+ */
+final class Histograma {
+    private static final int BITS_SUB_FAIXA = 7;
+    private static final int SUB_FAIXAS = 1 << BITS_SUB_FAIXA;
+    private static final int BITS_MAXIMO = 44; // 2^44 ns ≈ 4,9 horas
+    private static final long VALOR_MAXIMO = (1L << BITS_MAXIMO) - 1;
+
+    private final AtomicLongArray contagens =
+            new AtomicLongArray(((BITS_MAXIMO - BITS_SUB_FAIXA) << BITS_SUB_FAIXA) + 2 * SUB_FAIXAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /** Registra um valor (negativos contam como zero; acima do limite, como o limite). */
+    void registrar(long valor) {
+        long v = Math.min(Math.max(valor, 0), VALOR_MAXIMO);
+        contagens.incrementAndGet(indice(v));
+        total.increment();
+        soma.add(v);
+        if (v > maximo.get()) maximo.accumulateAndGet(v, Math::max);
+    }
+
+    long getContagem() {
+        return total.sum();
+    }
+
+    long getMaximo() {
+        return maximo.get();
+    }
+
+    double getMedia() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) soma.sum() / n;
+    }
+
+    /**
+     * Valor abaixo do qual está o percentual informado dos registros (ex.: 99.9).
+     * Devolve o maior valor equivalente da sub-faixa encontrada.
+     */
+    long percentil(double percentual) {
+        long n = total.sum();
+        if (n == 0) return 0;
+        long alvo = Math.max(1, (long) Math.ceil(percentual / 100.0 * n));
+        long acumulado = 0;
+        for (int i = 0; i < contagens.length(); i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= alvo) return Math.min(maiorEquivalente(i), maximo.get());
+        }
+        return maximo.get(); // registros concorrentes chegaram depois da leitura do total
+    }
+
+    private static int indice(long valor) {
+        int deslocamento = Math.max(0, 63 - Long.numberOfLeadingZeros(valor) - BITS_SUB_FAIXA);
+        return (deslocamento << BITS_SUB_FAIXA) + (int) (valor >>> deslocamento);
+    }
+
+    private static long maiorEquivalente(int indice) {
+        if (indice < 2 * SUB_FAIXAS) return indice;
+        int deslocamento = (indice >>> BITS_SUB_FAIXA) - 1;
+        long inicio = (long) (indice - (deslocamento << BITS_SUB_FAIXA)) << deslocamento;
+        return inicio + (1L << deslocamento) - 1;
+    }
+}
@@ -0,0 +1,417 @@
+package app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Importação em lote de clientes, produtos e pedidos a partir de um arquivo,
+ * sem passar pelo menu.
+ *
+ * <p>Formatos aceitos, um registro por linha:
+ * <ul>
+ *   <li>NDJSON, no mesmo formato das linhas do {@link Journal}:
+ *       {@code {"cliente":{"id":1,"nome":"Ana","email":"ana@x.com"}}},
+ *       {@code {"produto":{"id":1,"nome":"Café","preco":12.5,"categoria":"ALIMENTOS"}}} e
+ *       {@code {"pedido":{"id":1,"clienteId":1,"itens":[{"produtoId":1,"quantidade":2}],"status":"FINALIZADO"}}};</li>
+ *   <li>CSV, com o tipo na primeira coluna:
+ *       {@code cliente,id,nome,email}, {@code produto,id,nome,preco,categoria} e
+ *       {@code pedido,id,clienteId,produtoId:quantidade;produtoId:quantidade[,status]}.
+ *       Campos com vírgula vão entre aspas; uma linha de cabeçalho começando
+ *       por {@code tipo} é ignorada.</li>
+ * </ul>
+ *
+ * <p>O arquivo é lido em streaming e as linhas são agrupadas em lotes. Cada
+ * lote é convertido em paralelo, e clientes e produtos já passam pelas
+ * validações dos próprios construtores nessa etapa. Os lotes são inseridos nos
+ * repositórios na ordem do arquivo por uma única thread, que também resolve as
+ * referências dos pedidos (um pedido pode usar clientes e produtos de linhas
+ * anteriores do mesmo arquivo). No máximo alguns lotes ficam em memória ao
+ * mesmo tempo. Cada linha rejeitada é relatada com a mensagem da exceção.
+ */
+final class ImportadorLote {
+    private static final int LINHAS_POR_LOTE = 4096;
+
+    enum Formato { CSV, NDJSON }
+
+    private final Repositorio<Cliente> clientes;
+    private final Repositorio<Produto> produtos;
+    private final Repositorio<Pedido> pedidos;
+    private final int threads;
+
+    ImportadorLote(Repositorio<Cliente> clientes, Repositorio<Produto> produtos, Repositorio<Pedido> pedidos,
+                   int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("Quantidade de threads deve ser positiva");
+        this.clientes = clientes;
+        this.produtos = produtos;
+        this.pedidos = pedidos;
+        this.threads = threads;
+    }
+
+    /** Formato pela extensão do arquivo ({@code .csv}; qualquer outra é NDJSON). */
+    static Formato formatoDe(Path arquivo) {
+        return arquivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? Formato.CSV : Formato.NDJSON;
+    }
+
+    /** Totais da importação e as linhas rejeitadas, na ordem do arquivo. */
+    static final class Resultado {
+        private int clientes;
+        private int produtos;
+        private int pedidos;
+        private final List<Pedido> pedidosImportados = new ArrayList<>();
+        private final List<Rejeicao> rejeicoes = new ArrayList<>();
+
+        int getClientes() {
+            return clientes;
+        }
+
+        int getProdutos() {
+            return produtos;
+        }
+
+        int getPedidos() {
+            return pedidos;
+        }
+
+        /** Pedidos inseridos, na ordem do arquivo. */
+        List<Pedido> getPedidosImportados() {
+            return pedidosImportados;
+        }
+
+        List<Rejeicao> getRejeicoes() {
+            return rejeicoes;
+        }
+    }
+
+    /** Uma linha que não foi importada. */
+    static final class Rejeicao {
+        private final long linha;
+        private final String mensagem;
+        private final String conteudo;
+
+        Rejeicao(long linha, String mensagem, String conteudo) {
+            this.linha = linha;
+            this.mensagem = mensagem;
+            this.conteudo = conteudo;
+        }
+
+        long getLinha() {
+            return linha;
+        }
+
+        String getMensagem() {
+            return mensagem;
+        }
+
+        String getConteudo() {
+            return conteudo;
+        }
+
+        @Override
+        public String toString() {
+            return "linha " + linha + ": " + mensagem;
+        }
+    }
+
+    /** Importa o arquivo inteiro. Linhas inválidas são rejeitadas sem interromper a importação. */
+    Resultado importar(Path arquivo, Formato formato) throws IOException {
+        Resultado resultado = new Resultado();
+        ExecutorService conversores = Executors.newFixedThreadPool(threads, PedidoProcessor.fabrica("importacao"));
+        ArrayDeque<Future<Registro[]>> emAndamento = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            long numero = 0;
+            String[] linhas = new String[LINHAS_POR_LOTE];
+            long primeira = 1;
+            int quantidade = 0;
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                numero++;
+                if (quantidade == 0) primeira = numero;
+                linhas[quantidade++] = linha;
+                if (quantidade == LINHAS_POR_LOTE) {
+                    emAndamento.add(enviar(conversores, linhas, quantidade, primeira, formato));
+                    linhas = new String[LINHAS_POR_LOTE];
+                    quantidade = 0;
+                    // Limita os lotes em memória: insere o mais antigo antes de ler mais
+                    if (emAndamento.size() > 2 * threads) inserir(emAndamento.poll(), resultado);
+                }
+            }
+            if (quantidade > 0) emAndamento.add(enviar(conversores, linhas, quantidade, primeira, formato));
+            while (!emAndamento.isEmpty()) inserir(emAndamento.poll(), resultado);
+        } finally {
+            conversores.shutdownNow();
+        }
+        return resultado;
+    }
+
+    private Future<Registro[]> enviar(ExecutorService conversores, String[] linhas, int quantidade, long primeira,
+                                      Formato formato) {
+        return conversores.submit(() -> {
+            Registro[] registros = new Registro[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                registros[i] = converter(linhas[i], primeira + i, formato);
+            }
+            return registros;
+        });
+    }
+
+    // ----------------------------------------------------------------------
+    // Inserção (uma thread, na ordem do arquivo)
+    // ----------------------------------------------------------------------
+
+    private void inserir(Future<Registro[]> lote, Resultado resultado) throws IOException {
+        Registro[] registros;
+        try {
+            registros = lote.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importação interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha ao converter um lote: " + e.getCause().getMessage(), e.getCause());
+        }
+        for (Registro registro : registros) {
+            if (registro == null) continue; // linha em branco ou cabeçalho
+            try {
+                if (registro.erro != null) throw registro.erro;
+                if (registro.cliente != null) {
+                    clientes.adicionar(registro.cliente);
+                    resultado.clientes++;
+                } else if (registro.produto != null) {
+                    produtos.adicionar(registro.produto);
+                    resultado.produtos++;
+                } else {
+                    Pedido pedido = registro.pedido.montar(clientes, produtos);
+                    pedidos.adicionar(pedido);
+                    resultado.pedidosImportados.add(pedido);
+                    resultado.pedidos++;
+                }
+            } catch (RuntimeException e) {
+                resultado.rejeicoes.add(new Rejeicao(registro.linha, e.getMessage(), registro.conteudo));
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Conversão (em paralelo)
+    // ----------------------------------------------------------------------
+
+    /** Linha convertida: uma entidade já validada, um pedido a montar ou o erro da conversão. */
+    private static final class Registro {
+        final long linha;
+        final String conteudo;
+        Cliente cliente;
+        Produto produto;
+        PedidoLido pedido;
+        RuntimeException erro;
+
+        Registro(long linha, String conteudo) {
+            this.linha = linha;
+            this.conteudo = conteudo;
+        }
+    }
+
+    /** Campos de um pedido; as referências só são resolvidas na inserção. */
+    private static final class PedidoLido {
+        int id;
+        int clienteId;
+        long criadoEm; // 0 = momento da importação
+        int[] produtos = new int[4];
+        int[] quantidades = new int[4];
+        int itens;
+        StatusPedido status;
+
+        void adicionarItem(int produtoId, int quantidade) {
+            if (itens == produtos.length) {
+                produtos = Arrays.copyOf(produtos, itens * 2);
+                quantidades = Arrays.copyOf(quantidades, itens * 2);
+            }
+            produtos[itens] = produtoId;
+            quantidades[itens] = quantidade;
+            itens++;
+        }
+
+        Pedido montar(Repositorio<Cliente> clientes, Repositorio<Produto> produtos) {
+            Cliente cliente = clientes.buscar(clienteId);
+            if (cliente == null) throw new ValidacaoException("Cliente não encontrado: " + clienteId);
+            Pedido pedido = new Pedido(id, cliente);
+            if (itens == 0) throw new ValidacaoException("Pedido precisa ter pelo menos um item");
+            for (int i = 0; i < itens; i++) {
+                Produto produto = produtos.buscar(this.produtos[i]);
+                if (produto == null) throw new ValidacaoException("Produto não encontrado: " + this.produtos[i]);
+                pedido.adicionarItem(produto, quantidades[i]);
+            }
+            if (status != null) pedido.setStatus(status);
+            if (criadoEm > 0) pedido.setCriadoEm(criadoEm);
+            return pedido;
+        }
+    }
+
+    private static Registro converter(String linha, long numero, Formato formato) {
+        if (linha.isBlank()) return null;
+        Registro registro = new Registro(numero, linha);
+        try {
+            if (formato == Formato.CSV) {
+                if (numero == 1 && linha.regionMatches(true, 0, "tipo", 0, 4)) return null;
+                converterCsv(linha, registro);
+            } else {
+                converterJson(linha, registro);
+            }
+        } catch (IOException e) {
+            registro.erro = new IllegalArgumentException(e.getMessage(), e);
+        } catch (RuntimeException e) {
+            registro.erro = e;
+        }
+        return registro;
+    }
+
+    private static void converterJson(String linha, Registro registro) throws IOException {
+        JsonReader json = new JsonReader(new StringReader(linha));
+        json.beginObject();
+        String tipo = json.nextName();
+        switch (tipo) {
+            case "cliente" -> registro.cliente = JsonUtil.lerCliente(json);
+            case "produto" -> registro.produto = JsonUtil.lerProduto(json);
+            case "pedido" -> registro.pedido = lerPedido(json);
+            default -> throw new IllegalArgumentException("Tipo de registro desconhecido: " + tipo);
+        }
+        json.endObject();
+    }
+
+    private static PedidoLido lerPedido(JsonReader json) throws IOException {
+        PedidoLido pedido = new PedidoLido();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> pedido.id = json.nextInt();
+                case "clienteId" -> pedido.clienteId = json.nextInt();
+                case "criadoEm" -> pedido.criadoEm = json.nextLong();
+                case "status" -> pedido.status = constante(StatusPedido.class, json.nextString(), "status");
+                case "itens" -> {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        int produtoId = 0;
+                        int quantidade = 0;
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            switch (json.nextName()) {
+                                case "produtoId" -> produtoId = json.nextInt();
+                                case "quantidade" -> quantidade = json.nextInt();
+                                default -> json.skipValue();
+                            }
+                        }
+                        json.endObject();
+                        pedido.adicionarItem(produtoId, quantidade);
+                    }
+                    json.endArray();
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return pedido;
+    }
+
+    private static void converterCsv(String linha, Registro registro) {
+        List<String> campos = camposCsv(linha);
+        String tipo = campos.get(0).trim().toLowerCase(Locale.ROOT);
+        switch (tipo) {
+            case "cliente" -> {
+                exigirCampos(campos, 4, "cliente,id,nome,email");
+                registro.cliente = new Cliente(inteiro(campos.get(1)), campos.get(2), campos.get(3));
+            }
+            case "produto" -> {
+                exigirCampos(campos, 5, "produto,id,nome,preco,categoria");
+                registro.produto = new Produto(inteiro(campos.get(1)), campos.get(2),
+                        decimal(campos.get(3)),
+                        constante(Categoria.class, campos.get(4), "categoria"));
+            }
+            case "pedido" -> {
+                exigirCampos(campos, 4, "pedido,id,clienteId,produtoId:quantidade;...[,status]");
+                PedidoLido pedido = new PedidoLido();
+                pedido.id = inteiro(campos.get(1));
+                pedido.clienteId = inteiro(campos.get(2));
+                for (String item : campos.get(3).split(";")) {
+                    if (item.isBlank()) continue;
+                    int separador = item.indexOf(':');
+                    if (separador < 0) throw new IllegalArgumentException("Item sem quantidade: " + item.trim());
+                    pedido.adicionarItem(inteiro(item.substring(0, separador)), inteiro(item.substring(separador + 1)));
+                }
+                if (campos.size() > 4 && !campos.get(4).isBlank()) {
+                    pedido.status = constante(StatusPedido.class, campos.get(4), "status");
+                }
+                registro.pedido = pedido;
+            }
+            default -> throw new IllegalArgumentException("Tipo de registro desconhecido: " + tipo);
+        }
+    }
+
+    private static void exigirCampos(List<String> campos, int minimo, String formato) {
+        if (campos.size() < minimo) throw new IllegalArgumentException("Campos insuficientes, esperado " + formato);
+    }
+
+    private static <E extends Enum<E>> E constante(Class<E> tipo, String texto, String campo) {
+        try {
+            return Enum.valueOf(tipo, texto.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Valor inválido para " + campo + ": " + texto.trim());
+        }
+    }
+
+    private static double decimal(String texto) {
+        try {
+            return Double.parseDouble(texto.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inválido: " + texto.trim());
+        }
+    }
+
+    private static int inteiro(String texto) {
+        try {
+            return Integer.parseInt(texto.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inválido: " + texto.trim());
+        }
+    }
+
+    /** Separa os campos de uma linha CSV; aspas permitem vírgulas no campo e {@code ""} vira uma aspa. */
+    static List<String> camposCsv(String linha) {
+        List<String> campos = new ArrayList<>(6);
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreAspas = false;
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreAspas) throw new IllegalArgumentException("Aspas não fechadas");
+        campos.add(campo.toString());
+        return campos;
+    }
+}
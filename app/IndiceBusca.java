@@ -0,0 +1,312 @@
+package app;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Índice invertido para busca textual em entidades (nome de produtos, nome e
+ * e-mail de clientes).
+ *
+ * <p>Os textos são normalizados (minúsculas, sem acentos) e quebrados em
+ * termos. Cada termo guarda a lista dos IDs que o contêm. Os termos ficam em
+ * um dicionário ordenado, o que permite buscar por prefixo, e cada trigrama
+ * aponta para os termos em que aparece, o que permite buscar por trecho no
+ * meio da palavra sem percorrer o dicionário inteiro.
+ *
+ * <p>Uma consulta exige que todos os seus termos sejam encontrados: as
+ * ocorrências do termo mais raro são cruzadas com as dos demais e só as
+ * {@code limite} melhores são ordenadas. Cada termo pontua
+ * {@value #PONTOS_EXATO} se for igual a um termo da entidade,
+ * {@value #PONTOS_PREFIXO} se for início de um termo e {@value #PONTOS_TRECHO}
+ * se aparecer no meio. Os resultados saem por pontuação, depois pelas
+ * entidades com menos termos (mais específicas) e por ID.
+ *
+ * <p>Depois de um carregamento, {@link #reconstruirDepois} apenas guarda a
+ * origem dos dados; o índice é montado na primeira busca. Inserções e buscas
+ * podem vir de threads diferentes.
+ */
+final class IndiceBusca<T extends Identificavel> {
+    private static final int PONTOS_EXATO = 3;
+    private static final int PONTOS_PREFIXO = 2;
+    private static final int PONTOS_TRECHO = 1;
+    private static final int TAMANHO_NGRAMA = 3;
+
+    private final Function<T, List<String>> textos;
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postagens> termos = new TreeMap<>();
+    private final Map<String, Set<String>> termosPorTrigrama = new HashMap<>();
+    private final IndiceInt<Entrada<T>> entradas = new IndiceInt<>();
+
+    private volatile Supplier<? extends Iterable<T>> pendente;
+
+    /** @param textos campos de texto indexados de cada entidade */
+    IndiceBusca(Function<T, List<String>> textos) {
+        this.textos = textos;
+    }
+
+    /** Indexa uma entidade nova. */
+    void adicionar(T entidade) {
+        trava.writeLock().lock();
+        try {
+            if (pendente != null) return; // entrará na reconstrução pendente, que lê a origem completa
+            indexar(entidade);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta o índice atual e passa a montá-lo a partir da origem só na
+     * primeira busca, para não atrasar o carregamento.
+     */
+    void reconstruirDepois(Supplier<? extends Iterable<T>> origem) {
+        trava.writeLock().lock();
+        try {
+            limpar();
+            pendente = origem;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /** Até {@code limite} entidades que contêm todos os termos da consulta, da mais para a menos relevante. */
+    List<T> buscar(String consulta, int limite) {
+        if (limite <= 0) throw new IllegalArgumentException("Limite da busca deve ser positivo");
+        Set<String> termosConsulta = termosDe(List.of(consulta));
+        if (termosConsulta.isEmpty()) return new ArrayList<>();
+        if (pendente != null) montarPendente();
+
+        trava.readLock().lock();
+        try {
+            // Para cada termo da consulta, as entidades que o contêm (ordenadas por ID). O termo
+            // que cobre menos entidades gera os candidatos; os demais são cruzados com eles.
+            List<long[]> porTermo = new ArrayList<>();
+            for (String termo : termosConsulta) {
+                long[] ocorrencias = ocorrencias(casamentos(termo));
+                if (ocorrencias.length == 0) return new ArrayList<>();
+                porTermo.add(ocorrencias);
+            }
+            porTermo.sort((x, y) -> Integer.compare(x.length, y.length));
+            long[] candidatos = porTermo.get(0);
+            int[] cursores = new int[porTermo.size()];
+
+            // Mantém as "limite" melhores chaves em um heap cujo topo é a pior delas
+            long[] heap = new long[Math.min(limite, candidatos.length)];
+            int tamanhoHeap = 0;
+            int anterior = -1;
+            proximo:
+            for (long candidato : candidatos) {
+                int id = (int) (candidato >>> 2);
+                if (id == anterior) continue; // a entidade tem mais de um termo que casa
+                anterior = id;
+                int pontos = PONTOS_EXATO - (int) (candidato & 3);
+                for (int t = 1; t < porTermo.size(); t++) {
+                    long[] ocorrencias = porTermo.get(t);
+                    int cursor = cursores[t];
+                    while (cursor < ocorrencias.length && (int) (ocorrencias[cursor] >>> 2) < id) cursor++;
+                    cursores[t] = cursor;
+                    if (cursor == ocorrencias.length || (int) (ocorrencias[cursor] >>> 2) != id) continue proximo;
+                    pontos += PONTOS_EXATO - (int) (ocorrencias[cursor] & 3);
+                }
+                // Ordem: mais pontos, menos termos, menor ID (tudo codificado em um long crescente)
+                long chave = ((long) (0xFFFF - Math.min(0xFFFF, pontos)) << 47)
+                        | ((long) Math.min(0xFFFF, entradas.buscar(id).termos) << 31) | id;
+                if (tamanhoHeap < heap.length) {
+                    heap[tamanhoHeap] = chave;
+                    subir(heap, tamanhoHeap++);
+                } else if (chave < heap[0]) {
+                    heap[0] = chave;
+                    descer(heap, tamanhoHeap);
+                }
+            }
+            long[] chaves = Arrays.copyOf(heap, tamanhoHeap);
+            Arrays.sort(chaves);
+            List<T> resultado = new ArrayList<>(chaves.length);
+            for (long chave : chaves) {
+                resultado.add(entradas.buscar((int) (chave & Integer.MAX_VALUE)).entidade);
+            }
+            return resultado;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /** Quantidade de termos distintos no dicionário. */
+    int quantidadeTermos() {
+        if (pendente != null) montarPendente();
+        trava.readLock().lock();
+        try {
+            return termos.size();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ocorrências dos termos do dicionário que casaram, como {@code id << 2 | pontos que faltam
+     * para o máximo}, ordenadas: a melhor ocorrência de cada ID vem primeiro.
+     */
+    private long[] ocorrencias(Map<String, Integer> casamentos) {
+        int total = 0;
+        for (String termo : casamentos.keySet()) total += termos.get(termo).tamanho;
+        long[] ocorrencias = new long[total];
+        int quantidade = 0;
+        for (Map.Entry<String, Integer> casamento : casamentos.entrySet()) {
+            Postagens postagens = termos.get(casamento.getKey());
+            long faltam = PONTOS_EXATO - casamento.getValue();
+            for (int i = 0; i < postagens.tamanho; i++) {
+                ocorrencias[quantidade++] = (long) postagens.ids[i] << 2 | faltam;
+            }
+        }
+        Arrays.sort(ocorrencias);
+        return ocorrencias;
+    }
+
+    // Heap máximo de chaves (a raiz é a pior das melhores encontradas até agora)
+    private static void subir(long[] heap, int i) {
+        while (i > 0) {
+            int pai = (i - 1) / 2;
+            if (heap[i] <= heap[pai]) return;
+            trocar(heap, i, pai);
+            i = pai;
+        }
+    }
+
+    private static void descer(long[] heap, int tamanho) {
+        int i = 0;
+        while (true) {
+            int maior = i;
+            int esquerdo = 2 * i + 1;
+            int direito = esquerdo + 1;
+            if (esquerdo < tamanho && heap[esquerdo] > heap[maior]) maior = esquerdo;
+            if (direito < tamanho && heap[direito] > heap[maior]) maior = direito;
+            if (maior == i) return;
+            trocar(heap, i, maior);
+            i = maior;
+        }
+    }
+
+    private static void trocar(long[] heap, int i, int j) {
+        long temp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = temp;
+    }
+
+    /** Termos do dicionário que casam com o termo da consulta, com a pontuação de cada um. */
+    private Map<String, Integer> casamentos(String termo) {
+        Map<String, Integer> casamentos = new HashMap<>();
+        SortedMap<String, Postagens> comPrefixo = termos.subMap(termo, termo + Character.MAX_VALUE);
+        for (String candidato : comPrefixo.keySet()) {
+            casamentos.put(candidato, candidato.length() == termo.length() ? PONTOS_EXATO : PONTOS_PREFIXO);
+        }
+        if (termo.length() < TAMANHO_NGRAMA) return casamentos; // curto demais para buscar no meio
+
+        // Termos que contêm todos os trigramas do termo; o menor conjunto é conferido com contains
+        Set<String> menor = null;
+        for (int i = 0; i + TAMANHO_NGRAMA <= termo.length(); i++) {
+            Set<String> conjunto = termosPorTrigrama.get(termo.substring(i, i + TAMANHO_NGRAMA));
+            if (conjunto == null) return casamentos;
+            if (menor == null || conjunto.size() < menor.size()) menor = conjunto;
+        }
+        for (String candidato : menor) {
+            if (!casamentos.containsKey(candidato) && candidato.contains(termo)) {
+                casamentos.put(candidato, PONTOS_TRECHO);
+            }
+        }
+        return casamentos;
+    }
+
+    private void montarPendente() {
+        trava.writeLock().lock();
+        try {
+            Supplier<? extends Iterable<T>> origem = pendente;
+            if (origem == null) return; // outra thread já montou
+            for (T entidade : origem.get()) indexar(entidade);
+            pendente = null;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private void indexar(T entidade) {
+        int id = entidade.getId();
+        if (entradas.buscar(id) != null) return;
+        Set<String> termosEntidade = termosDe(textos.apply(entidade));
+        entradas.colocar(id, new Entrada<>(entidade, termosEntidade.size()));
+        for (String termo : termosEntidade) {
+            Postagens postagens = termos.get(termo);
+            if (postagens == null) {
+                postagens = new Postagens();
+                termos.put(termo, postagens);
+                for (int i = 0; i + TAMANHO_NGRAMA <= termo.length(); i++) {
+                    termosPorTrigrama.computeIfAbsent(termo.substring(i, i + TAMANHO_NGRAMA), t -> new LinkedHashSet<>())
+                            .add(termo);
+                }
+            }
+            postagens.adicionar(id);
+        }
+    }
+
+    private void limpar() {
+        termos.clear();
+        termosPorTrigrama.clear();
+        entradas.limpar();
+    }
+
+    /** Termos distintos dos textos, em minúsculas e sem acentos. */
+    static Set<String> termosDe(List<String> textos) {
+        Set<String> termos = new LinkedHashSet<>();
+        for (String texto : textos) {
+            if (texto == null) continue;
+            String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "")
+                    .toLowerCase(Locale.ROOT);
+            int inicio = -1;
+            for (int i = 0; i <= normalizado.length(); i++) {
+                boolean letra = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+                if (letra && inicio < 0) {
+                    inicio = i;
+                } else if (!letra && inicio >= 0) {
+                    termos.add(normalizado.substring(inicio, i));
+                    inicio = -1;
+                }
+            }
+        }
+        return termos;
+    }
+
+    /** Entidade indexada e quantos termos distintos ela tem. */
+    private static final class Entrada<T> {
+        final T entidade;
+        final int termos;
+
+        Entrada(T entidade, int termos) {
+            this.entidade = entidade;
+            this.termos = termos;
+        }
+    }
+
+    /** IDs das entidades que contêm um termo, em ordem de inserção. */
+    private static final class Postagens {
+        int[] ids = new int[2];
+        int tamanho;
+
+        void adicionar(int id) {
+            if (tamanho == ids.length) ids = Arrays.copyOf(ids, tamanho * 2);
+            ids[tamanho++] = id;
+        }
+    }
+}
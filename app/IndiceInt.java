@@ -0,0 +1,105 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de chave {@code int} para objeto com endereçamento aberto (sondagem
+ * linear), sem criar {@code Integer} para cada chave como um
+ * {@code HashMap<Integer, V>}. Valores {@code null} não são aceitos: uma
+ * posição vazia é justamente a que tem valor {@code null}.
+ *
+ * <p>Não é thread-safe.
+ */
+final class IndiceInt<V> {
+    private static final int CAPACIDADE_MINIMA = 16;
+
+    private int[] chaves;
+    private Object[] valores;
+    private int tamanho;
+    private int limiteRedimensionar;
+
+    IndiceInt() {
+        this(CAPACIDADE_MINIMA);
+    }
+
+    /** Cria o índice já dimensionado para {@code esperado} elementos. */
+    IndiceInt(int esperado) {
+        int capacidade = Integer.highestOneBit(Math.max(CAPACIDADE_MINIMA, esperado * 2 - 1)) << 1;
+        alocar(capacidade);
+    }
+
+    /** Valor associado à chave, ou {@code null}. */
+    @SuppressWarnings("unchecked")
+    V buscar(int chave) {
+        int mascara = chaves.length - 1;
+        for (int i = posicao(chave, mascara); ; i = (i + 1) & mascara) {
+            Object valor = valores[i];
+            if (valor == null) return null;
+            if (chaves[i] == chave) return (V) valor;
+        }
+    }
+
+    /** Associa o valor à chave, devolvendo o valor anterior (ou {@code null}). */
+    V colocar(int chave, V valor) {
+        return inserir(chave, valor, true);
+    }
+
+    /** Associa o valor só se a chave ainda não existir; devolve o valor já presente, se houver. */
+    V colocarSeAusente(int chave, V valor) {
+        return inserir(chave, valor, false);
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    void limpar() {
+        Arrays.fill(valores, null);
+        tamanho = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V inserir(int chave, V valor, boolean substituir) {
+        if (valor == null) throw new IllegalArgumentException("Valor nulo não é permitido");
+        int mascara = chaves.length - 1;
+        int i = posicao(chave, mascara);
+        while (valores[i] != null) {
+            if (chaves[i] == chave) {
+                V anterior = (V) valores[i];
+                if (substituir) valores[i] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        valores[i] = valor;
+        if (++tamanho > limiteRedimensionar) redimensionar();
+        return null;
+    }
+
+    private void redimensionar() {
+        int[] chavesAntigas = chaves;
+        Object[] valoresAntigos = valores;
+        alocar(chaves.length * 2);
+        int mascara = chaves.length - 1;
+        for (int j = 0; j < valoresAntigos.length; j++) {
+            if (valoresAntigos[j] == null) continue;
+            int i = posicao(chavesAntigas[j], mascara);
+            while (valores[i] != null) i = (i + 1) & mascara;
+            chaves[i] = chavesAntigas[j];
+            valores[i] = valoresAntigos[j];
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new int[capacidade];
+        valores = new Object[capacidade];
+        limiteRedimensionar = capacidade / 2; // fator de carga de 50%: sondagens curtas
+    }
+
+    /** Espalha chaves sequenciais (IDs 1, 2, 3...) pela tabela. */
+    private static int posicao(int chave, int mascara) {
+        int h = chave * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+}
@@ -0,0 +1,259 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índices secundários dos pedidos por cliente, por produto e por status, para
+ * que consultas como "pedidos do cliente 7" ou "pedidos em FILA" custem
+ * O(resultado) em vez de percorrer todos os pedidos.
+ *
+ * <p>Cliente e itens de um pedido não mudam depois de criado, então os índices
+ * por cliente e por produto são listas somente-anexação por ID, preenchidas em
+ * {@link #pedidoCriado}. O índice por status acompanha as transições: como
+ * {@link StatusListener} do processador, cada mudança tira o pedido do conjunto
+ * do status anterior e o coloca no do novo. Os conjuntos por status ficam
+ * ordenados por ID, então uma página a partir de um cursor lê só os pedidos
+ * dela. Tudo pode ser lido por qualquer thread enquanto o processador atualiza.
+ *
+ * <p>Ao carregar os dados, {@link #reconstruir} refaz os três índices em uma
+ * passada.
+ */
+public final class IndicePedidos implements StatusListener {
+    private static final Comparator<Pedido> POR_ID = Comparator.comparingInt(Pedido::getId);
+
+    private final Map<Integer, Lista> porCliente = new ConcurrentHashMap<>();
+    private final Map<Integer, Lista> porProduto = new ConcurrentHashMap<>();
+    private final Map<StatusPedido, Conjunto> porStatus = new EnumMap<>(StatusPedido.class);
+
+    public IndicePedidos() {
+        for (StatusPedido status : StatusPedido.values()) {
+            porStatus.put(status, new Conjunto());
+        }
+    }
+
+    /**
+     * Indexa um pedido recém-criado. Deve ser chamado antes de o pedido ir para
+     * o processador, para que as transições seguintes partam do status atual.
+     */
+    public void pedidoCriado(Pedido pedido) {
+        porCliente.computeIfAbsent(pedido.getCliente().getId(), id -> new Lista()).adicionar(pedido);
+        List<ItemPedido> itens = pedido.getItens();
+        for (int i = 0; i < itens.size(); i++) {
+            int produto = itens.get(i).getProduto().getId();
+            if (!produtoAnterior(itens, i, produto)) {
+                porProduto.computeIfAbsent(produto, id -> new Lista()).adicionar(pedido);
+            }
+        }
+        porStatus.get(pedido.getStatus()).colocar(pedido);
+    }
+
+    @Override
+    public void statusAlterado(Pedido pedido, StatusPedido anterior, StatusPedido novo) {
+        if (anterior == novo) return;
+        porStatus.get(anterior).remover(pedido);
+        porStatus.get(novo).colocar(pedido);
+    }
+
+    /**
+     * Descarta os índices e indexa todos os pedidos informados. Deve ser
+     * chamado com o processador ainda sem pedidos, como no carregamento.
+     */
+    public synchronized void reconstruir(Iterable<Pedido> todos) {
+        porCliente.clear();
+        porProduto.clear();
+        porStatus.values().forEach(Conjunto::limpar);
+        for (Pedido pedido : todos) {
+            pedidoCriado(pedido);
+        }
+    }
+
+    /** Pedidos do cliente, na ordem de criação. */
+    public List<Pedido> porCliente(int clienteId) {
+        Lista lista = porCliente.get(clienteId);
+        return lista == null ? new ArrayList<>() : lista.copiar();
+    }
+
+    /** Pedidos com pelo menos um item do produto, na ordem de criação. */
+    public List<Pedido> porProduto(int produtoId) {
+        Lista lista = porProduto.get(produtoId);
+        return lista == null ? new ArrayList<>() : lista.copiar();
+    }
+
+    /** Pedidos que estão no status informado, em ordem de ID. */
+    public List<Pedido> porStatus(StatusPedido status) {
+        return new ArrayList<>(porStatus.get(status).pedidos.values());
+    }
+
+    /** Quantidade de pedidos no status, sem montar a lista. */
+    public int contar(StatusPedido status) {
+        return porStatus.get(status).quantidade.intValue();
+    }
+
+    /** Pedidos que ainda não chegaram a {@link StatusPedido#FINALIZADO}, em ordem de ID. */
+    public List<Pedido> pendentes() {
+        List<Pedido> pedidos = new ArrayList<>();
+        for (StatusPedido status : StatusPedido.values()) {
+            if (status != StatusPedido.FINALIZADO) pedidos.addAll(porStatus.get(status).pedidos.values());
+        }
+        pedidos.sort(POR_ID);
+        return pedidos;
+    }
+
+    /**
+     * Inicia uma consulta combinando filtros. A busca começa pelo índice do
+     * filtro mais seletivo e aplica os demais sobre esse resultado.
+     */
+    public Consulta consulta() {
+        return new Consulta();
+    }
+
+    /** Filtros opcionais por cliente, produto e status, combinados com "e". */
+    public final class Consulta {
+        private Integer clienteId;
+        private Integer produtoId;
+        private StatusPedido status;
+
+        private Consulta() {
+        }
+
+        public Consulta cliente(int clienteId) {
+            this.clienteId = clienteId;
+            return this;
+        }
+
+        public Consulta produto(int produtoId) {
+            this.produtoId = produtoId;
+            return this;
+        }
+
+        public Consulta status(StatusPedido status) {
+            this.status = status;
+            return this;
+        }
+
+        /** Pedidos que atendem a todos os filtros, em ordem de ID. */
+        public List<Pedido> listar() {
+            if (clienteId == null && produtoId == null && status == null) {
+                throw new IllegalStateException("Informe ao menos um filtro");
+            }
+            // Escolhe o índice com menos candidatos
+            List<Pedido> candidatos;
+            if (usarStatus()) {
+                candidatos = porStatus(status);
+            } else if (candidatosCliente() <= candidatosProduto()) {
+                candidatos = porCliente(clienteId);
+            } else {
+                candidatos = porProduto(produtoId);
+            }
+            candidatos.removeIf(pedido -> !atende(pedido));
+            candidatos.sort(POR_ID);
+            return candidatos;
+        }
+
+        /**
+         * Página do resultado, usando o ID do pedido como cursor. Quando o
+         * status é o filtro mais seletivo, a página é lida do conjunto ordenado
+         * a partir do cursor e custa só os pedidos percorridos até completá-la;
+         * senão refaz a consulta (custo proporcional ao resultado, não ao total).
+         */
+        public Pagina<Pedido> pagina(int cursor, int limite) {
+            if (!usarStatus()) return Pagina.porId(listar(), cursor, limite);
+            if (cursor < 0) throw new IllegalArgumentException("Cursor inválido");
+            if (limite <= 0) throw new IllegalArgumentException("Tamanho da página deve ser positivo");
+            List<Pedido> itens = new ArrayList<>(Math.min(limite, 64));
+            for (Pedido pedido : porStatus.get(status).pedidos.tailMap(cursor).values()) {
+                if (!atende(pedido)) continue;
+                if (itens.size() == limite) return new Pagina<>(itens, pedido.getId());
+                itens.add(pedido);
+            }
+            return new Pagina<>(itens, -1);
+        }
+
+        /** Indica se o índice por status tem menos candidatos que os de cliente e produto. */
+        private boolean usarStatus() {
+            return status != null && contar(status) < Math.min(candidatosCliente(), candidatosProduto());
+        }
+
+        private int candidatosCliente() {
+            return clienteId == null ? Integer.MAX_VALUE : tamanho(porCliente.get(clienteId));
+        }
+
+        private int candidatosProduto() {
+            return produtoId == null ? Integer.MAX_VALUE : tamanho(porProduto.get(produtoId));
+        }
+
+        private boolean atende(Pedido pedido) {
+            if (clienteId != null && pedido.getCliente().getId() != clienteId) return false;
+            if (status != null && pedido.getStatus() != status) return false;
+            if (produtoId == null) return true;
+            for (ItemPedido item : pedido.getItens()) {
+                if (item.getProduto().getId() == produtoId) return true;
+            }
+            return false;
+        }
+    }
+
+    private static int tamanho(Lista lista) {
+        return lista == null ? 0 : lista.tamanho;
+    }
+
+    /** Indica se o produto já apareceu em um item anterior do pedido (pedidos têm poucos itens). */
+    private static boolean produtoAnterior(List<ItemPedido> itens, int posicao, int produto) {
+        for (int i = 0; i < posicao; i++) {
+            if (itens.get(i).getProduto().getId() == produto) return true;
+        }
+        return false;
+    }
+
+    /** Pedidos de um status, ordenados por ID, com a quantidade mantida à parte (O(1) para contar). */
+    private static final class Conjunto {
+        final ConcurrentSkipListMap<Integer, Pedido> pedidos = new ConcurrentSkipListMap<>();
+        final LongAdder quantidade = new LongAdder();
+
+        void colocar(Pedido pedido) {
+            if (pedidos.put(pedido.getId(), pedido) == null) quantidade.increment();
+        }
+
+        void remover(Pedido pedido) {
+            if (pedidos.remove(pedido.getId()) != null) quantidade.decrement();
+        }
+
+        void limpar() {
+            pedidos.clear();
+            quantidade.reset();
+        }
+    }
+
+    /**
+     * Lista somente-anexação: um escritor por vez (sob o bloqueio da lista) e
+     * leitores sem bloqueio, que enxergam os elementos até o tamanho publicado.
+     */
+    private static final class Lista {
+        private volatile Pedido[] itens = new Pedido[4];
+        private volatile int tamanho;
+
+        synchronized void adicionar(Pedido pedido) {
+            Pedido[] atual = itens;
+            if (tamanho == atual.length) {
+                atual = Arrays.copyOf(atual, atual.length * 2);
+                itens = atual;
+            }
+            atual[tamanho] = pedido;
+            tamanho++; // escrita volátil: publica o elemento para os leitores
+        }
+
+        List<Pedido> copiar() {
+            int quantidade = tamanho;
+            Pedido[] atual = itens;
+            return new ArrayList<>(Arrays.asList(atual).subList(0, quantidade));
+        }
+    }
+}
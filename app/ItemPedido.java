@@ -30,9 +30,15 @@ public class ItemPedido {
     }
 
     /**
-     * Atualiza a referência do produto após carregamento de dados.
+     * Atualiza a referência do produto após carregamento de dados. O novo
+     * objeto deve representar o mesmo produto, com o mesmo preço, para não
+     * invalidar o total já acumulado no pedido.
      */
     public void atualizarProduto(Produto produto) {
+        if (produto == null || produto.getId() != this.produto.getId()
+                || produto.getPrecoCentavos() != this.produto.getPrecoCentavos()) {
+            throw new ValidacaoException("Produto substituto deve ter o mesmo ID e preço");
+        }
         this.produto = produto;
     }
 
@@ -41,7 +47,12 @@ public class ItemPedido {
     }
 
     public double calcularSubtotal() {
-        return quantidade * produto.getPreco();
+        return calcularSubtotalCentavos() / 100.0;
+    }
+
+    /** Subtotal exato em centavos. */
+    public long calcularSubtotalCentavos() {
+        return Math.multiplyExact(produto.getPrecoCentavos(), (long) quantidade);
     }
 }
 
@@ -0,0 +1,314 @@
+package app;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log de alterações somente-anexação (write-ahead log) gravado ao lado do
+ * snapshot {@code dados.json}.
+ *
+ * <p>Cada cadastro, pedido criado e transição de status vira uma linha JSON
+ * compacta, por exemplo {@code {"cliente":{...}}} ou
+ * {@code {"status":{"pedidoId":3,"status":"FINALIZADO"}}}. Cada linha é
+ * entregue ao sistema operacional assim que registrada (sobrevive à queda do
+ * processo), e uma thread de fundo faz o {@code fsync} em lote a cada
+ * intervalo, de modo que muitas alterações pagam um único fsync.
+ *
+ * <p>Na compactação o arquivo atual é rotacionado para {@code <arquivo>.1},
+ * um novo snapshot é gravado e só então o rotacionado é descartado. A
+ * reprodução lê {@code .1} (se existir) e depois o arquivo atual; como aplicar
+ * o mesmo registro duas vezes não muda o resultado, um snapshot que já contenha
+ * parte do journal não causa problemas.
+ *
+ * <p>Com uma {@link FilaDuravel} associada, cada fsync também avança o
+ * checkpoint da fila até os pedidos cujo {@code FINALIZADO} ele tornou durável.
+ */
+final class Journal implements Closeable {
+
+    private final Path arquivo;
+    private final Path rotacionado;
+    private final long limiteBytes;
+    private final ScheduledExecutorService sincronizador;
+
+    private FileOutputStream saida;
+    private FileChannel canal;
+    private Writer writer;
+    private JsonUtil.Saida json;
+    private long tamanho;
+    private boolean pendente;
+    private volatile FilaDuravel filaDuravel;
+
+    /**
+     * Abre (ou cria) o journal para anexação.
+     *
+     * @param intervaloFsyncMs intervalo entre os fsync em lote
+     * @param limiteBytes      tamanho a partir do qual {@link #precisaCompactar()} indica compactação
+     */
+    Journal(Path arquivo, long intervaloFsyncMs, long limiteBytes) throws IOException {
+        // Validado antes de abrir o arquivo, para não deixar o canal aberto sem sincronizador
+        if (intervaloFsyncMs <= 0) throw new IllegalArgumentException("Intervalo de fsync deve ser positivo");
+        if (limiteBytes <= 0) throw new IllegalArgumentException("Limite do journal deve ser positivo");
+        this.arquivo = arquivo;
+        this.rotacionado = rotacionadoDe(arquivo);
+        this.limiteBytes = limiteBytes;
+        abrir();
+        sincronizador = Executors.newSingleThreadScheduledExecutor(PedidoProcessor.fabrica("journal-fsync"));
+        sincronizador.scheduleWithFixedDelay(this::sincronizarSilenciosamente,
+                intervaloFsyncMs, intervaloFsyncMs, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void registrarCliente(Cliente cliente) throws IOException {
+        abrirRegistro("cliente");
+        JsonUtil.appendCliente(json, cliente, 0);
+        fecharRegistro();
+    }
+
+    synchronized void registrarProduto(Produto produto) throws IOException {
+        abrirRegistro("produto");
+        JsonUtil.appendProduto(json, produto, 0);
+        fecharRegistro();
+    }
+
+    synchronized void registrarPedido(Pedido pedido) throws IOException {
+        abrirRegistro("pedido");
+        JsonUtil.appendPedido(json, pedido, 0);
+        fecharRegistro();
+    }
+
+    synchronized void registrarStatus(Pedido pedido, StatusPedido status) throws IOException {
+        abrirRegistro("status");
+        json.append('{');
+        json.campo(0, "pedidoId").append(pedido.getId()).append(',');
+        json.campo(0, "status").texto(status.name());
+        json.append('}');
+        fecharRegistro();
+    }
+
+    /** Passa a avançar o checkpoint da fila a cada fsync do journal. */
+    void setFilaDuravel(FilaDuravel filaDuravel) {
+        this.filaDuravel = filaDuravel;
+    }
+
+    /** Indica se o journal cresceu além do limite e vale a pena gravar um novo snapshot. */
+    synchronized boolean precisaCompactar() {
+        return tamanho >= limiteBytes;
+    }
+
+    /**
+     * Fecha o arquivo atual e o move para {@code <arquivo>.1}, abrindo um journal
+     * vazio. Se uma compactação anterior não terminou, o conteúdo atual é anexado
+     * ao rotacionado existente. Deve ser chamado antes de copiar o estado em
+     * memória que irá para o snapshot.
+     */
+    synchronized void rotacionar() throws IOException {
+        fecharArquivo();
+        if (Files.exists(rotacionado)) {
+            try (FileChannel destino = FileChannel.open(rotacionado, StandardOpenOption.APPEND);
+                 FileChannel origem = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                long copiados = 0;
+                long total = origem.size();
+                while (copiados < total) {
+                    copiados += origem.transferTo(copiados, total - copiados, destino);
+                }
+                destino.force(false);
+            }
+            Files.delete(arquivo);
+        } else {
+            Files.move(arquivo, rotacionado);
+        }
+        abrir();
+    }
+
+    /** Remove o journal rotacionado depois que o snapshot correspondente foi gravado. */
+    void descartarRotacionado() throws IOException {
+        Files.deleteIfExists(rotacionado);
+    }
+
+    /**
+     * Força a gravação em disco de tudo o que foi registrado até agora e avança o
+     * checkpoint da fila durável, se houver.
+     */
+    void sincronizar() throws IOException {
+        // Lida antes do fsync: o processador só confirma um pedido na fila depois de
+        // registrar o FINALIZADO aqui, então essas linhas estão cobertas pelo fsync abaixo
+        FilaDuravel fila = filaDuravel;
+        long confirmados = fila == null ? 0 : fila.posicaoConfirmada();
+        FileChannel alvo;
+        synchronized (this) {
+            alvo = pendente ? canal : null;
+            pendente = false;
+        }
+        // O fsync fica fora do bloqueio para não segurar quem está registrando
+        if (alvo != null) alvo.force(false);
+        if (fila != null) fila.avancarCheckpoint(confirmados);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sincronizador.shutdown();
+        FilaDuravel fila = filaDuravel;
+        long confirmados = fila == null ? 0 : fila.posicaoConfirmada();
+        synchronized (this) {
+            fecharArquivo();
+        }
+        if (fila != null) fila.avancarCheckpoint(confirmados);
+    }
+
+    /**
+     * Reaplica sobre {@code dados} os registros de {@code <arquivo>.1} e de
+     * {@code arquivo}, nessa ordem. Linhas ilegíveis (por exemplo, a última linha
+     * de um processo que caiu no meio da escrita) são ignoradas.
+     *
+     * @return quantidade de registros aplicados
+     */
+    static int reproduzir(Path arquivo, DadosPersistidos dados) throws IOException {
+        IndiceInt<Cliente> clientesPorId = new IndiceInt<>();
+        IndiceInt<Produto> produtosPorId = new IndiceInt<>();
+        IndiceInt<Pedido> pedidosPorId = new IndiceInt<>();
+        dados.clientes.forEach(c -> clientesPorId.colocar(c.getId(), c));
+        dados.produtos.forEach(p -> produtosPorId.colocar(p.getId(), p));
+        dados.pedidos.forEach(p -> pedidosPorId.colocar(p.getId(), p));
+
+        int aplicados = 0;
+        for (Path origem : new Path[] { rotacionadoDe(arquivo), arquivo }) {
+            if (!Files.exists(origem)) continue;
+            try (BufferedReader reader = Files.newBufferedReader(origem, StandardCharsets.UTF_8)) {
+                String linha;
+                while ((linha = reader.readLine()) != null) {
+                    if (linha.isBlank()) continue;
+                    try {
+                        aplicar(new JsonReader(new StringReader(linha)), dados, clientesPorId, produtosPorId, pedidosPorId);
+                        aplicados++;
+                    } catch (RuntimeException e) {
+                        System.out.println("Registro do journal ignorado: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return aplicados;
+    }
+
+    private static void aplicar(JsonReader json, DadosPersistidos dados, IndiceInt<Cliente> clientesPorId,
+                                IndiceInt<Produto> produtosPorId, IndiceInt<Pedido> pedidosPorId)
+            throws IOException {
+        json.beginObject();
+        String tipo = json.nextName();
+        switch (tipo) {
+            case "cliente" -> {
+                Cliente cliente = JsonUtil.lerCliente(json);
+                if (clientesPorId.colocarSeAusente(cliente.getId(), cliente) == null) dados.clientes.add(cliente);
+            }
+            case "produto" -> {
+                Produto produto = JsonUtil.lerProduto(json);
+                if (produtosPorId.colocarSeAusente(produto.getId(), produto) == null) dados.produtos.add(produto);
+            }
+            case "pedido" -> {
+                Pedido pedido = JsonUtil.lerPedido(json, clientesPorId, produtosPorId);
+                if (pedidosPorId.colocarSeAusente(pedido.getId(), pedido) == null) dados.pedidos.add(pedido);
+            }
+            case "status" -> {
+                int pedidoId = 0;
+                StatusPedido status = null;
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "pedidoId" -> pedidoId = json.nextInt();
+                        case "status" -> status = StatusPedido.valueOf(json.nextString());
+                        default -> json.skipValue();
+                    }
+                }
+                json.endObject();
+                Pedido pedido = pedidosPorId.buscar(pedidoId);
+                if (pedido == null) throw new IllegalArgumentException("Status para pedido inexistente: " + pedidoId);
+                pedido.setStatus(status);
+            }
+            default -> throw new IllegalArgumentException("Tipo de registro desconhecido: " + tipo);
+        }
+        json.endObject();
+    }
+
+    private static Path rotacionadoDe(Path arquivo) {
+        return arquivo.resolveSibling(arquivo.getFileName() + ".1");
+    }
+
+    private void abrirRegistro(String tipo) throws IOException {
+        if (writer == null) throw new IOException("Journal fechado");
+        json.append('{');
+        json.campo(0, tipo);
+    }
+
+    private void fecharRegistro() throws IOException {
+        json.append('}').append('\n');
+        writer.flush(); // uma única escrita por registro; o fsync fica para o lote
+        pendente = true;
+    }
+
+    private void abrir() throws IOException {
+        // Se a última linha ficou pela metade (queda durante a escrita), começa em uma linha nova
+        boolean quebrarLinha = false;
+        if (Files.exists(arquivo) && Files.size(arquivo) > 0) {
+            try (RandomAccessFile existente = new RandomAccessFile(arquivo.toFile(), "r")) {
+                existente.seek(existente.length() - 1);
+                quebrarLinha = existente.read() != '\n';
+            }
+        }
+        saida = new FileOutputStream(arquivo.toFile(), true);
+        canal = saida.getChannel();
+        // Contagem aproximada em caracteres, suficiente para decidir a compactação
+        tamanho = canal.size();
+        writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 64 * 1024) {
+            @Override
+            public void write(String texto, int inicio, int quantidade) throws IOException {
+                super.write(texto, inicio, quantidade);
+                tamanho += quantidade;
+            }
+
+            @Override
+            public void write(int c) throws IOException {
+                super.write(c);
+                tamanho++;
+            }
+        };
+        json = new JsonUtil.Saida(writer, true);
+        if (quebrarLinha) {
+            writer.write('\n');
+            pendente = true;
+        }
+    }
+
+    private void fecharArquivo() throws IOException {
+        if (writer == null) return;
+        writer.flush();
+        canal.force(false);
+        writer.close();
+        writer = null;
+        json = null;
+        pendente = false;
+    }
+
+    private void sincronizarSilenciosamente() {
+        try {
+            sincronizar();
+        } catch (ClosedChannelException e) {
+            // O arquivo foi rotacionado entre o flush e o fsync; o fechamento já sincronizou
+        } catch (IOException e) {
+            System.out.println("Falha ao sincronizar o journal: " + e.getMessage());
+        }
+    }
+}
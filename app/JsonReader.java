@@ -0,0 +1,417 @@
+package app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Leitor JSON em modo "pull": percorre o texto token a token diretamente de um
+ * {@link Reader}, usando um buffer fixo, sem montar a árvore de
+ * {@code Map}/{@code List} nem carregar o documento inteiro na memória.
+ *
+ * <p>Quem usa o leitor conduz a leitura: abre objetos/arrays, pergunta se há
+ * próximo elemento com {@link #hasNext()} e consome nomes e valores com os
+ * métodos {@code next*}. Valores desconhecidos podem ser ignorados com
+ * {@link #skipValue()}. Vários valores no nível raiz são aceitos em sequência,
+ * o que permite ler arquivos NDJSON com a mesma instância.
+ */
+final class JsonReader implements Closeable {
+
+    /** Tipos de token que podem aparecer na posição atual. */
+    enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT
+    }
+
+    private static final int TAMANHO_BUFFER = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[TAMANHO_BUFFER];
+    private int pos;
+    private int limite;
+    private long consumidos; // caracteres descartados de buffers anteriores (para mensagens de erro)
+
+    // Pilha de contêineres abertos: true = objeto, false = array
+    private boolean[] emObjeto = new boolean[32];
+    // Se o contêiner já teve algum elemento (para exigir a vírgula seguinte)
+    private boolean[] temElemento = new boolean[32];
+    private int profundidade;
+    private boolean nomeLido;
+    private boolean virgulaLida;
+
+    private final StringBuilder texto = new StringBuilder();
+
+    JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    /** Abre um objeto JSON ({@code '{'}). */
+    void beginObject() throws IOException {
+        antesDeValor();
+        esperar('{');
+        empilhar(true);
+    }
+
+    /** Fecha o objeto JSON atual ({@code '}'}). */
+    void endObject() throws IOException {
+        pularEspacos();
+        esperar('}');
+        desempilhar(true);
+    }
+
+    /** Abre um array JSON ({@code '['}). */
+    void beginArray() throws IOException {
+        antesDeValor();
+        esperar('[');
+        empilhar(false);
+    }
+
+    /** Fecha o array JSON atual ({@code ']'}). */
+    void endArray() throws IOException {
+        pularEspacos();
+        esperar(']');
+        desempilhar(false);
+    }
+
+    /**
+     * Indica se o contêiner atual ainda tem elementos (ou, no nível raiz, se o
+     * documento tem mais valores).
+     */
+    boolean hasNext() throws IOException {
+        consumirVirgula();
+        int c = espiar();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /** Lê o nome do próximo campo do objeto atual, consumindo o {@code ':'}. */
+    String nextName() throws IOException {
+        if (profundidade == 0 || !emObjeto[profundidade - 1]) {
+            throw erro("Nome de campo fora de um objeto");
+        }
+        separarElemento();
+        String nome = lerString();
+        pularEspacos();
+        esperar(':');
+        nomeLido = true;
+        return nome;
+    }
+
+    /** Tipo do próximo token, sem consumi-lo. */
+    Token peek() throws IOException {
+        consumirVirgula();
+        return switch (espiar()) {
+            case -1 -> Token.END_DOCUMENT;
+            case '{' -> Token.BEGIN_OBJECT;
+            case '}' -> Token.END_OBJECT;
+            case '[' -> Token.BEGIN_ARRAY;
+            case ']' -> Token.END_ARRAY;
+            case '"' -> Token.STRING;
+            case 't', 'f' -> Token.BOOLEAN;
+            case 'n' -> Token.NULL;
+            default -> Token.NUMBER;
+        };
+    }
+
+    String nextString() throws IOException {
+        antesDeValor();
+        return lerString();
+    }
+
+    /** Lê um número inteiro sem criar texto intermediário. */
+    int nextInt() throws IOException {
+        long valor = nextLong();
+        if (valor > Integer.MAX_VALUE || valor < Integer.MIN_VALUE) {
+            throw erro("Número fora do intervalo de int: " + valor);
+        }
+        return (int) valor;
+    }
+
+    /** Lê um número inteiro; valores com parte decimal ou expoente são truncados. */
+    long nextLong() throws IOException {
+        antesDeValor();
+        boolean negativo = false;
+        if (espiar() == '-') {
+            negativo = true;
+            pos++;
+        }
+        long valor = 0;
+        int digitos = 0;
+        int c;
+        while ((c = espiar()) >= '0' && c <= '9') {
+            valor = valor * 10 + (c - '0');
+            digitos++;
+            pos++;
+        }
+        if (digitos == 0) throw erro("Número esperado");
+        if (c == '.' || c == 'e' || c == 'E') {
+            // Raro nos dados do sistema: recorre à leitura decimal completa
+            texto.setLength(0);
+            if (negativo) texto.append('-');
+            texto.append(valor);
+            lerRestoDecimal();
+            return (long) Double.parseDouble(texto.toString());
+        }
+        return negativo ? -valor : valor;
+    }
+
+    double nextDouble() throws IOException {
+        antesDeValor();
+        texto.setLength(0);
+        if (espiar() == '-') {
+            texto.append('-');
+            pos++;
+        }
+        int c;
+        while ((c = espiar()) >= '0' && c <= '9') {
+            texto.append((char) c);
+            pos++;
+        }
+        lerRestoDecimal();
+        if (texto.length() == 0) throw erro("Número esperado");
+        return Double.parseDouble(texto.toString());
+    }
+
+    boolean nextBoolean() throws IOException {
+        antesDeValor();
+        if (espiar() == 't') {
+            esperarLiteral("true");
+            return true;
+        }
+        esperarLiteral("false");
+        return false;
+    }
+
+    void nextNull() throws IOException {
+        antesDeValor();
+        esperarLiteral("null");
+    }
+
+    /** Descarta o próximo valor, inclusive objetos e arrays aninhados. */
+    void skipValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT -> {
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+            }
+            case BEGIN_ARRAY -> {
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+            }
+            case STRING -> {
+                antesDeValor();
+                pularString();
+            }
+            case BOOLEAN -> nextBoolean();
+            case NULL -> nextNull();
+            case NUMBER -> nextDouble();
+            default -> throw erro("Valor esperado");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ----------------------------------------------------------------------
+    // Controle de estrutura
+    // ----------------------------------------------------------------------
+
+    /** Trata a vírgula entre elementos de arrays e a associação nome → valor em objetos. */
+    private void antesDeValor() throws IOException {
+        pularEspacos();
+        if (profundidade == 0) return;
+        if (emObjeto[profundidade - 1]) {
+            if (!nomeLido) throw erro("Nome de campo esperado");
+            nomeLido = false;
+            pularEspacos();
+        } else {
+            separarElemento();
+        }
+    }
+
+    private void separarElemento() throws IOException {
+        consumirVirgula();
+        int topo = profundidade - 1;
+        if (temElemento[topo]) {
+            if (!virgulaLida) throw erro("Esperado ','");
+            virgulaLida = false;
+        }
+        temElemento[topo] = true;
+    }
+
+    /**
+     * Consome antecipadamente a vírgula que separa elementos, permitindo que
+     * {@link #hasNext()} e {@link #peek()} enxerguem o próximo valor.
+     */
+    private void consumirVirgula() throws IOException {
+        pularEspacos();
+        if (profundidade == 0 || virgulaLida || nomeLido || !temElemento[profundidade - 1]) return;
+        if (espiar() == ',') {
+            pos++;
+            virgulaLida = true;
+            pularEspacos();
+        }
+    }
+
+    private void empilhar(boolean objeto) {
+        if (profundidade == emObjeto.length) {
+            emObjeto = Arrays.copyOf(emObjeto, profundidade * 2);
+            temElemento = Arrays.copyOf(temElemento, profundidade * 2);
+        }
+        emObjeto[profundidade] = objeto;
+        temElemento[profundidade] = false;
+        profundidade++;
+    }
+
+    private void desempilhar(boolean objeto) {
+        if (profundidade == 0 || emObjeto[profundidade - 1] != objeto || virgulaLida || nomeLido) {
+            throw erro("Fechamento inesperado de " + (objeto ? "objeto" : "array"));
+        }
+        profundidade--;
+    }
+
+    // ----------------------------------------------------------------------
+    // Leitura de caracteres
+    // ----------------------------------------------------------------------
+
+    private String lerString() throws IOException {
+        esperar('"');
+        texto.setLength(0);
+        while (true) {
+            if (pos >= limite && !preencher()) throw erro("String não terminada");
+            // Copia em bloco o trecho sem aspas nem escapes
+            int inicio = pos;
+            while (pos < limite) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') break;
+                pos++;
+            }
+            texto.append(buffer, inicio, pos - inicio);
+            if (pos >= limite) continue;
+
+            char c = buffer[pos++];
+            if (c == '"') return texto.toString();
+            texto.append(lerEscape());
+        }
+    }
+
+    private void pularString() throws IOException {
+        esperar('"');
+        while (true) {
+            int c = ler();
+            if (c == -1) throw erro("String não terminada");
+            if (c == '"') return;
+            if (c == '\\') lerEscape();
+        }
+    }
+
+    private char lerEscape() throws IOException {
+        int esc = ler();
+        return switch (esc) {
+            case '"', '\\', '/' -> (char) esc;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'u' -> {
+                int valor = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digito = Character.digit(ler(), 16);
+                    if (digito < 0) throw erro("Escape unicode inválido");
+                    valor = (valor << 4) | digito;
+                }
+                yield (char) valor;
+            }
+            default -> throw erro("Escape inválido: \\" + (char) esc);
+        };
+    }
+
+    /** Completa em {@link #texto} a parte decimal e o expoente de um número. */
+    private void lerRestoDecimal() throws IOException {
+        int c = espiar();
+        if (c == '.') {
+            texto.append('.');
+            pos++;
+            while ((c = espiar()) >= '0' && c <= '9') {
+                texto.append((char) c);
+                pos++;
+            }
+        }
+        if (c == 'e' || c == 'E') {
+            texto.append('e');
+            pos++;
+            c = espiar();
+            if (c == '+' || c == '-') {
+                texto.append((char) c);
+                pos++;
+            }
+            while ((c = espiar()) >= '0' && c <= '9') {
+                texto.append((char) c);
+                pos++;
+            }
+        }
+    }
+
+    private void esperarLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (ler() != literal.charAt(i)) throw erro("Literal '" + literal + "' esperado");
+        }
+    }
+
+    private void esperar(char esperado) throws IOException {
+        if (espiar() != esperado) {
+            throw erro("Esperado '" + esperado + "'");
+        }
+        pos++;
+    }
+
+    private void pularEspacos() throws IOException {
+        while (true) {
+            if (pos >= limite && !preencher()) return;
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return;
+            pos++;
+        }
+    }
+
+    private int espiar() throws IOException {
+        if (pos >= limite && !preencher()) return -1;
+        return buffer[pos];
+    }
+
+    private int ler() throws IOException {
+        if (pos >= limite && !preencher()) return -1;
+        return buffer[pos++];
+    }
+
+    private boolean preencher() throws IOException {
+        consumidos += limite;
+        pos = 0;
+        limite = 0;
+        int lidos = in.read(buffer, 0, buffer.length);
+        if (lidos <= 0) return false;
+        limite = lidos;
+        return true;
+    }
+
+    private IllegalArgumentException erro(String mensagem) {
+        return new IllegalArgumentException(mensagem + " em " + (consumidos + pos));
+    }
+}
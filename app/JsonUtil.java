@@ -0,0 +1,493 @@
+package app;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe responsável por converter os dados do sistema para JSON e o contrário (JSON → objetos).
+ * Faz isso manualmente, sem depender de bibliotecas externas como Gson ou Jackson.
+ *
+ * A leitura é feita em streaming com {@link JsonReader}: os objetos Cliente, Produto e Pedido
+ * são criados diretamente enquanto o arquivo é lido, sem guardar o texto inteiro nem uma árvore
+ * intermediária de mapas e listas. A escrita segue a mesma ideia: o texto vai direto para o
+ * Writer de destino, com opção de formato compacto (sem indentação).
+ *
+ * Formatos:
+ * - versão 1 (sem o campo "versao"): cada pedido embute o cliente completo e cada item o produto completo;
+ * - versão 2 (atual): pedidos guardam só "clienteId" e itens só "produtoId", referenciando as listas
+ *   "clientes" e "produtos", que por isso vêm antes de "pedidos" no arquivo.
+ * A leitura aceita as duas versões.
+ */
+final class JsonUtil {
+
+    /** Versão do formato gravada no campo "versao". */
+    static final int VERSAO_ATUAL = 2;
+
+    private JsonUtil() {
+        // Classe utilitária: não deve ser instanciada
+    }
+
+    /**
+     * Escreve as listas de clientes, produtos e pedidos em JSON diretamente no {@code destino},
+     * sem montar o documento inteiro em memória. Quem chama deve usar um Writer com buffer.
+     *
+     * @param compacto se {@code true}, omite quebras de linha e indentação
+     */
+    static void toJson(DadosPersistidos dados, Writer destino, boolean compacto) throws IOException {
+        Saida out = new Saida(destino, compacto);
+        out.append('{'); // começa o objeto JSON
+        out.campo(1, "versao").append(VERSAO_ATUAL).append(',');
+        appendClientes(out, dados.clientes, 1); // escreve a parte dos clientes
+        out.append(',');
+        appendProdutos(out, dados.produtos, 1); // escreve a parte dos produtos
+        out.append(',');
+        appendPedidos(out, dados.pedidos, 1);   // escreve a parte dos pedidos
+        out.linha(0).append('}'); // fecha o JSON
+    }
+
+    /**
+     * Transforma as listas de clientes, produtos e pedidos em texto JSON indentado.
+     * Útil para volumes pequenos; para arquivos use {@link #toJson(DadosPersistidos, Writer, boolean)}.
+     */
+    static String toJson(DadosPersistidos dados) {
+        StringWriter texto = new StringWriter();
+        try {
+            toJson(dados, texto, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter não lança IOException
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Faz o caminho inverso: lê o JSON do {@code reader} e recria os objetos (clientes, produtos e pedidos).
+     * Devolve {@code null} se o conteúdo estiver vazio.
+     */
+    static DadosPersistidos fromJson(Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+
+        // Se o texto estiver vazio, não há o que carregar
+        if (json.peek() == JsonReader.Token.END_DOCUMENT) {
+            return null;
+        }
+        if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            throw new IllegalArgumentException("JSON deve representar um objeto");
+        }
+
+        // Mapas para ligar os pedidos aos clientes e produtos já lidos
+        IndiceInt<Cliente> clientesPorId = new IndiceInt<>();
+        IndiceInt<Produto> produtosPorId = new IndiceInt<>();
+
+        DadosPersistidos dados = new DadosPersistidos();
+        dados.clientes = new ArrayList<>();
+        dados.produtos = new ArrayList<>();
+        dados.pedidos = new ArrayList<>();
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String campo = json.nextName();
+            if (json.peek() == JsonReader.Token.NULL) {
+                json.nextNull(); // lista ausente conta como vazia
+                continue;
+            }
+            switch (campo) {
+                case "versao" -> {
+                    int versao = json.nextInt();
+                    if (versao > VERSAO_ATUAL) {
+                        throw new IllegalArgumentException("Versão de dados não suportada: " + versao);
+                    }
+                }
+                case "clientes" -> lerClientes(json, dados.clientes, clientesPorId);
+                case "produtos" -> lerProdutos(json, dados.produtos, produtosPorId);
+                case "pedidos" -> lerPedidos(json, dados.pedidos, clientesPorId, produtosPorId);
+                default -> json.skipValue(); // campos desconhecidos são ignorados
+            }
+        }
+        json.endObject();
+        return dados;
+    }
+
+    /** Lê o array de clientes, criando cada Cliente assim que seu objeto termina. */
+    private static void lerClientes(JsonReader json, List<Cliente> clientes, IndiceInt<Cliente> porId)
+            throws IOException {
+        exigirLista(json, "clientes");
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                json.skipValue(); // ignora se não for um objeto
+                continue;
+            }
+            Cliente cliente = lerCliente(json);
+            clientes.add(cliente);
+            porId.colocar(cliente.getId(), cliente);
+        }
+        json.endArray();
+    }
+
+    /** Lê o array de produtos, criando cada Produto assim que seu objeto termina. */
+    private static void lerProdutos(JsonReader json, List<Produto> produtos, IndiceInt<Produto> porId)
+            throws IOException {
+        exigirLista(json, "produtos");
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                json.skipValue();
+                continue;
+            }
+            Produto produto = lerProduto(json);
+            produtos.add(produto);
+            porId.colocar(produto.getId(), produto);
+        }
+        json.endArray();
+    }
+
+    /**
+     * Lê o array de pedidos. Clientes e produtos embutidos são ligados aos objetos já
+     * carregados pelo ID; só são criados novos se não existirem nas listas principais.
+     */
+    private static void lerPedidos(JsonReader json, List<Pedido> pedidos,
+                                   IndiceInt<Cliente> clientesPorId, IndiceInt<Produto> produtosPorId)
+            throws IOException {
+        exigirLista(json, "pedidos");
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                json.skipValue();
+                continue;
+            }
+            pedidos.add(lerPedido(json, clientesPorId, produtosPorId));
+        }
+        json.endArray();
+    }
+
+    static Pedido lerPedido(JsonReader json, IndiceInt<Cliente> clientesPorId,
+                                    IndiceInt<Produto> produtosPorId) throws IOException {
+        int id = 0;
+        long criadoEm = 0; // ausente em arquivos antigos
+        Cliente cliente = null;
+        StatusPedido status = null;
+        List<ItemPedido> itens = new ArrayList<>();
+
+        // Os campos podem vir em qualquer ordem; o Pedido só é montado no final
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> id = json.nextInt();
+                case "criadoEm" -> criadoEm = json.nextLong();
+                case "cliente" -> cliente = lerCliente(json, clientesPorId);            // versão 1
+                case "clienteId" -> cliente = buscar(clientesPorId, json.nextInt(), "cliente"); // versão 2
+                case "itens" -> lerItens(json, itens, produtosPorId);
+                case "status" -> status = StatusPedido.valueOf(json.nextString().toUpperCase());
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        Pedido pedido = new Pedido(id, cliente);
+        pedido.setCriadoEm(criadoEm);
+        if (status != null) pedido.setStatus(status);
+        itens.forEach(pedido::adicionarItem);
+        return pedido;
+    }
+
+    private static void lerItens(JsonReader json, List<ItemPedido> itens, IndiceInt<Produto> produtosPorId)
+            throws IOException {
+        if (json.peek() != JsonReader.Token.BEGIN_ARRAY) {
+            json.skipValue();
+            return;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                json.skipValue();
+                continue;
+            }
+            Produto produto = null;
+            int quantidade = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "produto" -> produto = lerProduto(json, produtosPorId);            // versão 1
+                    case "produtoId" -> produto = buscar(produtosPorId, json.nextInt(), "produto"); // versão 2
+                    case "quantidade" -> quantidade = json.nextInt();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            itens.add(new ItemPedido(produto, quantidade));
+        }
+        json.endArray();
+    }
+
+    /** Resolve uma referência por ID da versão 2; a entidade precisa ter sido lida antes. */
+    private static <T> T buscar(IndiceInt<T> porId, int id, String tipo) {
+        T entidade = porId.buscar(id);
+        if (entidade == null) {
+            throw new IllegalArgumentException("Pedido referencia " + tipo + " inexistente: " + id);
+        }
+        return entidade;
+    }
+
+    /** Lê um objeto cliente e devolve a instância já carregada com o mesmo ID, se houver. */
+    static Cliente lerCliente(JsonReader json, IndiceInt<Cliente> clientesPorId) throws IOException {
+        Cliente lido = lerCliente(json);
+        Cliente existente = clientesPorId.buscar(lido.getId());
+        return existente != null ? existente : lido;
+    }
+
+    /** Lê um objeto produto e devolve a instância já carregada com o mesmo ID, se houver. */
+    static Produto lerProduto(JsonReader json, IndiceInt<Produto> produtosPorId) throws IOException {
+        Produto lido = lerProduto(json);
+        Produto existente = produtosPorId.buscar(lido.getId());
+        return existente != null ? existente : lido;
+    }
+
+    static Cliente lerCliente(JsonReader json) throws IOException {
+        int id = 0;
+        String nome = null;
+        String email = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> id = json.nextInt();
+                case "nome" -> nome = json.nextString();
+                case "email" -> email = json.nextString();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new Cliente(id, nome, email);
+    }
+
+    static Produto lerProduto(JsonReader json) throws IOException {
+        int id = 0;
+        String nome = null;
+        double preco = 0;
+        Categoria categoria = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> id = json.nextInt();
+                case "nome" -> nome = json.nextString();
+                case "preco" -> preco = json.nextDouble();
+                case "categoria" -> categoria = Categoria.valueOf(json.nextString().toUpperCase());
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new Produto(id, nome, preco, categoria);
+    }
+
+    /** Garante que o campo seja um array (mesma regra do formato anterior). */
+    private static void exigirLista(JsonReader json, String chave) throws IOException {
+        if (json.peek() != JsonReader.Token.BEGIN_ARRAY) {
+            throw new IllegalArgumentException("Campo " + chave + " deve ser uma lista");
+        }
+    }
+
+    /** Escreve a parte dos clientes no JSON. */
+    private static void appendClientes(Saida out, List<Cliente> clientes, int nivel) throws IOException {
+        out.campo(nivel, "clientes").append('['); // abre o campo "clientes"
+
+        // Se houver clientes cadastrados, escreve um por um
+        if (clientes != null && !clientes.isEmpty()) {
+            for (int i = 0; i < clientes.size(); i++) {
+                out.linha(nivel + 1);
+                appendCliente(out, clientes.get(i), nivel + 1);
+                if (i < clientes.size() - 1) out.append(','); // adiciona vírgula se não for o último
+            }
+            out.linha(nivel);
+        }
+        out.append(']');
+    }
+
+    /** Escreve a parte dos produtos no JSON. */
+    private static void appendProdutos(Saida out, List<Produto> produtos, int nivel) throws IOException {
+        out.campo(nivel, "produtos").append('[');
+        if (produtos != null && !produtos.isEmpty()) {
+            for (int i = 0; i < produtos.size(); i++) {
+                out.linha(nivel + 1);
+                appendProduto(out, produtos.get(i), nivel + 1);
+                if (i < produtos.size() - 1) out.append(',');
+            }
+            out.linha(nivel);
+        }
+        out.append(']');
+    }
+
+    /** Escreve a lista de pedidos no formato JSON. */
+    private static void appendPedidos(Saida out, List<Pedido> pedidos, int nivel) throws IOException {
+        // Começa o campo "pedidos" no JSON
+        out.campo(nivel, "pedidos").append('[');
+
+        // Verifica se há pedidos para salvar
+        if (pedidos != null && !pedidos.isEmpty()) {
+            // Percorre cada pedido da lista
+            for (int i = 0; i < pedidos.size(); i++) {
+                out.linha(nivel + 1);
+                appendPedido(out, pedidos.get(i), nivel + 1);
+                if (i < pedidos.size() - 1) out.append(','); // vírgula entre pedidos
+            }
+            out.linha(nivel);
+        }
+        out.append(']');
+    }
+
+    /** Escreve um cliente como objeto JSON. */
+    static void appendCliente(Saida out, Cliente c, int nivel) throws IOException {
+        out.append('{');
+        out.campo(nivel + 1, "id").append(c.getId()).append(',');
+        out.campo(nivel + 1, "nome").texto(c.getNome()).append(',');
+        out.campo(nivel + 1, "email").texto(c.getEmail());
+        out.linha(nivel).append('}');
+    }
+
+    /** Escreve um produto como objeto JSON. */
+    static void appendProduto(Saida out, Produto p, int nivel) throws IOException {
+        out.append('{');
+        out.campo(nivel + 1, "id").append(p.getId()).append(',');
+        out.campo(nivel + 1, "nome").texto(p.getNome()).append(',');
+        out.campo(nivel + 1, "preco").append(p.getPreco()).append(',');
+        out.campo(nivel + 1, "categoria").texto(p.getCategoria().name());
+        out.linha(nivel).append('}');
+    }
+
+    /**
+     * Escreve um pedido como objeto JSON, com o ID do cliente,
+     * os itens comprados (ID do produto e quantidade) e o status do pedido.
+     */
+    static void appendPedido(Saida out, Pedido pedido, int nivel) throws IOException {
+        // Abre um novo objeto JSON para o pedido
+        out.append('{');
+        out.campo(nivel + 1, "id").append(pedido.getId()).append(',');
+        out.campo(nivel + 1, "criadoEm").append(pedido.getCriadoEm()).append(',');
+
+        // Referencia o cliente pelo ID (os dados completos estão em "clientes")
+        out.campo(nivel + 1, "clienteId").append(pedido.getCliente().getId()).append(',');
+
+        // Adiciona os itens comprados dentro do pedido
+        out.campo(nivel + 1, "itens").append('[');
+        List<ItemPedido> itens = pedido.getItens();
+        if (!itens.isEmpty()) {
+            // Para cada item dentro do pedido
+            for (int j = 0; j < itens.size(); j++) {
+                ItemPedido item = itens.get(j);
+
+                out.linha(nivel + 2).append('{');
+                // Referencia o produto pelo ID (os dados completos estão em "produtos")
+                out.campo(nivel + 3, "produtoId").append(item.getProduto().getId()).append(',');
+
+                // Adiciona a quantidade do produto comprada
+                out.campo(nivel + 3, "quantidade").append(item.getQuantidade());
+                out.linha(nivel + 2).append('}');
+                if (j < itens.size() - 1) out.append(','); // Adiciona vírgula se não for o último item
+            }
+            out.linha(nivel + 1);
+        }
+        out.append(']');
+
+        // Adiciona o status (FILA, PROCESSANDO, FINALIZADO)
+        out.append(',');
+        out.campo(nivel + 1, "status").texto(pedido.getStatus().name());
+        out.linha(nivel).append('}');
+    }
+
+    /**
+     * Destino da escrita: repassa o texto direto para o Writer e cuida da indentação
+     * (dois espaços por nível) ou da sua omissão no modo compacto.
+     */
+    static final class Saida {
+        private static final String ESPACOS = " ".repeat(64);
+
+        private final Writer out;
+        private final boolean compacto;
+
+        Saida(Writer out, boolean compacto) {
+            this.out = out;
+            this.compacto = compacto;
+        }
+
+        /** Quebra a linha e indenta até o nível informado (nada no modo compacto). */
+        Saida linha(int nivel) throws IOException {
+            if (compacto) return this;
+            out.write('\n');
+            int espacos = nivel * 2;
+            while (espacos > 0) {
+                int parte = Math.min(espacos, ESPACOS.length());
+                out.write(ESPACOS, 0, parte);
+                espacos -= parte;
+            }
+            return this;
+        }
+
+        /** Começa uma nova linha com o nome do campo: {@code "nome": }. */
+        Saida campo(int nivel, String nome) throws IOException {
+            linha(nivel);
+            out.write('"');
+            out.write(nome);
+            out.write(compacto ? "\":" : "\": ");
+            return this;
+        }
+
+        Saida append(char c) throws IOException {
+            out.write(c);
+            return this;
+        }
+
+        Saida append(int valor) throws IOException {
+            out.write(Integer.toString(valor));
+            return this;
+        }
+
+        /** Escreve o texto como está, sem aspas (números já formatados, {@code null}). */
+        Saida literal(String valor) throws IOException {
+            out.write(valor);
+            return this;
+        }
+
+        Saida append(long valor) throws IOException {
+            out.write(Long.toString(valor));
+            return this;
+        }
+
+        Saida append(double valor) throws IOException {
+            out.write(Double.toString(valor));
+            return this;
+        }
+
+        /**
+         * Escreve um texto entre aspas, garantindo que ele não tenha caracteres que
+         * possam quebrar o formato JSON (aspas, barras, quebras de linha).
+         * Trechos sem caracteres especiais são copiados de uma vez.
+         */
+        Saida texto(String valor) throws IOException {
+            out.write('"');
+            if (valor != null) {
+                int inicio = 0;
+                for (int i = 0; i < valor.length(); i++) {
+                    String escape = switch (valor.charAt(i)) {
+                        case '\\' -> "\\\\"; // barra invertida vira \\
+                        case '"' -> "\\\"";  // aspas duplas viram \"
+                        case '\n' -> "\\n";  // quebra de linha vira \n
+                        case '\r' -> "\\r";  // retorno de carro vira \r
+                        case '\t' -> "\\t";  // tabulação vira \t
+                        default -> null;     // outros caracteres ficam iguais
+                    };
+                    if (escape != null) {
+                        out.write(valor, inicio, i - inicio);
+                        out.write(escape);
+                        inicio = i + 1;
+                    }
+                }
+                out.write(valor, inicio, valor.length() - inicio);
+            }
+            out.write('"');
+            return this;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package app;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Semáforo assíncrono: limita quantas tarefas assíncronas rodam ao mesmo
+ * tempo sem bloquear nenhuma thread. Tarefas além do limite ficam em uma fila
+ * e são iniciadas, pelo executor, assim que uma vaga é liberada; a vaga só é
+ * liberada quando o {@link CompletableFuture} da tarefa termina.
+ *
+ * <p>Quem recebe o resultado pode encerrá-lo antes (por exemplo, com
+ * {@code orTimeout}): a tarefa que ainda esperava vaga é descartada sem rodar,
+ * e o futuro da que já começou é cancelado, liberando a vaga. Assim uma etapa
+ * que estourou o prazo não é executada depois de o pedido já ter falhado.
+ */
+final class LimiteConcorrencia {
+    private final int maximo;
+    private final Executor executor;
+    private final AtomicInteger emUso = new AtomicInteger();
+    private final Queue<Runnable> aguardando = new ConcurrentLinkedQueue<>();
+
+    LimiteConcorrencia(int maximo, Executor executor) {
+        if (maximo <= 0) throw new IllegalArgumentException("Limite de concorrência deve ser positivo");
+        this.maximo = maximo;
+        this.executor = executor;
+    }
+
+    /**
+     * Agenda a tarefa; o resultado completa junto com o futuro devolvido por ela.
+     * Se o resultado terminar com erro antes, a tarefa não roda ou tem o futuro cancelado.
+     */
+    <T> CompletableFuture<T> executar(Supplier<CompletableFuture<T>> tarefa) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        aguardando.add(() -> {
+            if (resultado.isDone()) {
+                // Expirou ou foi cancelado enquanto esperava vaga: devolve a vaga sem rodar
+                emUso.decrementAndGet();
+                liberarAguardando();
+                return;
+            }
+            CompletableFuture<T> futuro;
+            try {
+                futuro = tarefa.get();
+            } catch (RuntimeException e) {
+                futuro = CompletableFuture.failedFuture(e);
+            }
+            futuro.whenComplete((valor, erro) -> {
+                emUso.decrementAndGet();
+                liberarAguardando();
+                if (erro != null) resultado.completeExceptionally(erro);
+                else resultado.complete(valor);
+            });
+            CompletableFuture<T> iniciado = futuro;
+            resultado.whenComplete((valor, erro) -> {
+                if (erro != null) iniciado.cancel(false);
+            });
+        });
+        liberarAguardando();
+        return resultado;
+    }
+
+    /** Quantidade de tarefas em execução neste momento. */
+    int getEmUso() {
+        return emUso.get();
+    }
+
+    /** Quantidade de tarefas esperando vaga. */
+    int getAguardando() {
+        return aguardando.size();
+    }
+
+    /**
+     * Inicia tarefas enquanto houver vaga e fila. Quem enfileira e quem libera
+     * chamam este método depois de alterar o próprio estado, então nenhuma
+     * tarefa fica esquecida na fila com vaga disponível.
+     */
+    private void liberarAguardando() {
+        while (!aguardando.isEmpty()) {
+            int atual = emUso.get();
+            if (atual >= maximo) return;
+            if (!emUso.compareAndSet(atual, atual + 1)) continue;
+            Runnable proxima = aguardando.poll();
+            if (proxima == null) {
+                emUso.decrementAndGet(); // outra thread levou a tarefa; devolve a vaga
+                continue;
+            }
+            executor.execute(proxima);
+        }
+    }
+}
@@ -1,7 +1,21 @@
 package app; // Diz que este arquivo faz parte do pacote "app" (como uma pasta organizada de arquivos Java)
 
 import java.io.*; // Importa ferramentas para ler e escrever arquivos (usado para salvar os dados)
+import java.nio.file.Files; // Usado para trocar o arquivo salvo de forma atômica
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException; // Datas dos filtros da exportação
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*; // Importa listas, mapas e o Scanner (para entrada do usuário)
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService; // Executores da compactação do journal e das etapas do PIPELINE
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future; // Gravação e leitura das partições do snapshot em paralelo
+import java.util.concurrent.TimeUnit; // Unidade de tempo usada ao aguardar o encerramento do processador
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Classe principal (ponto de entrada do programa).
@@ -10,21 +24,110 @@ import java.util.*; // Importa listas, mapas e o Scanner (para entrada do usuár
  */
 public class Main {
 
-    // Essas três listas guardam os dados em memória enquanto o programa está aberto
-    private static List<Cliente> clientes = new ArrayList<>(); // lista com todos os clientes
-    private static List<Produto> produtos = new ArrayList<>(); // lista com todos os produtos
-    private static List<Pedido> pedidos = new ArrayList<>();   // lista com todos os pedidos
+    // Esses três repositórios guardam os dados em memória enquanto o programa está aberto.
+    // Cada um mantém a ordem de cadastro e um índice por ID, então buscar e cadastrar
+    // não ficam mais lentos conforme o catálogo cresce. São seguros para várias threads:
+    // o menu cadastra, os workers do processador leem e a compactação tira cópias.
+    private static Repositorio<Cliente> clientes = new Repositorio<>(); // todos os clientes
+    private static Repositorio<Produto> produtos = new Repositorio<>(); // todos os produtos
+    private static Repositorio<Pedido> pedidos = new Repositorio<>();   // todos os pedidos
+
+    // Esse objeto é responsável por "processar" os pedidos em segundo plano (threads separadas).
+    // Pode ser configurado na linha de comando, por exemplo:
+    //   java -Dpedidos.modo=VIRTUAL -Dpedidos.workers=8 -Dpedidos.tempoMs=3000 -cp out app.Main
+    // No modo VIRTUAL, "workers" é quantos lotes podem estar em threads virtuais ao mesmo tempo.
+    // No modo PIPELINE, "workers" é quantos pedidos podem estar nas etapas ao mesmo tempo.
+    // No modo PARTICIONADO, "workers" é em quantas partições a fila é dividida (pelo ID do
+    // cliente), cada uma com uma única thread: os pedidos de um cliente saem sempre em ordem.
+    private static PedidoProcessor processor = new PedidoProcessor(
+            PedidoProcessor.Modo.valueOf(System.getProperty("pedidos.modo", "POOL").toUpperCase()),
+            Integer.getInteger("pedidos.workers", Runtime.getRuntime().availableProcessors()),
+            Long.getLong("pedidos.tempoMs", PedidoProcessor.TEMPO_PROCESSAMENTO_PADRAO_MS),
+            criarFila());
+
+    // Totais de vendas atualizados a cada pedido criado e a cada mudança de status,
+    // para que o relatório não precise percorrer todos os pedidos
+    private static final AgregadosVendas agregados = new AgregadosVendas();
+
+    // Índices dos pedidos por cliente, produto e status, para consultas sem percorrer todos os pedidos
+    private static final IndicePedidos indicePedidos = new IndicePedidos();
+
+    // Índices de busca por palavras: produtos pelo nome e clientes pelo nome e e-mail
+    private static final IndiceBusca<Produto> buscaProdutos = new IndiceBusca<>(p -> List.of(p.getNome()));
+    private static final IndiceBusca<Cliente> buscaClientes =
+            new IndiceBusca<>(c -> List.of(c.getNome(), c.getEmail()));
+
+    // Threads das etapas do modo PIPELINE; encerradas junto com o processador
+    private static ExecutorService executorPipeline;
 
-    // Esse objeto é responsável por "processar" os pedidos em segundo plano (thread separada)
-    private static PedidoProcessor processor = new PedidoProcessor();
+    /**
+     * Monta as etapas do modo PIPELINE (validação, estoque, pagamento e finalização),
+     * com as integrações simuladas, a partir das propriedades de sistema:
+     *   -Dpedidos.estoqueMs=1500          duração simulada da reserva de estoque
+     *   -Dpedidos.pagamentoMs=1500        duração simulada do pagamento
+     *   -Dpedidos.limiteEstoque=50        pedidos reservando estoque ao mesmo tempo
+     *   -Dpedidos.limitePagamento=20      pedidos em pagamento ao mesmo tempo
+     *   -Dpedidos.etapaPrazoMs=30000      prazo de cada etapa (inclui a espera por vaga)
+     * Os tempos padrão dividem -Dpedidos.tempoMs entre estoque e pagamento.
+     */
+    private static PipelinePedido criarPipeline() {
+        long tempoMs = Long.getLong("pedidos.tempoMs", PedidoProcessor.TEMPO_PROCESSAMENTO_PADRAO_MS);
+        executorPipeline = PedidoProcessor.novoExecutorVirtual();
+        return PipelinePedido.simulado(executorPipeline,
+                Long.getLong("pedidos.estoqueMs", tempoMs / 2),
+                Integer.getInteger("pedidos.limiteEstoque", 50),
+                Long.getLong("pedidos.pagamentoMs", tempoMs - tempoMs / 2),
+                Integer.getInteger("pedidos.limitePagamento", 20),
+                Long.getLong("pedidos.etapaPrazoMs", Math.max(1000, tempoMs * 10)));
+    }
+
+    /**
+     * Monta a fila do processador a partir das propriedades de sistema:
+     *   -Dpedidos.filaCapacidade=10000        máximo de pedidos aguardando
+     *   -Dpedidos.filaPolitica=BLOQUEAR       BLOQUEAR (espera por vaga) ou REJEITAR (recusa na hora)
+     *   -Dpedidos.filaEsperaMs=5000           prazo de espera por vaga no modo BLOQUEAR
+     *   -Dpedidos.prioridade=NENHUMA          NENHUMA, VALOR ou CATEGORIA (ignorada no modo PARTICIONADO,
+     *                                         que mantém a ordem de chegada dos pedidos de cada cliente)
+     *   -Dpedidos.prioridadeValorAlta=1000    (VALOR) pedidos a partir deste total vão na frente
+     *   -Dpedidos.prioridadeValorBaixa=0      (VALOR) pedidos abaixo deste total vão por último
+     *   -Dpedidos.prioridadeCategorias=ELETRONICOS  (CATEGORIA) categorias que vão na frente
+     */
+    private static FilaPedidos criarFila() {
+        FilaPedidos.Classificador classificador = switch (System.getProperty("pedidos.prioridade", "NENHUMA").toUpperCase()) {
+            case "VALOR" -> FilaPedidos.Classificador.porValor(
+                    Math.round(Double.parseDouble(System.getProperty("pedidos.prioridadeValorAlta", "1000")) * 100),
+                    Math.round(Double.parseDouble(System.getProperty("pedidos.prioridadeValorBaixa", "0")) * 100));
+            case "CATEGORIA" -> {
+                Set<Categoria> categorias = EnumSet.noneOf(Categoria.class);
+                for (String nome : System.getProperty("pedidos.prioridadeCategorias", "ELETRONICOS").split(",")) {
+                    categorias.add(Categoria.valueOf(nome.trim().toUpperCase()));
+                }
+                yield FilaPedidos.Classificador.porCategoria(categorias);
+            }
+            default -> FilaPedidos.Classificador.nenhum();
+        };
+        return new FilaPedidos(
+                Integer.getInteger("pedidos.filaCapacidade", PedidoProcessor.CAPACIDADE_FILA_PADRAO),
+                FilaPedidos.Politica.valueOf(System.getProperty("pedidos.filaPolitica", "BLOQUEAR").toUpperCase()),
+                Long.getLong("pedidos.filaEsperaMs", PedidoProcessor.ESPERA_FILA_CHEIA_PADRAO_MS),
+                classificador);
+    }
 
     /**
      * Função principal (onde o programa começa).
      * Aqui o sistema inicia a thread, carrega dados salvos e mostra o menu principal.
      */
     public static void main(String[] args) {
-        new Thread(processor).start(); // Inicia a thread que processa os pedidos
-        carregarDados(); // Tenta carregar dados salvos de arquivos (clientes, produtos, pedidos)
+        // Comandos de linha de comando (sem menu), por exemplo: java -cp out app.Main converter dados.json dados.bin
+        if (args.length > 0) {
+            executarComando(args);
+            return;
+        }
+
+        iniciar(); // Processador, dados salvos, journal e pedidos pendentes
+        // Com -Dpedidos.httpPorta=8080 a API HTTP atende junto com o menu
+        Integer portaHttp = Integer.getInteger("pedidos.httpPorta");
+        if (portaHttp != null) iniciarServidorHttp(portaHttp);
 
         Scanner sc = new Scanner(System.in); // Cria o Scanner, usado para ler o que o usuário digita no console
 
@@ -37,7 +140,9 @@ public class Main {
             System.out.println("4. Listar Clientes");
             System.out.println("5. Listar Produtos");
             System.out.println("6. Listar Pedidos");
-            System.out.println("7. Salvar e Sair");
+            System.out.println("7. Relatório de Vendas");
+            System.out.println("8. Buscar Clientes e Produtos");
+            System.out.println("9. Salvar e Sair");
             System.out.print("Escolha: ");
 
             int opcao = lerInteiro(sc); // Lê a opção digitada pelo usuário e garante que é um número
@@ -47,19 +152,55 @@ public class Main {
                 case 1 -> cadastrarCliente(sc); // Chama a função que cadastra um cliente
                 case 2 -> cadastrarProduto(sc); // Chama a função que cadastra um produto
                 case 3 -> criarPedido(sc);      // Chama a função que cria um pedido
-                case 4 -> listarClientes();     // Mostra todos os clientes
-                case 5 -> listarProdutos();     // Mostra todos os produtos
-                case 6 -> listarPedidos();      // Mostra todos os pedidos feitos
-                case 7 -> {                     // Opção de salvar e sair do programa
-                    salvarDados();              // Salva todos os dados nos arquivos
-                    System.out.println("Até logo!");
+                case 4 -> listarClientes(sc);   // Mostra os clientes (com filtro e paginação)
+                case 5 -> listarProdutos(sc);   // Mostra os produtos (com filtro e paginação)
+                case 6 -> listarPedidos(sc);    // Mostra os pedidos feitos (com filtro e paginação)
+                case 7 -> relatorioVendas();    // Receita por categoria, produto, cliente e status
+                case 8 -> buscar(sc);           // Busca por palavras no nome (e e-mail dos clientes)
+                case 9 -> {                     // Opção de salvar e sair do programa
+                    encerrar();                 // Espera os pedidos em andamento e salva tudo
                     System.exit(0);             // Encerra o programa
                 }
                 default -> System.out.println("Opção inválida!"); // Caso o usuário digite algo errado
             }
+
+            compactarSeNecessario(); // Se o journal ficou grande, grava um novo snapshot em segundo plano
         }
     }
 
+    /**
+     * Prepara o sistema para receber pedidos (pelo menu ou pela API HTTP): configura e inicia
+     * o processador, carrega os dados salvos, abre o journal e retoma os pedidos pendentes.
+     */
+    private static void iniciar() {
+        // Agrupamento em lotes: até -Dpedidos.loteMaximo pedidos por chamada à integração,
+        // esperando até -Dpedidos.loteEsperaMs por mais pedidos (padrão: um pedido por vez)
+        processor.configurarLotes(Integer.getInteger("pedidos.loteMaximo", 1), Long.getLong("pedidos.loteEsperaMs", 0));
+        if (processor.getModo() == PedidoProcessor.Modo.PIPELINE) {
+            processor.setPipeline(criarPipeline());
+        }
+        abrirFilaDuravel(); // Pedidos enfileirados passam a ser registrados em disco
+        processor.adicionarListener(agregados); // Mantém os totais por status em dia
+        processor.adicionarListener(indicePedidos); // E o índice de pedidos por status
+        processor.iniciar(); // Inicia os workers que processam os pedidos
+        iniciarMetricas(); // Publica as métricas via JMX e no arquivo metricas.log
+        carregarDados(); // Tenta carregar dados salvos de arquivos (clientes, produtos, pedidos)
+        abrirJournal();  // A partir daqui, toda alteração é registrada no journal
+        retomarPedidos(); // Recoloca na fila os pedidos que ficaram pendentes
+    }
+
+    /** Para de receber pedidos, espera os que estão em andamento e salva tudo. */
+    private static void encerrar() {
+        pararServidorHttp();        // Não aceita novas requisições
+        encerrarProcessador();      // Espera os pedidos em andamento terminarem
+        aguardarCompactacao();      // Espera alguma compactação em andamento terminar
+        salvarDados();              // Salva todos os dados nos arquivos
+        fecharJournal();
+        fecharFilaDuravel();
+        processor.getMetricas().encerrar(); // Grava o último resumo das métricas
+        System.out.println("Até logo!");
+    }
+
     /**
      * Cadastra um novo cliente pedindo nome e e-mail.
      * Faz validação (por exemplo, não deixar nome vazio) e adiciona o cliente à lista.
@@ -72,8 +213,8 @@ public class Main {
 
         try {
             // Cria um novo objeto Cliente com ID automático
-            Cliente c = new Cliente(gerarNovoId(clientes), nome, email);
-            clientes.add(c); // Adiciona o cliente na lista
+            Cliente c = new Cliente(clientes.proximoId(), nome, email);
+            registrarCliente(c); // Adiciona o cliente no repositório, na busca e no journal
             System.out.println("Cliente cadastrado!");
         } catch (ValidacaoException e) {
             // Caso o cliente seja inválido (nome vazio, e-mail incorreto, etc.)
@@ -95,8 +236,8 @@ public class Main {
             // Converte o texto digitado para uma categoria válida (enum)
             Categoria cat = Categoria.valueOf(sc.nextLine().trim().toUpperCase());
             // Cria o produto e adiciona à lista
-            Produto p = new Produto(gerarNovoId(produtos), nome, preco, cat);
-            produtos.add(p);
+            Produto p = new Produto(produtos.proximoId(), nome, preco, cat);
+            registrarProduto(p);
             System.out.println("Produto cadastrado!");
         } catch (IllegalArgumentException e) {
             // Categoria digitada incorretamente
@@ -118,30 +259,33 @@ public class Main {
             return; // Sai da função
         }
 
-        listarClientes(); // Mostra todos os clientes
+        // Mostra só a primeira página de clientes; para catálogos grandes, a listagem do menu filtra
+        paginar(null, (cursor, limite) -> clientes.pagina(cursor, limite, c -> true), Main::imprimirCliente);
         System.out.print("ID do Cliente: ");
         int id = lerInteiro(sc); // Lê o ID escolhido
 
-        // Procura o cliente com o ID digitado
-        Cliente cliente = clientes.stream().filter(c -> c.getId() == id).findFirst().orElse(null);
+        // Procura o cliente com o ID digitado (busca direta no índice)
+        Cliente cliente = clientes.buscar(id);
         if (cliente == null) {
             System.out.println("Cliente não encontrado!");
             return;
         }
 
         // Cria o pedido para esse cliente
-        Pedido pedido = new Pedido(gerarNovoId(pedidos), cliente);
+        Pedido pedido = new Pedido(pedidos.proximoId(), cliente);
+
+        // Mostra a primeira página de produtos uma única vez, antes de começar a pedir os itens
+        paginar(null, (cursor, limite) -> produtos.pagina(cursor, limite, p -> true), Main::imprimirProduto);
 
         // Laço para adicionar itens ao pedido
         while (true) {
-            listarProdutos(); // Mostra produtos disponíveis
             System.out.print("ID do Produto (0 para finalizar): ");
             int pid = lerInteiro(sc); // Lê o ID do produto
 
             if (pid == 0) break; // Digitar 0 significa "parar de adicionar itens"
 
             // Procura o produto pelo ID
-            Produto prod = produtos.stream().filter(p -> p.getId() == pid).findFirst().orElse(null);
+            Produto prod = produtos.buscar(pid);
             if (prod == null) {
                 System.out.println("Produto não encontrado!");
                 continue; // Volta para o início do laço
@@ -169,58 +313,347 @@ public class Main {
         }
 
         // Adiciona o pedido à lista geral e manda para processamento
-        pedidos.add(pedido);
-        processor.adicionarPedido(pedido);
-        System.out.println("Pedido criado e adicionado à fila!");
+        if (registrarPedido(pedido)) {
+            System.out.println("Pedido criado e adicionado à fila!");
+        } else {
+            // Fila cheia: o pedido fica salvo como ABERTO e volta para a fila no próximo carregamento
+            System.out.println("Fila cheia! Pedido " + pedido.getId() + " salvo como ABERTO, será processado depois.");
+        }
+    }
+
+    /** Guarda um cliente novo no repositório, no índice de busca e no journal. */
+    private static void registrarCliente(Cliente cliente) {
+        clientes.adicionar(cliente);
+        buscaClientes.adicionar(cliente);
+        registrarNoJournal(j -> j.registrarCliente(cliente)); // Garante que o cadastro sobreviva a uma queda
+    }
+
+    private static void registrarProduto(Produto produto) {
+        produtos.adicionar(produto);
+        buscaProdutos.adicionar(produto);
+        registrarNoJournal(j -> j.registrarProduto(produto));
     }
 
     /**
-     * Mostra todos os clientes cadastrados na tela.
+     * Guarda um pedido novo (repositório, journal, totais e índices) e o manda para a fila.
+     * Devolve false se a fila estava cheia: o pedido fica ABERTO e volta no próximo carregamento.
+     */
+    private static boolean registrarPedido(Pedido pedido) {
+        pedidos.adicionar(pedido);
+        registrarNoJournal(j -> j.registrarPedido(pedido));
+        agregados.pedidoCriado(pedido); // Antes de ir para a fila, enquanto ainda está ABERTO
+        indicePedidos.pedidoCriado(pedido);
+        return processor.adicionarPedido(pedido);
+    }
+
+    // Servidor da API HTTP (fica null se não foi pedido ou não pôde abrir a porta)
+    private static ServidorHttp servidorHttp;
+
+    /**
+     * Abre a API HTTP na porta informada (ver ServidorHttp). Os cadastros feitos por ela passam
+     * pelos mesmos registros do menu e também disparam a compactação do journal quando preciso.
+     * -Dpedidos.httpBacklog define quantas conexões podem aguardar aceitação (padrão 4096).
      */
-    private static void listarClientes() {
+    private static void iniciarServidorHttp(int porta) {
+        ServidorHttp.Cadastro cadastro = new ServidorHttp.Cadastro() {
+            @Override
+            public void cadastrar(Cliente cliente) {
+                registrarCliente(cliente);
+                compactarSeNecessario();
+            }
+
+            @Override
+            public void cadastrar(Produto produto) {
+                registrarProduto(produto);
+                compactarSeNecessario();
+            }
+
+            @Override
+            public boolean cadastrar(Pedido pedido) {
+                boolean enfileirado = registrarPedido(pedido);
+                compactarSeNecessario();
+                return enfileirado;
+            }
+        };
+        try {
+            servidorHttp = new ServidorHttp(porta, Integer.getInteger("pedidos.httpBacklog", 4096),
+                    clientes, produtos, pedidos, indicePedidos, cadastro);
+            servidorHttp.iniciar();
+            System.out.println("API HTTP em http://localhost:" + servidorHttp.getPorta() + "/");
+        } catch (IOException e) {
+            System.out.println("API HTTP indisponível: " + e.getMessage());
+        }
+    }
+
+    private static void pararServidorHttp() {
+        if (servidorHttp == null) return;
+        servidorHttp.parar(2); // Dá um prazo curto para as respostas em andamento
+        servidorHttp = null;
+    }
+
+    // Saída das listagens: um único PrintStream com buffer, descarregado ao fim de cada página,
+    // em vez de uma escrita no console por linha
+    private static final PrintStream saida =
+            new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024), false);
+
+    // Quantos registros cada página das listagens mostra (-Dpedidos.tamanhoPagina)
+    private static final int TAMANHO_PAGINA = Integer.getInteger("pedidos.tamanhoPagina", 20);
+
+    /** Busca uma página a partir de um cursor (ver Pagina). */
+    private interface Paginador<T> {
+        Pagina<T> pagina(int cursor, int limite);
+    }
+
+    /**
+     * Mostra os clientes, página por página, opcionalmente filtrando pelo início do nome.
+     */
+    private static void listarClientes(Scanner sc) {
         if (clientes.isEmpty()) {
             System.out.println("Nenhum cliente cadastrado.");
             return;
         }
-        // Para cada cliente, mostra suas informações
-        clientes.forEach(cliente ->
-            System.out.println("Cliente [ID=" + cliente.getId() +
-                               ", Nome=" + cliente.getNome() +
-                               ", Email=" + cliente.getEmail() + "]"));
+        System.out.print("Filtrar pelo início do nome (Enter para todos): ");
+        String prefixo = sc.nextLine().trim();
+        paginar(sc, (cursor, limite) -> clientes.pagina(cursor, limite, c -> comecaCom(c.getNome(), prefixo)),
+                Main::imprimirCliente);
     }
 
     /**
-     * Mostra todos os produtos cadastrados.
+     * Mostra os produtos, página por página, opcionalmente filtrando pelo início do nome e pela categoria.
      */
-    private static void listarProdutos() {
+    private static void listarProdutos(Scanner sc) {
         if (produtos.isEmpty()) {
             System.out.println("Nenhum produto cadastrado.");
             return;
         }
-        produtos.forEach(produto ->
-            System.out.println("Produto [ID=" + produto.getId() +
-                               ", Nome=" + produto.getNome() +
-                               ", Preço=" + produto.getPreco() +
-                               ", Categoria=" + produto.getCategoria() + "]"));
+        System.out.print("Filtrar pelo início do nome (Enter para todos): ");
+        String prefixo = sc.nextLine().trim();
+        System.out.print("Categoria (ALIMENTOS, ELETRONICOS, LIVROS; Enter para todas): ");
+        String textoCategoria = sc.nextLine().trim();
+        Categoria categoria = null;
+        if (!textoCategoria.isEmpty()) {
+            try {
+                categoria = Categoria.valueOf(textoCategoria.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Categoria inválida.");
+                return;
+            }
+        }
+        Categoria filtroCategoria = categoria;
+        paginar(sc, (cursor, limite) -> produtos.pagina(cursor, limite, p ->
+                        comecaCom(p.getNome(), prefixo) && (filtroCategoria == null || p.getCategoria() == filtroCategoria)),
+                Main::imprimirProduto);
     }
 
     /**
-     * Mostra todos os pedidos com seus itens e status.
+     * Mostra os pedidos com seus itens e status, página por página. Filtrando por status
+     * e/ou cliente, a busca usa o IndicePedidos em vez de percorrer todos os pedidos.
      */
-    private static void listarPedidos() {
+    private static void listarPedidos(Scanner sc) {
         if (pedidos.isEmpty()) {
             System.out.println("Nenhum pedido cadastrado.");
             return;
         }
 
-        // Para cada pedido, mostra os detalhes e os itens
-        pedidos.forEach(pedido -> {
-            System.out.println(pedido); // Mostra informações básicas do pedido
-            pedido.getItens().forEach(item ->
-                System.out.println("  - " + item.getQuantidade() + "x " +
-                                   item.getProduto().getNome() +
-                                   " (" + item.calcularSubtotal() + ")"));
-        });
+        // Mostra a situação atual do processador (fila e pedidos em andamento)
+        System.out.println("Fila: " + processor.getTamanhoFila() + "/" + processor.getCapacidadeFila() +
+                           " | Em processamento: " + processor.getEmProcessamento() +
+                           " | Modo: " + processor.getModo() + " (" + processor.getWorkers() + " workers)");
+
+        System.out.print("Status (ABERTO, FILA, PROCESSANDO, FINALIZADO; Enter para todos): ");
+        String textoStatus = sc.nextLine().trim();
+        System.out.print("ID do cliente (Enter para todos): ");
+        String textoCliente = sc.nextLine().trim();
+
+        IndicePedidos.Consulta consulta = indicePedidos.consulta();
+        try {
+            if (!textoStatus.isEmpty()) consulta.status(StatusPedido.valueOf(textoStatus.toUpperCase()));
+            if (!textoCliente.isEmpty()) consulta.cliente(Integer.parseInt(textoCliente));
+        } catch (IllegalArgumentException e) { // inclui NumberFormatException
+            System.out.println("Filtro inválido.");
+            return;
+        }
+
+        if (textoStatus.isEmpty() && textoCliente.isEmpty()) {
+            paginar(sc, (cursor, limite) -> pedidos.pagina(cursor, limite, p -> true), Main::imprimirPedido);
+        } else {
+            paginar(sc, consulta::pagina, Main::imprimirPedido);
+        }
+    }
+
+    // Quantos resultados a busca mostra (-Dpedidos.limiteBusca)
+    private static final int LIMITE_BUSCA = Integer.getInteger("pedidos.limiteBusca", 10);
+
+    /**
+     * Busca clientes e produtos por palavras (ou pedaços de palavras) do nome e do e-mail,
+     * sem diferenciar maiúsculas e acentos. Os mais parecidos aparecem primeiro.
+     */
+    private static void buscar(Scanner sc) {
+        System.out.print("Buscar: ");
+        String consulta = sc.nextLine().trim();
+        if (consulta.isEmpty()) {
+            System.out.println("Digite ao menos uma palavra.");
+            return;
+        }
+        long inicio = System.nanoTime();
+        List<Cliente> clientesEncontrados = buscaClientes.buscar(consulta, LIMITE_BUSCA);
+        List<Produto> produtosEncontrados = buscaProdutos.buscar(consulta, LIMITE_BUSCA);
+        long micros = (System.nanoTime() - inicio) / 1_000;
+
+        System.out.flush();
+        saida.println("Clientes:");
+        if (clientesEncontrados.isEmpty()) saida.println("  Nenhum resultado.");
+        clientesEncontrados.forEach(Main::imprimirCliente);
+        saida.println("Produtos:");
+        if (produtosEncontrados.isEmpty()) saida.println("  Nenhum resultado.");
+        produtosEncontrados.forEach(Main::imprimirProduto);
+        saida.println("(" + micros + " µs)");
+        saida.flush();
+    }
+
+    /**
+     * Imprime uma página por vez. Com {@code sc} nulo mostra só a primeira página
+     * (usado ao criar pedidos); senão pergunta se deve continuar.
+     */
+    private static <T> void paginar(Scanner sc, Paginador<T> paginador, Consumer<T> imprimir) {
+        System.out.flush(); // o que já foi escrito no System.out vem antes da página
+        int cursor = Pagina.INICIO;
+        boolean primeira = true;
+        while (true) {
+            Pagina<T> pagina = paginador.pagina(cursor, TAMANHO_PAGINA);
+            if (primeira && pagina.getItens().isEmpty()) saida.println("Nenhum resultado.");
+            primeira = false;
+            pagina.getItens().forEach(imprimir);
+            if (!pagina.temMais()) {
+                saida.flush();
+                return;
+            }
+            if (sc == null) {
+                saida.println("(há mais registros; use as listagens do menu para filtrar)");
+                saida.flush();
+                return;
+            }
+            saida.print("Enter para a próxima página, 0 para parar: ");
+            saida.flush();
+            if (sc.nextLine().trim().equals("0")) return;
+            cursor = pagina.getProximoCursor();
+        }
+    }
+
+    // Compara o início do texto sem diferenciar maiúsculas e sem criar novas strings
+    private static boolean comecaCom(String texto, String prefixo) {
+        return texto.regionMatches(true, 0, prefixo, 0, prefixo.length());
+    }
+
+    private static void imprimirCliente(Cliente cliente) {
+        saida.print("Cliente [ID=");
+        saida.print(cliente.getId());
+        saida.print(", Nome=");
+        saida.print(cliente.getNome());
+        saida.print(", Email=");
+        saida.print(cliente.getEmail());
+        saida.println(']');
+    }
+
+    private static void imprimirProduto(Produto produto) {
+        saida.print("Produto [ID=");
+        saida.print(produto.getId());
+        saida.print(", Nome=");
+        saida.print(produto.getNome());
+        saida.print(", Preço=");
+        saida.print(produto.getPreco());
+        saida.print(", Categoria=");
+        saida.print(produto.getCategoria());
+        saida.println(']');
+    }
+
+    private static void imprimirPedido(Pedido pedido) {
+        saida.print("Pedido [ID=");
+        saida.print(pedido.getId());
+        saida.print(", Cliente=");
+        saida.print(pedido.getCliente().getNome());
+        saida.print(", Total=");
+        saida.print(pedido.calcularTotal());
+        saida.print(", Status=");
+        saida.print(pedido.getStatus());
+        saida.println(']');
+        for (ItemPedido item : pedido.getItens()) {
+            saida.print("  - ");
+            saida.print(item.getQuantidade());
+            saida.print("x ");
+            saida.print(item.getProduto().getNome());
+            saida.print(" (");
+            saida.print(item.calcularSubtotal());
+            saida.println(')');
+        }
+    }
+
+    /**
+     * Mostra o relatório de vendas: receita por categoria, os produtos e clientes que mais
+     * faturaram e quantos pedidos há em cada status. Os totais já estão prontos nos
+     * AgregadosVendas; aqui só são copiados e ordenados.
+     */
+    private static void relatorioVendas() {
+        if (pedidos.isEmpty()) {
+            System.out.println("Nenhum pedido cadastrado.");
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        RelatorioVendas relatorio = agregados.relatorio();
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        System.out.println("Pedidos: " + relatorio.getPedidos() + " | Itens: " + relatorio.getItens() +
+                           " | Receita: " + reais(relatorio.getReceitaTotalCentavos()) +
+                           " (calculado em " + duracaoMs + " ms)");
+
+        System.out.println("\n-- Receita por categoria --");
+        for (Categoria categoria : Categoria.values()) {
+            System.out.println(categoria + ": " + reais(relatorio.getReceitaCentavos(categoria)) +
+                               " (" + relatorio.getUnidades(categoria) + " unidades)");
+        }
+
+        System.out.println("\n-- Produtos que mais faturaram --");
+        for (RelatorioVendas.Posicao posicao : relatorio.topProdutos(10)) {
+            Produto produto = produtos.buscar(posicao.getId());
+            System.out.println((produto != null ? produto.getNome() : "Produto " + posicao.getId()) + ": " +
+                               reais(posicao.getReceitaCentavos()) + " (" + posicao.getQuantidade() + " unidades)");
+        }
+
+        System.out.println("\n-- Clientes que mais compraram --");
+        for (RelatorioVendas.Posicao posicao : relatorio.topClientes(10)) {
+            Cliente cliente = clientes.buscar(posicao.getId());
+            System.out.println((cliente != null ? cliente.getNome() : "Cliente " + posicao.getId()) + ": " +
+                               reais(posicao.getReceitaCentavos()) + " (" + posicao.getQuantidade() + " pedidos)");
+        }
+
+        System.out.println("\n-- Pedidos por status --");
+        for (StatusPedido status : StatusPedido.values()) {
+            System.out.println(status + ": " + relatorio.getPedidos(status) +
+                               " (" + reais(relatorio.getValorCentavos(status)) + ")");
+        }
+    }
+
+    // Formata um valor em centavos como "R$ 1234.56"
+    private static String reais(long centavos) {
+        return String.format(Locale.ROOT, "R$ %d.%02d", centavos / 100, Math.abs(centavos % 100));
+    }
+
+    /**
+     * Para o processador antes de salvar, dando um prazo para os pedidos em andamento.
+     * O que ainda estiver na fila é salvo como FILA e volta a ser processado na próxima execução.
+     */
+    private static void encerrarProcessador() {
+        System.out.println("Aguardando " + processor.getEmProcessamento() + " pedido(s) em processamento...");
+        try {
+            if (!processor.encerrar(10, TimeUnit.SECONDS)) {
+                System.out.println("Tempo esgotado: pedidos interrompidos serão retomados na próxima execução.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Mantém o sinal de interrupção para quem chamou
+        }
+        // As etapas do PIPELINE só recebem pedidos do processador, então já podem parar
+        if (executorPipeline != null) executorPipeline.shutdown();
     }
 
     /**
@@ -239,9 +672,10 @@ public class Main {
         }
     }
 
-    // OBS: As funções "lerDouble", "salvarDados", "carregarDados" e "gerarNovoId"
+    // OBS: As funções "lerDouble", "salvarDados" e "carregarDados"
     // devem estar em outro trecho do código (outra parte da classe)
-    // e cuidam de ler números decimais, salvar os arquivos e criar IDs automáticos.
+    // e cuidam de ler números decimais e salvar os arquivos.
+    // Os IDs automáticos vêm de cada Repositorio (proximoId).
 
 
 
@@ -265,677 +699,810 @@ public class Main {
         }
     }
 
+    // Nome do arquivo onde o sistema vai salvar e carregar os dados
+    private static final String ARQUIVO_DADOS = "dados.json";
+
+    // Formatos aceitos para o snapshot: texto JSON ou binário colunar (ver SnapshotBinario)
+    private enum Formato { JSON, BINARIO }
+
+    // Formato usado ao salvar: o mesmo que foi encontrado ao carregar, a menos que
+    // -Dpedidos.formato=JSON|BINARIO diga outra coisa
+    private static Formato formatoSnapshot = Formato.JSON;
+
+    // Em quantos arquivos o snapshot é dividido (-Dpedidos.particoes; por padrão, as partições do
+    // processador). Com mais de uma, os dados vão para dados.0.json, dados.1.json, ..., separados
+    // pelo ID do cliente, e os arquivos são gravados e lidos ao mesmo tempo
+    private static final int PARTICOES_SNAPSHOT = Integer.getInteger("pedidos.particoes", processor.getParticoes());
+
+    // Tamanho do buffer usado ao gravar o arquivo (64 KiB reduz o número de escritas no disco)
+    private static final int TAMANHO_BUFFER_ESCRITA = 64 * 1024;
+
+    // Arquivo do journal: cada alteração feita desde o último snapshot vira uma linha nele
+    private static final String ARQUIVO_JOURNAL = "dados.journal";
+
+    // Journal aberto durante a execução (fica null se não puder ser aberto)
+    private static Journal journal;
+
+    // Thread de fundo que grava um novo snapshot quando o journal fica grande
+    private static final ExecutorService compactador =
+            Executors.newSingleThreadExecutor(PedidoProcessor.fabrica("journal-compactacao"));
+    private static final AtomicBoolean compactando = new AtomicBoolean();
+
+    /** Operação de escrita no journal (pode lançar IOException). */
+    private interface OperacaoJournal {
+        void executar(Journal journal) throws IOException;
+    }
+
+    // Arquivo onde o resumo das métricas é anexado periodicamente
+    private static final String ARQUIVO_METRICAS = "metricas.log";
+
     /**
-     * Gera automaticamente um novo ID (número único) para qualquer tipo de objeto que tenha um getId().
-     * Exemplo: se o último cliente tem ID 3, o próximo terá ID 4.
+     * Publica as métricas do processador e da persistência via JMX (app:type=Metricas) e
+     * anexa um resumo ao metricas.log a cada -Dpedidos.metricasIntervaloS segundos
+     * (padrão 60; 0 desliga o arquivo).
      */
-    private static <T extends Identificavel> int gerarNovoId(List<T> itens) {
-        // Pega todos os IDs da lista, acha o maior e soma +1
-        // Se a lista estiver vazia, começa do 1 (pois orElse(0) + 1 = 1)
-        return itens.stream().mapToInt(Identificavel::getId).max().orElse(0) + 1;
+    private static void iniciarMetricas() {
+        Metricas metricas = processor.getMetricas();
+        metricas.registrarJmx();
+        long intervalo = Long.getLong("pedidos.metricasIntervaloS", 60);
+        if (intervalo > 0) {
+            metricas.iniciarDump(Path.of(ARQUIVO_METRICAS), intervalo, TimeUnit.SECONDS);
+        }
     }
 
-    // Nome do arquivo onde o sistema vai salvar e carregar os dados
-    private static final String ARQUIVO_DADOS = "dados.json";
+    // Diretório da fila durável: segmentos com os IDs dos pedidos enfileirados e o checkpoint do consumidor
+    private static final String DIRETORIO_FILA = "fila";
+
+    // Fila durável aberta durante a execução (fica null se não puder ser aberta)
+    private static FilaDuravel filaDuravel;
 
     /**
-     * Salva todos os dados atuais (clientes, produtos e pedidos) dentro de um arquivo JSON.
-     * Isso serve para que, quando o programa for fechado, os dados não se percam.
+     * Abre a fila durável do processador. Configurável com -Dpedidos.filaSegmentoRegistros
+     * (pedidos por arquivo de segmento) e -Dpedidos.filaFsyncMs (intervalo do fsync dos segmentos).
      */
-    private static void salvarDados() {
-        // Usa "try-with-resources" para abrir o arquivo e garantir que ele será fechado corretamente depois
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(ARQUIVO_DADOS))) {
-            // Cria um objeto que vai guardar todas as listas do sistema
-            DadosPersistidos dados = new DadosPersistidos();
-            dados.clientes = clientes;
-            dados.produtos = produtos;
-            dados.pedidos = pedidos;
-
-            // Converte os dados em texto JSON usando o JsonUtil
-            writer.write(JsonUtil.toJson(dados));
-            System.out.println("Dados salvos em dados.json");
+    private static void abrirFilaDuravel() {
+        try {
+            filaDuravel = new FilaDuravel(Path.of(DIRETORIO_FILA),
+                    Integer.getInteger("pedidos.filaSegmentoRegistros", 64 * 1024),
+                    Long.getLong("pedidos.filaFsyncMs", 100));
+            processor.setFilaDuravel(filaDuravel);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Fila durável indisponível, os pendentes virão do índice por status: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recoloca na fila de processamento os pedidos que estavam pendentes (inclusive os ABERTOS,
+     * que foram recusados por fila cheia). Com a fila durável só são lidos os pedidos registrados
+     * depois do último checkpoint; sem ela (ou na primeira execução com ela), os pendentes
+     * vêm do índice por status.
+     */
+    private static void retomarPedidos() {
+        if (filaDuravel != null && !filaDuravel.isNova()) {
+            int retomados = processor.retomarPendentes(pedidos::buscar);
+            if (retomados > 0) System.out.println(retomados + " pedido(s) pendente(s) retomado(s).");
+            return;
+        }
+        indicePedidos.pendentes().forEach(processor::adicionarPedido);
+    }
+
+    private static void fecharFilaDuravel() {
+        if (filaDuravel == null) return;
+        try {
+            filaDuravel.close();
         } catch (IOException e) {
-            // Se algo der errado (ex: não consegue escrever no arquivo), mostra erro
-            System.out.println("Falha ao salvar dados: " + e.getMessage());
+            System.out.println("Falha ao fechar a fila durável: " + e.getMessage());
         }
     }
 
     /**
-     * Lê o arquivo "dados.json" e recria na memória todas as listas (clientes, produtos e pedidos).
-     * Assim, o programa continua do ponto em que parou na última vez.
+     * Abre o journal e passa a registrar nele também as mudanças de status feitas pelo processador.
+     * Configurável com -Dpedidos.journalFsyncMs (intervalo do fsync em lote) e
+     * -Dpedidos.journalLimiteMb (tamanho que dispara a compactação).
      */
-    private static void carregarDados() {
-        File arquivo = new File(ARQUIVO_DADOS); // Cria uma "referência" para o arquivo dados.json
+    private static void abrirJournal() {
+        try {
+            journal = new Journal(Path.of(ARQUIVO_JOURNAL),
+                    Long.getLong("pedidos.journalFsyncMs", 100),
+                    Long.getLong("pedidos.journalLimiteMb", 16) * 1024 * 1024);
+            processor.adicionarListener((pedido, anterior, novo) ->
+                    registrarNoJournal(j -> j.registrarStatus(pedido, novo)));
+            // O checkpoint da fila só avança depois do fsync que gravou os FINALIZADO
+            if (filaDuravel != null) journal.setFilaDuravel(filaDuravel);
+        } catch (IOException | IllegalArgumentException e) {
+            // Inclui pedidos.journalFsyncMs ou pedidos.journalLimiteMb inválidos
+            System.out.println("Journal indisponível, os dados só serão salvos ao sair: " + e.getMessage());
+        }
+    }
 
-        // Se o arquivo ainda não existe, é a primeira vez que o programa está rodando
-        if (!arquivo.exists()) {
-            System.out.println("Nenhum dado anterior encontrado.");
+    /**
+     * Registra uma alteração no journal. Uma falha aqui não desfaz a operação em memória,
+     * apenas avisa que ela só estará segura depois do próximo salvamento.
+     */
+    private static void registrarNoJournal(OperacaoJournal operacao) {
+        if (journal == null) return;
+        try {
+            operacao.executar(journal);
+        } catch (IOException e) {
+            System.out.println("Falha ao registrar alteração no journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Se o journal passou do limite, rotaciona o arquivo e grava um snapshot em segundo plano.
+     * Roda na thread do menu e nas da API HTTP; só uma compactação acontece por vez.
+     * Cada cadastro entra no repositório antes do journal, então tudo o que ficou no journal
+     * rotacionado está na cópia feita aqui. Um cadastro feito entre a rotação e a cópia aparece
+     * nos dois (snapshot e journal novo), e a reaplicação do journal ignora o repetido.
+     */
+    private static void compactarSeNecessario() {
+        if (journal == null || !journal.precisaCompactar() || !compactando.compareAndSet(false, true)) return;
+        try {
+            journal.rotacionar(); // o que estava no journal já está refletido nas listas copiadas abaixo
+        } catch (IOException e) {
+            System.out.println("Falha ao rotacionar o journal: " + e.getMessage());
+            compactando.set(false);
             return;
         }
+        DadosPersistidos copia = copiarDados();
+        compactador.execute(() -> {
+            try {
+                gravarSnapshot(copia);
+                journal.descartarRotacionado();
+            } catch (IOException e) {
+                // O journal rotacionado continua no disco e será reaplicado no próximo carregamento
+                System.out.println("Falha na compactação do journal: " + e.getMessage());
+            } finally {
+                compactando.set(false);
+            }
+        });
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(arquivo))) {
-            StringBuilder conteudo = new StringBuilder();
-            String linha;
+    /** Espera a compactação em segundo plano terminar, para não sobrescrever o salvamento final. */
+    private static void aguardarCompactacao() {
+        compactador.shutdown();
+        try {
+            compactador.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            // Lê o arquivo linha por linha e monta o texto completo do JSON
-            while ((linha = reader.readLine()) != null) {
-                conteudo.append(linha).append('\n');
-            }
+    private static void fecharJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Falha ao fechar o journal: " + e.getMessage());
+        }
+    }
 
-            // Converte o texto JSON de volta para objetos Java (listas de clientes, produtos e pedidos)
-            DadosPersistidos dados = JsonUtil.fromJson(conteudo.toString());
+    /**
+     * Cópia das listas atuais, para gravar sem ser afetada por cadastros feitos no meio tempo.
+     * Os pedidos são copiados primeiro: um pedido só é cadastrado depois do seu cliente e dos
+     * seus produtos, então tudo o que os pedidos copiados usam está nas cópias seguintes, mesmo
+     * com a API HTTP cadastrando enquanto isso.
+     */
+    private static DadosPersistidos copiarDados() {
+        DadosPersistidos dados = new DadosPersistidos();
+        dados.pedidos = new ArrayList<>(pedidos.listar());
+        dados.produtos = new ArrayList<>(produtos.listar());
+        dados.clientes = new ArrayList<>(clientes.listar());
+        return dados;
+    }
 
-            // Se não conseguir interpretar o JSON (arquivo vazio ou corrompido)
-            if (dados == null) {
-                System.out.println("Nenhum dado anterior encontrado.");
-                return;
-            }
+    /**
+     * Salva todos os dados atuais (clientes, produtos e pedidos) dentro de um arquivo JSON.
+     * Isso serve para que, quando o programa for fechado, os dados não se percam.
+     * Depois de salvar, o journal é esvaziado, pois tudo já está no snapshot.
+     */
+    private static void salvarDados() {
+        try {
+            if (journal != null) journal.rotacionar(); // o conteúdo do journal passa a fazer parte do snapshot
+            // Lida antes da cópia: esses pedidos já estão FINALIZADOS e vão assim para o snapshot
+            long confirmados = filaDuravel != null ? filaDuravel.posicaoConfirmada() : 0;
+            gravarSnapshot(copiarDados());
+            if (journal != null) journal.descartarRotacionado();
+            if (filaDuravel != null) filaDuravel.avancarCheckpoint(confirmados); // sem journal, só avança aqui
+            System.out.println("Dados salvos em " + descricaoSnapshot());
+        } catch (IOException e) {
+            // Se algo der errado (ex: não consegue escrever no arquivo), mostra erro.
+            // O journal continua no disco, então nada do que foi registrado se perde.
+            System.out.println("Falha ao salvar dados: " + e.getMessage());
+        }
+    }
 
-            // Limpa as listas antigas e substitui pelos dados carregados
-            clientes.clear();
-            produtos.clear();
-            pedidos.clear();
+    /**
+     * Grava o snapshot completo no dados.json (ou nos arquivos das partições), em JSON ou no
+     * formato binário.
+     *
+     * O JSON é escrito aos poucos direto no arquivo (sem montar o texto inteiro na memória).
+     * Para não corromper o arquivo anterior se algo falhar no meio, a escrita vai para um
+     * arquivo temporário que só depois substitui o dados.json.
+     * Com -Dpedidos.jsonCompacto=true o arquivo é gravado sem indentação (menor e mais rápido).
+     * É "synchronized" porque pode ser chamado pela compactação em segundo plano.
+     */
+    private static synchronized void gravarSnapshot(DadosPersistidos dados) throws IOException {
+        String formato = System.getProperty("pedidos.formato");
+        Formato escolhido = formato != null ? Formato.valueOf(formato.toUpperCase()) : formatoSnapshot;
+        long inicio = System.nanoTime();
+        long bytes;
+        if (PARTICOES_SNAPSHOT > 1) {
+            bytes = gravarParticoes(dados, escolhido);
+        } else {
+            gravarArquivo(dados, Path.of(ARQUIVO_DADOS), escolhido);
+            bytes = Files.size(Path.of(ARQUIVO_DADOS));
+            removerParticoes(0); // sobras de quando o snapshot era particionado
+        }
+        processor.getMetricas().registrarSalvamento(System.nanoTime() - inicio, bytes);
+    }
 
-            if (dados.clientes != null) {
-                clientes.addAll(dados.clientes);
-            }
-            if (dados.produtos != null) {
-                produtos.addAll(dados.produtos);
-            }
+    /** Arquivo de uma partição do snapshot: dados.0.json, dados.1.json, ... */
+    private static Path arquivoParticao(int particao) {
+        return Path.of(ARQUIVO_DADOS.replace(".json", "." + particao + ".json"));
+    }
 
-            // Cria um mapa para ligar o ID de cada produto ao objeto real
-            // (isso ajuda a atualizar os produtos dentro dos pedidos)
-            Map<Integer, Produto> produtosPorId = new HashMap<>();
-            produtos.forEach(produto -> produtosPorId.put(produto.getId(), produto));
+    /** Nome do(s) arquivo(s) do snapshot, para as mensagens. */
+    private static String descricaoSnapshot() {
+        if (PARTICOES_SNAPSHOT == 1) return ARQUIVO_DADOS;
+        return arquivoParticao(0) + " ... " + arquivoParticao(PARTICOES_SNAPSHOT - 1);
+    }
 
-            if (dados.pedidos != null) {
-                for (Pedido pedido : dados.pedidos) {
-                    pedidos.add(pedido); // adiciona o pedido na lista principal
+    /**
+     * Divide os dados pela partição do cliente e grava um arquivo por partição, vários ao mesmo
+     * tempo. Cada arquivo pode ser lido sozinho: tem os clientes da partição e seus pedidos, os
+     * produtos da partição e uma cópia dos produtos de outras partições usados nesses pedidos.
+     * O dados.json e as partições que sobraram de um salvamento com mais partições só são apagados
+     * depois que todos os arquivos novos foram gravados.
+     *
+     * @return total de bytes gravados
+     */
+    private static long gravarParticoes(DadosPersistidos dados, Formato formato) throws IOException {
+        DadosPersistidos[] partes = dividir(dados, PARTICOES_SNAPSHOT);
+        ExecutorService gravadores = Executors.newFixedThreadPool(
+                Math.min(partes.length, Runtime.getRuntime().availableProcessors()),
+                PedidoProcessor.fabrica("snapshot-particao"));
+        long bytes = 0;
+        try {
+            List<Future<Long>> gravacoes = new ArrayList<>();
+            for (int i = 0; i < partes.length; i++) {
+                DadosPersistidos parte = partes[i];
+                Path destino = arquivoParticao(i);
+                gravacoes.add(gravadores.submit(() -> {
+                    gravarArquivo(parte, destino, formato);
+                    return Files.size(destino);
+                }));
+            }
+            for (Future<Long> gravacao : gravacoes) bytes += aguardar(gravacao);
+        } finally {
+            gravadores.shutdownNow();
+        }
+        Files.deleteIfExists(Path.of(ARQUIVO_DADOS));
+        removerParticoes(partes.length);
+        return bytes;
+    }
 
-                    // Atualiza a referência de cada produto dentro dos itens do pedido
-                    if (pedido.getItens() != null) {
-                        pedido.getItens().forEach(item -> {
-                            Produto produto = produtosPorId.get(item.getProduto().getId());
-                            if (produto != null) item.atualizarProduto(produto);
-                        });
-                    }
+    /** Separa clientes, pedidos e produtos pela partição (ver PedidoProcessor.particao). */
+    private static DadosPersistidos[] dividir(DadosPersistidos dados, int quantidade) {
+        DadosPersistidos[] partes = new DadosPersistidos[quantidade];
+        List<IndiceInt<Produto>> produtosIncluidos = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            partes[i] = new DadosPersistidos();
+            partes[i].clientes = new ArrayList<>();
+            partes[i].produtos = new ArrayList<>();
+            partes[i].pedidos = new ArrayList<>();
+            produtosIncluidos.add(new IndiceInt<>());
+        }
+        for (Cliente cliente : dados.clientes) {
+            partes[PedidoProcessor.particao(cliente.getId(), quantidade)].clientes.add(cliente);
+        }
+        for (Produto produto : dados.produtos) {
+            int particao = PedidoProcessor.particao(produto.getId(), quantidade);
+            partes[particao].produtos.add(produto);
+            produtosIncluidos.get(particao).colocar(produto.getId(), produto);
+        }
+        for (Pedido pedido : dados.pedidos) {
+            int particao = PedidoProcessor.particao(pedido.getCliente().getId(), quantidade);
+            partes[particao].pedidos.add(pedido);
+            for (ItemPedido item : pedido.getItens()) {
+                Produto produto = item.getProduto();
+                if (produtosIncluidos.get(particao).colocarSeAusente(produto.getId(), produto) == null) {
+                    partes[particao].produtos.add(produto); // produto de outra partição usado aqui
                 }
             }
+        }
+        return partes;
+    }
+
+    /** Apaga os arquivos de partição a partir do número informado (do último para o primeiro). */
+    private static void removerParticoes(int aPartirDe) throws IOException {
+        int ultima = aPartirDe - 1;
+        while (Files.exists(arquivoParticao(ultima + 1))) ultima++;
+        for (int i = ultima; i >= aPartirDe; i--) Files.delete(arquivoParticao(i));
+    }
+
+    /** Resultado de uma tarefa de gravação ou leitura, repassando a IOException original. */
+    private static <T> T aguardar(Future<T> tarefa) throws IOException {
+        try {
+            return tarefa.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Operação interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException erro) throw erro;
+            if (e.getCause() instanceof RuntimeException erro) throw erro;
+            throw new IOException(e.getCause());
+        }
+    }
 
-            // Recoloca na fila de processamento todos os pedidos que estavam pendentes
-            pedidos.stream()
-                   .filter(p -> p.getStatus() == StatusPedido.FILA || p.getStatus() == StatusPedido.PROCESSANDO)
-                   .forEach(processor::adicionarPedido);
+    /** Grava os dados no formato pedido, passando por um arquivo temporário. */
+    private static void gravarArquivo(DadosPersistidos dados, Path destino, Formato formato) throws IOException {
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
 
-            System.out.println("Dados carregados!");
-        } catch (RuntimeException e) {
-            // Caso o arquivo tenha um conteúdo que não segue o formato JSON esperado
-            System.out.println("Conteúdo de dados.json inválido. Um novo arquivo será gerado ao salvar.");
+        try {
+            if (formato == Formato.BINARIO) {
+                SnapshotBinario.gravar(dados, temporario);
+            } else {
+                // Usa "try-with-resources" para abrir o arquivo e garantir que ele será fechado corretamente depois
+                try (Writer writer = new BufferedWriter(new FileWriter(temporario.toFile()), TAMANHO_BUFFER_ESCRITA)) {
+                    // Converte os dados em texto JSON usando o JsonUtil, já gravando no arquivo
+                    JsonUtil.toJson(dados, writer, Boolean.getBoolean("pedidos.jsonCompacto"));
+                }
+            }
         } catch (IOException e) {
-            // Caso não consiga abrir ou ler o arquivo
-            System.out.println("Falha ao carregar dados: " + e.getMessage());
+            Files.deleteIfExists(temporario);
+            throw e;
         }
+
+        // Troca o arquivo antigo pelo novo de uma vez só
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
     /**
-     * Classe interna usada para agrupar todos os dados que serão salvos no arquivo JSON.
-     * É como uma "caixa" que guarda listas de clientes, produtos e pedidos.
+     * Lê um snapshot, descobrindo o formato pelo cabeçalho do arquivo.
+     * Devolve null se o arquivo estiver vazio.
      */
-    private static class DadosPersistidos {
-        List<Cliente> clientes;
-        List<Produto> produtos;
-        List<Pedido> pedidos;
+    private static DadosPersistidos lerArquivo(Path origem) throws IOException {
+        if (SnapshotBinario.ehBinario(origem)) {
+            return SnapshotBinario.ler(origem); // lido em bloco para um buffer, sem parsing de texto
+        }
+        try (Reader reader = new FileReader(origem.toFile())) {
+            return JsonUtil.fromJson(reader);
+        }
+    }
+
+    /** Arquivos do snapshot que existem: o dados.json e as partições dados.0.json, dados.1.json, ... */
+    private static List<Path> arquivosSnapshot() {
+        List<Path> arquivos = new ArrayList<>();
+        if (Files.exists(Path.of(ARQUIVO_DADOS))) arquivos.add(Path.of(ARQUIVO_DADOS));
+        for (int i = 0; Files.exists(arquivoParticao(i)); i++) arquivos.add(arquivoParticao(i));
+        return arquivos;
     }
 
     /**
-     * Classe responsável por converter os dados do sistema para JSON e o contrário (JSON → objetos).
-     * Faz isso manualmente, sem depender de bibliotecas externas como Gson ou Jackson.
+     * Lê vários arquivos do snapshot ao mesmo tempo e junta o conteúdo, em ordem de ID.
+     * Um produto usado por pedidos de outras partições aparece em mais de um arquivo: fica uma
+     * cópia só, e os itens passam a apontar para ela. Clientes e pedidos repetidos só aparecem se
+     * um salvamento foi interrompido (arquivos novos e antigos juntos); fica a primeira cópia, e
+     * o journal, que só é descartado depois de um salvamento completo, traz o estado mais recente.
+     * Devolve null se todos os arquivos estiverem vazios.
      */
-    private static class JsonUtil {
-
-        /**
-         * Transforma as listas de clientes, produtos e pedidos em texto JSON.
-         * Usa StringBuilder para montar o texto de forma organizada e com identação.
-         */
-        private static String toJson(DadosPersistidos dados) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("{\n"); // começa o objeto JSON
-            appendClientes(sb, dados.clientes, 1); // escreve a parte dos clientes
-            sb.append(",\n");
-            appendProdutos(sb, dados.produtos, 1); // escreve a parte dos produtos
-            sb.append(",\n");
-            appendPedidos(sb, dados.pedidos, 1);   // escreve a parte dos pedidos
-            sb.append('\n').append('}'); // fecha o JSON
-            return sb.toString(); // devolve o texto pronto
+    private static DadosPersistidos lerParticoes(List<Path> arquivos) throws IOException {
+        List<DadosPersistidos> partes = new ArrayList<>();
+        ExecutorService leitores = Executors.newFixedThreadPool(
+                Math.min(arquivos.size(), Runtime.getRuntime().availableProcessors()),
+                PedidoProcessor.fabrica("snapshot-particao"));
+        try {
+            List<Future<DadosPersistidos>> leituras = new ArrayList<>();
+            for (Path arquivo : arquivos) leituras.add(leitores.submit(() -> lerArquivo(arquivo)));
+            for (Future<DadosPersistidos> leitura : leituras) {
+                DadosPersistidos parte = aguardar(leitura);
+                if (parte != null) partes.add(parte);
+            }
+        } finally {
+            leitores.shutdownNow();
         }
-
-        /**
-         * Faz o caminho inverso: lê um texto JSON e recria os objetos (clientes, produtos e pedidos).
-         */
-        private static DadosPersistidos fromJson(String json) {
-            // Se o texto estiver vazio, não há o que carregar
-            if (json == null || json.trim().isEmpty()) {
-                return null;
+        if (partes.isEmpty()) return null;
+
+        DadosPersistidos dados = new DadosPersistidos();
+        dados.clientes = new ArrayList<>();
+        dados.produtos = new ArrayList<>();
+        dados.pedidos = new ArrayList<>();
+        IndiceInt<Cliente> clientesPorId = new IndiceInt<>();
+        IndiceInt<Produto> produtosPorId = new IndiceInt<>();
+        IndiceInt<Pedido> pedidosPorId = new IndiceInt<>();
+        for (DadosPersistidos parte : partes) {
+            for (Cliente cliente : parte.clientes) {
+                if (clientesPorId.colocarSeAusente(cliente.getId(), cliente) == null) dados.clientes.add(cliente);
+            }
+            for (Produto produto : parte.produtos) {
+                if (produtosPorId.colocarSeAusente(produto.getId(), produto) == null) dados.produtos.add(produto);
             }
+        }
+        for (DadosPersistidos parte : partes) {
+            for (Pedido pedido : parte.pedidos) {
+                if (pedidosPorId.colocarSeAusente(pedido.getId(), pedido) != null) continue;
+                for (ItemPedido item : pedido.getItens()) {
+                    Produto unico = produtosPorId.buscar(item.getProduto().getId());
+                    if (item.getProduto() != unico) item.atualizarProduto(unico);
+                }
+                dados.pedidos.add(pedido);
+            }
+        }
+        dados.clientes.sort(Comparator.comparingInt(Cliente::getId));
+        dados.produtos.sort(Comparator.comparingInt(Produto::getId));
+        dados.pedidos.sort(Comparator.comparingInt(Pedido::getId));
+        return dados;
+    }
 
-            // Usa o Parser interno para interpretar o texto JSON em estruturas básicas (Mapas e Listas)
-            Object parsed = new Parser(json).parseValue();
+    /**
+     * Trata os comandos passados na linha de comando.
+     *   converter <origem> <destino> [JSON|BINARIO]
+     * converte um snapshot de um formato para o outro (por padrão, para o formato oposto ao da origem).
+     *   import --file <arquivo.csv|arquivo.ndjson> [--formato CSV|NDJSON] [--threads N]
+     * importa clientes, produtos e pedidos de um arquivo (ver ImportadorLote) e salva os dados.
+     *   export [--file <arquivo>|-] [--formato CSV|NDJSON] [--status S] [--de AAAA-MM-DD] [--ate AAAA-MM-DD]
+     * exporta os pedidos, um item por linha (ver ExportadorPedidos); sem --file, escreve na saída padrão.
+     *   servidor [--porta N]
+     * atende só pela API HTTP (ver ServidorHttp), sem menu, até o processo receber Ctrl+C.
+     */
+    private static void executarComando(String[] args) {
+        switch (args[0]) {
+            case "converter" -> converter(args);
+            case "import" -> importar(args);
+            case "export" -> exportar(args);
+            case "servidor" -> servidor(args);
+            default -> {
+                System.out.println("Uso: java -cp out app.Main converter <origem> <destino> [JSON|BINARIO]");
+                System.out.println("     java -cp out app.Main import --file <arquivo.csv|arquivo.ndjson>"
+                        + " [--formato CSV|NDJSON] [--threads N]");
+                System.out.println("     " + USO_EXPORTAR);
+                System.out.println("     java -cp out app.Main servidor [--porta N]");
+            }
+        }
+    }
 
-            // Se o resultado não for um "objeto JSON", lança erro
-            if (!(parsed instanceof Map<?, ?> mapa)) {
-                throw new IllegalArgumentException("JSON deve representar um objeto");
+    /**
+     * Roda o sistema sem o menu, atendendo pela API HTTP (porta padrão: -Dpedidos.httpPorta ou 8080).
+     * Ao receber Ctrl+C (ou SIGTERM), encerra como a opção "Salvar e Sair" do menu.
+     */
+    private static void servidor(String[] args) {
+        int porta = Integer.getInteger("pedidos.httpPorta", 8080);
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (!args[i].equals("--porta")) throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                porta = Integer.parseInt(args[++i]);
             }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) { // inclui NumberFormatException
+            System.out.println("Uso: java -cp out app.Main servidor [--porta N]");
+            return;
+        }
 
-            // Cria o contêiner e reconstrói as listas de entidades (clientes, produtos e pedidos)
-            DadosPersistidos dados = new DadosPersistidos();
-            dados.clientes = parseClientes(obterLista(mapa, "clientes"));
-            dados.produtos = parseProdutos(obterLista(mapa, "produtos"));
-            dados.pedidos = parsePedidos(obterLista(mapa, "pedidos"), dados.clientes, dados.produtos);
-            return dados;
+        iniciar();
+        iniciarServidorHttp(porta);
+        if (servidorHttp == null) {
+            encerrar();
+            return;
         }
+        Runtime.getRuntime().addShutdownHook(new Thread(Main::encerrar, "encerramento"));
+        System.out.println("Ctrl+C para salvar e sair.");
+        try {
+            Thread.currentThread().join(); // As requisições rodam nas threads do servidor
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        /** Escreve a parte dos clientes no JSON. */
-        private static void appendClientes(StringBuilder sb, List<Cliente> clientes, int nivel) {
-            indent(sb, nivel).append("\"clientes\": ["); // abre o campo "clientes"
+    private static final String USO_EXPORTAR = "java -cp out app.Main export [--file <arquivo>|-]"
+            + " [--formato CSV|NDJSON] [--status S] [--de AAAA-MM-DD] [--ate AAAA-MM-DD] [--threads N]";
 
-            // Se houver clientes cadastrados, escreve um por um
-            if (clientes != null && !clientes.isEmpty()) {
-                sb.append('\n');
-                for (int i = 0; i < clientes.size(); i++) {
-                    Cliente c = clientes.get(i);
-                    indent(sb, nivel + 1).append('{').append('\n');
-                    indent(sb, nivel + 2).append("\"id\": ").append(c.getId()).append(',').append('\n');
-                    indent(sb, nivel + 2).append("\"nome\": \"").append(escapar(c.getNome())).append("\",").append('\n');
-                    indent(sb, nivel + 2).append("\"email\": \"").append(escapar(c.getEmail())).append("\"").append('\n');
-                    indent(sb, nivel + 1).append('}');
-                    if (i < clientes.size() - 1) sb.append(','); // adiciona vírgula se não for o último
-                    sb.append('\n');
-                }
-                indent(sb, nivel).append(']');
-            } else {
-                sb.append(']'); // caso não tenha clientes, só fecha o colchete
-            }
-        }
-
-        /** Escreve a parte dos produtos no JSON. */
-        private static void appendProdutos(StringBuilder sb, List<Produto> produtos, int nivel) {
-            indent(sb, nivel).append("\"produtos\": [");
-            if (produtos != null && !produtos.isEmpty()) {
-                sb.append('\n');
-                for (int i = 0; i < produtos.size(); i++) {
-                    Produto p = produtos.get(i);
-                    indent(sb, nivel + 1).append('{').append('\n');
-                    indent(sb, nivel + 2).append("\"id\": ").append(p.getId()).append(',').append('\n');
-                    indent(sb, nivel + 2).append("\"nome\": \"").append(escapar(p.getNome())).append("\",").append('\n');
-                    indent(sb, nivel + 2).append("\"preco\": ").append(p.getPreco()).append(',').append('\n');
-                    indent(sb, nivel + 2).append("\"categoria\": \"").append(p.getCategoria()).append("\"").append('\n');
-                    indent(sb, nivel + 1).append('}');
-                    if (i < produtos.size() - 1) sb.append(',');
-                    sb.append('\n');
-                }
-                indent(sb, nivel).append(']');
-            } else {
-                sb.append(']');
-            }
-        }
-
-
-        /** 
-         * Escreve a lista de pedidos no formato JSON.
-         * Aqui, cada pedido é convertido em texto, mostrando o cliente, 
-         * os itens comprados e o status do pedido.
-         */
-        private static void appendPedidos(StringBuilder sb, List<Pedido> pedidos, int nivel) {
-            // Começa o campo "pedidos" no JSON
-            indent(sb, nivel).append("\"pedidos\": [");
-            
-            // Verifica se há pedidos para salvar
-            if (pedidos != null && !pedidos.isEmpty()) {
-                sb.append('\n');
-                
-                // Percorre cada pedido da lista
-                for (int i = 0; i < pedidos.size(); i++) {
-                    Pedido pedido = pedidos.get(i);
-
-                    // Abre um novo objeto JSON para o pedido
-                    indent(sb, nivel + 1).append('{').append('\n');
-                    indent(sb, nivel + 2).append("\"id\": ").append(pedido.getId()).append(',').append('\n');
-
-                    // Adiciona os dados do cliente dentro do pedido
-                    indent(sb, nivel + 2).append("\"cliente\": {").append('\n');
-                    indent(sb, nivel + 3).append("\"id\": ").append(pedido.getCliente().getId()).append(',').append('\n');
-                    indent(sb, nivel + 3).append("\"nome\": \"").append(escapar(pedido.getCliente().getNome())).append("\",").append('\n');
-                    indent(sb, nivel + 3).append("\"email\": \"").append(escapar(pedido.getCliente().getEmail())).append("\"").append('\n');
-                    indent(sb, nivel + 2).append("},\n");
-
-                    // Adiciona os itens comprados dentro do pedido
-                    indent(sb, nivel + 2).append("\"itens\": [");
-                    if (!pedido.getItens().isEmpty()) {
-                        sb.append('\n');
-                        
-                        // Para cada item dentro do pedido
-                        for (int j = 0; j < pedido.getItens().size(); j++) {
-                            ItemPedido item = pedido.getItens().get(j);
-
-                            indent(sb, nivel + 3).append('{').append('\n');
-                            // Adiciona informações do produto dentro do item
-                            indent(sb, nivel + 4).append("\"produto\": {").append('\n');
-                            indent(sb, nivel + 5).append("\"id\": ").append(item.getProduto().getId()).append(',').append('\n');
-                            indent(sb, nivel + 5).append("\"nome\": \"").append(escapar(item.getProduto().getNome())).append("\",").append('\n');
-                            indent(sb, nivel + 5).append("\"preco\": ").append(item.getProduto().getPreco()).append(',').append('\n');
-                            indent(sb, nivel + 5).append("\"categoria\": \"").append(item.getProduto().getCategoria()).append("\"").append('\n');
-                            indent(sb, nivel + 4).append("},\n");
-
-                            // Adiciona a quantidade do produto comprada
-                            indent(sb, nivel + 4).append("\"quantidade\": ").append(item.getQuantidade()).append('\n');
-                            indent(sb, nivel + 3).append('}');
-                            if (j < pedido.getItens().size() - 1) sb.append(','); // Adiciona vírgula se não for o último item
-                            sb.append('\n');
-                        }
-                        indent(sb, nivel + 2).append(']');
-                    } else {
-                        sb.append(']');
-                    }
-
-                    // Adiciona o status (FILA, PROCESSANDO, FINALIZADO)
-                    sb.append(',').append('\n');
-                    indent(sb, nivel + 2).append("\"status\": \"").append(pedido.getStatus()).append("\"").append('\n');
-                    indent(sb, nivel + 1).append('}');
-                    if (i < pedidos.size() - 1) sb.append(','); // vírgula entre pedidos
-                    sb.append('\n');
-                }
-                indent(sb, nivel).append(']');
-            } else {
-                sb.append(']');
-            }
-        }
-
-        /** 
-         * Adiciona espaços em branco para "indentar" (deixar o JSON bonito e organizado).
-         * Cada nível aumenta a quantidade de espaços antes das linhas.
-         */
-        private static StringBuilder indent(StringBuilder sb, int nivel) {
-            for (int i = 0; i < nivel; i++) {
-                sb.append("  "); // dois espaços por nível
-            }
-            return sb;
-        }
-
-        /** 
-         * Garante que o texto não tenha caracteres que possam quebrar o formato JSON.
-         * Exemplo: aspas dentro de nomes, barras, ou quebras de linha.
-         */
-        private static String escapar(String valor) {
-            if (valor == null) return "";
-            StringBuilder sb = new StringBuilder();
-            for (char c : valor.toCharArray()) {
-                switch (c) {
-                    case '\\' -> sb.append("\\\\"); // barra invertida vira \\
-                    case '"' -> sb.append("\\\"");   // aspas duplas viram \"
-                    case '\n' -> sb.append("\\n");   // quebra de linha vira \n
-                    case '\r' -> sb.append("\\r");   // retorno de carro vira \r
-                    case '\t' -> sb.append("\\t");   // tabulação vira \t
-                    default -> sb.append(c);         // outros caracteres ficam iguais
+    /**
+     * Exporta os pedidos dos dados salvos (snapshot + journal), um item por linha, filtrando por
+     * status e por data de criação (--de e --ate são inclusivos, no fuso horário local).
+     * Sem --file (ou com "-") os dados vão para a saída padrão e as mensagens para a saída de erro.
+     */
+    private static void exportar(String[] args) {
+        String destino = "-";
+        ExportadorPedidos.Formato formato = null;
+        StatusPedido status = null;
+        long de = Long.MIN_VALUE;
+        long ate = Long.MAX_VALUE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--file" -> destino = args[++i];
+                    case "--formato" -> formato = ExportadorPedidos.Formato.valueOf(args[++i].toUpperCase());
+                    case "--status" -> status = StatusPedido.valueOf(args[++i].toUpperCase());
+                    case "--de" -> de = inicioDoDia(LocalDate.parse(args[++i]));
+                    case "--ate" -> ate = inicioDoDia(LocalDate.parse(args[++i]).plusDays(1));
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
                 }
             }
-            return sb.toString();
-        }
-
-        /** 
-         * Busca uma lista (array) dentro do JSON.
-         * Se o campo não existir ou não for uma lista, cria uma lista vazia ou lança erro.
-         */
-        private static List<?> obterLista(Map<?, ?> mapa, String chave) {
-            Object valor = mapa.get(chave);
-            if (valor == null) {
-                return new ArrayList<>();
-            }
-            if (valor instanceof List<?> lista) {
-                return lista;
-            }
-            throw new IllegalArgumentException("Campo " + chave + " deve ser uma lista");
-        }
-
-        /** 
-         * Converte uma lista "crua" (vinda do JSON) em objetos Cliente de verdade.
-         * Ou seja, pega os dados e transforma em instâncias da classe Cliente.
-         */
-        private static List<Cliente> parseClientes(List<?> lista) {
-            List<Cliente> clientes = new ArrayList<>();
-            for (Object obj : lista) {
-                if (!(obj instanceof Map<?, ?> mapa)) continue; // ignora se não for um objeto
-                int id = ((Number) mapa.get("id")).intValue();
-                String nome = (String) mapa.get("nome");
-                String email = (String) mapa.get("email");
-                clientes.add(new Cliente(id, nome, email)); // cria novo cliente
-            }
-            return clientes;
-        }
-
-        /** 
-         * Converte uma lista "crua" (vinda do JSON) em objetos Produto.
-         * Assim, os produtos voltam a ser objetos da aplicação.
-         */
-        private static List<Produto> parseProdutos(List<?> lista) {
-            List<Produto> produtos = new ArrayList<>();
-            for (Object obj : lista) {
-                if (!(obj instanceof Map<?, ?> mapa)) continue;
-                int id = ((Number) mapa.get("id")).intValue();
-                String nome = (String) mapa.get("nome");
-                double preco = ((Number) mapa.get("preco")).doubleValue();
-                Categoria categoria = Categoria.valueOf(((String) mapa.get("categoria")).toUpperCase());
-                produtos.add(new Produto(id, nome, preco, categoria));
-            }
-            return produtos;
-        }
-
-        /**
-         * Converte a lista de pedidos vinda do JSON em objetos Pedido completos,
-         * com cliente, produtos e itens. 
-         * Também liga os pedidos aos objetos já existentes de Cliente e Produto.
-         */
-        private static List<Pedido> parsePedidos(List<?> lista, List<Cliente> clientes, List<Produto> produtos) {
-            // Cria mapas para achar clientes e produtos pelo ID
-            Map<Integer, Cliente> clientesPorId = new HashMap<>();
-            for (Cliente cliente : clientes) {
-                clientesPorId.put(cliente.getId(), cliente);
-            }
-
-            Map<Integer, Produto> produtosPorId = new HashMap<>();
-            for (Produto produto : produtos) {
-                produtosPorId.put(produto.getId(), produto);
-            }
-
-            List<Pedido> pedidos = new ArrayList<>();
-
-            // Percorre cada pedido vindo do JSON
-            for (Object obj : lista) {
-                if (!(obj instanceof Map<?, ?> mapa)) continue;
-                int id = ((Number) mapa.get("id")).intValue();
-
-                // Lê os dados do cliente dentro do pedido
-                Map<?, ?> clienteJson = (Map<?, ?>) mapa.get("cliente");
-                int clienteId = ((Number) clienteJson.get("id")).intValue();
-
-                // Tenta achar o cliente existente pelo ID, senão cria um novo
-                Cliente cliente = clientesPorId.getOrDefault(clienteId,
-                        new Cliente(clienteId, (String) clienteJson.get("nome"), (String) clienteJson.get("email")));
-
-                // Cria o pedido com o cliente
-                Pedido pedido = new Pedido(id, cliente);
-
-                // Define o status (ex: FILA, PROCESSANDO, FINALIZADO)
-                pedido.setStatus(StatusPedido.valueOf(((String) mapa.get("status")).toUpperCase()));
-
-                // Lê os itens do pedido
-                Object itensObj = mapa.get("itens");
-                if (itensObj instanceof List<?> itens) {
-                    for (Object itemObj : itens) {
-                        if (!(itemObj instanceof Map<?, ?> itemMapa)) continue;
-                        Map<?, ?> produtoMapa = (Map<?, ?>) itemMapa.get("produto");
-                        int produtoId = ((Number) produtoMapa.get("id")).intValue();
-
-                        // Recupera o produto pelo ID, ou cria um novo se não achar
-                        Produto produto = produtosPorId.getOrDefault(produtoId,
-                                new Produto(produtoId,
-                                        (String) produtoMapa.get("nome"),
-                                        ((Number) produtoMapa.get("preco")).doubleValue(),
-                                        Categoria.valueOf(((String) produtoMapa.get("categoria")).toUpperCase())));
-
-                        // Lê a quantidade do item e adiciona ao pedido
-                        int quantidade = ((Number) itemMapa.get("quantidade")).intValue();
-                        pedido.adicionarItem(produto, quantidade);
-                    }
-                }
-                pedidos.add(pedido); // adiciona o pedido completo à lista
-            }
-            return pedidos;
-        }
-
-        /**
-         * Classe interna responsável por interpretar texto JSON e convertê-lo
-         * em estruturas Java como Map (para objetos) e List (para arrays).
-         * 
-         * Esse parser é "manual": percorre o texto caractere por caractere,
-         * interpretando tipos básicos (objetos, arrays, strings, números, booleanos e null).
-         */
-        private static class Parser {
-            private final String json; // Texto JSON completo a ser analisado
-            private int pos;           // Índice atual do "cursor" no texto
-
-            // Construtor que recebe o texto JSON
-            Parser(String json) {
-                this.json = json;
-            }
-
-            /**
-             * Método principal do parser: identifica o tipo do próximo valor JSON
-             * com base no primeiro caractere e chama o método apropriado.
-             */
-            Object parseValue() {
-                skipWhitespace(); // Ignora espaços em branco antes do valor
-                if (pos >= json.length()) {
-                    throw new IllegalArgumentException("JSON inesperadamente vazio");
-                }
-                char c = json.charAt(pos);
-                // Decide o tipo de valor pelo primeiro caractere
-                return switch (c) {
-                    case '{' -> parseObject();  // Objeto
-                    case '[' -> parseArray();   // Array
-                    case '"' -> parseString();  // String
-                    case 't', 'f' -> parseBoolean(); // true/false
-                    case 'n' -> parseNull();    // null
-                    default -> parseNumber();   // Número
-                };
-            }
-
-            /**
-             * Lê um objeto JSON no formato: { "chave": valor, "outra": valor }
-             * Retorna um Map<String, Object> com as chaves e valores.
-             */
-            private Map<String, Object> parseObject() {
-                Map<String, Object> mapa = new HashMap<>();
-                pos++; // Avança além da chave '{'
-                skipWhitespace();
-
-                // Caso o objeto esteja vazio, como {}
-                if (peek('}')) {
-                    pos++;
-                    return mapa;
-                }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | DateTimeException e) {
+            System.out.println("Uso: " + USO_EXPORTAR);
+            return;
+        }
+        boolean saidaPadrao = destino.equals("-");
+        if (formato == null) {
+            formato = destino.toLowerCase(Locale.ROOT).endsWith(".csv")
+                    ? ExportadorPedidos.Formato.CSV : ExportadorPedidos.Formato.NDJSON;
+        }
 
-                // Loop até encontrar o final do objeto '}'
-                while (true) {
-                    skipWhitespace();
-                    String chave = parseString(); // Lê a chave (sempre string)
-                    skipWhitespace();
-                    expect(':'); // Espera o caractere ':'
-                    Object valor = parseValue(); // Lê o valor da chave
-                    mapa.put(chave, valor); // Adiciona no mapa
-
-                    skipWhitespace();
-                    // Se o próximo caractere for '}', fecha o objeto
-                    if (peek('}')) {
-                        pos++;
-                        break;
-                    }
-                    // Caso contrário, espera uma vírgula ',' entre os pares
-                    expect(',');
-                }
-                return mapa;
-            }
-
-            /**
-             * Lê um array JSON no formato: [ valor, valor, ... ]
-             * Retorna uma lista com os valores lidos.
-             */
-            private List<Object> parseArray() {
-                List<Object> lista = new ArrayList<>();
-                pos++; // Avança além do '['
-                skipWhitespace();
-
-                // Caso o array esteja vazio, como []
-                if (peek(']')) {
-                    pos++;
-                    return lista;
-                }
+        // Na saída padrão só podem sair os dados: as mensagens (inclusive as do carregamento) vão para stderr
+        if (saidaPadrao) System.setOut(System.err);
+        carregarDados();
+
+        long inicio = System.nanoTime();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(saidaPadrao
+                ? new FileOutputStream(FileDescriptor.out)
+                : new FileOutputStream(destino), StandardCharsets.UTF_8), TAMANHO_BUFFER_ESCRITA)) {
+            ExportadorPedidos exportador = new ExportadorPedidos(formato, status, de, ate, threads);
+            exportador.exportar(pedidos, writer);
+            System.out.println("Exportados " + exportador.getPedidosExportados() + " pedidos ("
+                    + exportador.getLinhasExportadas() + " linhas) em "
+                    + (System.nanoTime() - inicio) / 1_000_000 + " ms.");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Falha na exportação: " + e.getMessage());
+        }
+    }
 
-                // Loop até encontrar o final do array ']'
-                while (true) {
-                    Object valor = parseValue(); // Lê o próximo valor
-                    lista.add(valor);
-                    skipWhitespace();
-
-                    if (peek(']')) { // Se o array terminou
-                        pos++;
-                        break;
-                    }
-                    expect(','); // Espera uma vírgula entre os valores
-                }
-                return lista;
-            }
-
-            /**
-             * Lê uma string JSON, tratando caracteres de escape e Unicode.
-             * Exemplo: "Olá\nMundo" ou "Caminho\\arquivo.txt"
-             */
-            private String parseString() {
-                expect('"'); // Garante que a string começa com aspas
-                StringBuilder sb = new StringBuilder();
-
-                while (pos < json.length()) {
-                    char c = json.charAt(pos++);
-                    if (c == '"') {
-                        break; // Fim da string
-                    }
-
-                    // Trata caracteres de escape como \" ou \n
-                    if (c == '\\') {
-                        if (pos >= json.length())
-                            throw new IllegalArgumentException("Escape inválido");
-
-                        char esc = json.charAt(pos++);
-                        switch (esc) {
-                            case '"', '\\', '/' -> sb.append(esc);   // Aspas, barra ou barra invertida
-                            case 'b' -> sb.append('\b');             // Backspace
-                            case 'f' -> sb.append('\f');             // Form feed
-                            case 'n' -> sb.append('\n');             // Nova linha
-                            case 'r' -> sb.append('\r');             // Retorno de carro
-                            case 't' -> sb.append('\t');             // Tabulação
-                            case 'u' -> {                            // Unicode (\)
-                                if (pos + 4 > json.length())
-                                    throw new IllegalArgumentException("Escape unicode inválido");
-                                String hex = json.substring(pos, pos + 4); // Lê 4 dígitos hexadecimais
-                                sb.append((char) Integer.parseInt(hex, 16)); // Converte pra caractere
-                                pos += 4;
-                            }
-                            default -> throw new IllegalArgumentException("Escape inválido: \\" + esc);
-                        }
-                    } else {
-                        sb.append(c); // Caractere comum
-                    }
-                }
-                return sb.toString();
-            }
+    private static long inicioDoDia(LocalDate data) {
+        return data.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 
-            /**
-             * Lê um número JSON.
-             * Pode ser inteiro (ex: 42) ou decimal (ex: 3.14), com expoente opcional (ex: 1.2e10).
-             */
-            private Number parseNumber() {
-                int inicio = pos;
+    private static void converter(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Uso: java -cp out app.Main converter <origem> <destino> [JSON|BINARIO]");
+            return;
+        }
+        Path origem = Path.of(args[1]);
+        Path destino = Path.of(args[2]);
+        try {
+            Formato formatoOrigem = SnapshotBinario.ehBinario(origem) ? Formato.BINARIO : Formato.JSON;
+            Formato formatoDestino = args.length > 3
+                    ? Formato.valueOf(args[3].toUpperCase())
+                    : (formatoOrigem == Formato.JSON ? Formato.BINARIO : Formato.JSON);
 
-                // Sinal negativo opcional
-                if (peek('-')) pos++;
+            long inicio = System.nanoTime();
+            DadosPersistidos dados = lerArquivo(origem);
+            if (dados == null) {
+                System.out.println("Arquivo de origem vazio.");
+                return;
+            }
+            long lido = System.nanoTime();
+            gravarArquivo(dados, destino, formatoDestino);
+            long gravado = System.nanoTime();
+
+            System.out.println("Convertido " + formatoOrigem + " -> " + formatoDestino + ": "
+                    + dados.clientes.size() + " clientes, " + dados.produtos.size() + " produtos, "
+                    + dados.pedidos.size() + " pedidos (leitura " + (lido - inicio) / 1_000_000 + " ms, "
+                    + "gravação " + (gravado - lido) / 1_000_000 + " ms, " + Files.size(destino) + " bytes)");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Falha na conversão: " + e.getMessage());
+        }
+    }
 
-                // Parte inteira
-                while (pos < json.length() && Character.isDigit(json.charAt(pos))) pos++;
+    // Quantas rejeições da importação aparecem no console (todas vão para o arquivo .rejeitados)
+    private static final int REJEICOES_NO_CONSOLE = 20;
 
-                // Parte decimal opcional
-                if (peek('.')) {
-                    pos++;
-                    while (pos < json.length() && Character.isDigit(json.charAt(pos))) pos++;
+    /**
+     * Importa um arquivo de clientes, produtos e pedidos sem passar pelo menu. Os dados atuais
+     * são carregados, os registros válidos são inseridos e tudo é salvo em um novo snapshot.
+     * As linhas rejeitadas vão para <arquivo>.rejeitados com a mensagem de erro de cada uma.
+     * Pedidos importados que não estão FINALIZADOS são processados na próxima execução do menu.
+     * Não deve rodar enquanto o programa estiver aberto com o mesmo dados.json.
+     */
+    private static void importar(String[] args) {
+        Path arquivo = null;
+        ImportadorLote.Formato formato = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--file" -> arquivo = Path.of(args[++i]);
+                    case "--formato" -> formato = ImportadorLote.Formato.valueOf(args[++i].toUpperCase());
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
                 }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) { // inclui NumberFormatException
+            arquivo = null;
+        }
+        if (arquivo == null) {
+            System.out.println("Uso: java -cp out app.Main import --file <arquivo.csv|arquivo.ndjson>"
+                    + " [--formato CSV|NDJSON] [--threads N]");
+            return;
+        }
+        if (formato == null) formato = ImportadorLote.formatoDe(arquivo);
 
-                // Expoente opcional (e/E seguido de dígitos)
-                if (peek('e') || peek('E')) {
-                    pos++;
-                    if (peek('+') || peek('-')) pos++; // sinal do expoente
-                    while (pos < json.length() && Character.isDigit(json.charAt(pos))) pos++;
-                }
+        carregarDados();
+        abrirJournal(); // só para que o salvamento descarte o journal já incorporado ao snapshot
 
-                // Pega o número completo como substring
-                String numero = json.substring(inicio, pos);
+        ImportadorLote.Resultado resultado;
+        long inicio = System.nanoTime();
+        try {
+            resultado = new ImportadorLote(clientes, produtos, pedidos, threads).importar(arquivo, formato);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Falha na importação: " + e.getMessage());
+            fecharJournal();
+            return;
+        }
+        long duracaoMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+
+        List<ImportadorLote.Rejeicao> rejeicoes = resultado.getRejeicoes();
+        int importados = resultado.getClientes() + resultado.getProdutos() + resultado.getPedidos();
+        System.out.println("Importados " + resultado.getClientes() + " clientes, " + resultado.getProdutos()
+                + " produtos e " + resultado.getPedidos() + " pedidos em " + duracaoMs + " ms ("
+                + (importados + rejeicoes.size()) * 60_000L / duracaoMs + " linhas/min); "
+                + rejeicoes.size() + " linha(s) rejeitada(s).");
+        if (!rejeicoes.isEmpty()) gravarRejeicoes(arquivo, rejeicoes);
+
+        registrarPendentesImportados(resultado.getPedidosImportados());
+        salvarDados();
+        fecharJournal();
+    }
 
-                // Se tiver ponto ou expoente, converte para Double
-                if (numero.contains(".") || numero.contains("e") || numero.contains("E")) {
-                    return Double.parseDouble(numero);
-                }
+    /** Mostra as primeiras rejeições e grava todas em <arquivo>.rejeitados. */
+    private static void gravarRejeicoes(Path arquivo, List<ImportadorLote.Rejeicao> rejeicoes) {
+        rejeicoes.stream().limit(REJEICOES_NO_CONSOLE).forEach(r -> System.out.println("  " + r));
+        if (rejeicoes.size() > REJEICOES_NO_CONSOLE) {
+            System.out.println("  ... e mais " + (rejeicoes.size() - REJEICOES_NO_CONSOLE));
+        }
+        Path destino = arquivo.resolveSibling(arquivo.getFileName() + ".rejeitados");
+        try (Writer writer = Files.newBufferedWriter(destino)) {
+            for (ImportadorLote.Rejeicao rejeicao : rejeicoes) {
+                writer.write(rejeicao + "\t" + rejeicao.getConteudo() + "\n");
+            }
+            System.out.println("Rejeições gravadas em " + destino);
+        } catch (IOException e) {
+            System.out.println("Falha ao gravar as rejeições: " + e.getMessage());
+        }
+    }
 
-                // Caso contrário, tenta converter para inteiro (int ou long)
-                long valorLongo = Long.parseLong(numero);
-                if (valorLongo <= Integer.MAX_VALUE && valorLongo >= Integer.MIN_VALUE) {
-                    return (int) valorLongo;
-                }
-                return valorLongo;
+    /**
+     * Registra na fila durável os pedidos importados ainda não finalizados, para que o menu os
+     * retome. Se a fila ainda não existe, o menu já vai buscá-los no índice por status.
+     */
+    private static void registrarPendentesImportados(List<Pedido> importados) {
+        if (!Files.isDirectory(Path.of(DIRETORIO_FILA))) return;
+        abrirFilaDuravel();
+        if (filaDuravel == null) return;
+        try {
+            for (Pedido pedido : importados) {
+                if (pedido.getStatus() != StatusPedido.FINALIZADO) filaDuravel.registrar(pedido);
             }
+        } catch (IOException e) {
+            System.out.println("Falha ao registrar os pedidos importados na fila durável: " + e.getMessage());
+        }
+        fecharFilaDuravel();
+    }
 
-            /**
-             * Lê valores booleanos (true/false).
-             */
-            private Boolean parseBoolean() {
-                if (json.startsWith("true", pos)) {
-                    pos += 4;
-                    return true;
-                }
-                if (json.startsWith("false", pos)) {
-                    pos += 5;
-                    return false;
+    /** Tamanho do arquivo em bytes, ou zero se ele não existir. */
+    private static long tamanhoSeExistir(Path caminho) {
+        try {
+            return Files.exists(caminho) ? Files.size(caminho) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Sufixo dos arquivos guardados à parte quando o snapshot não pode ser lido
+    private static final String SUFIXO_INVALIDO = ".invalido";
+
+    /**
+     * Move os arquivos do snapshot ilegível para <nome>.invalido e copia o journal para
+     * dados.journal.invalido (e .1.invalido), para que nada se perca quando o próximo
+     * salvamento gravar um snapshot novo e esvaziar o journal.
+     */
+    private static void guardarInvalidos(List<Path> arquivos) {
+        try {
+            for (Path arquivo : arquivos) {
+                Files.move(arquivo, arquivo.resolveSibling(arquivo.getFileName() + SUFIXO_INVALIDO),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            for (String nome : new String[] { ARQUIVO_JOURNAL, ARQUIVO_JOURNAL + ".1" }) {
+                Path journalAtual = Path.of(nome);
+                if (Files.exists(journalAtual)) {
+                    Files.copy(journalAtual, Path.of(nome + SUFIXO_INVALIDO), StandardCopyOption.REPLACE_EXISTING);
                 }
-                throw new IllegalArgumentException("Valor booleano inválido");
             }
+            System.out.println("Arquivos guardados com o sufixo " + SUFIXO_INVALIDO
+                    + "; o journal será reaplicado e um novo snapshot será gerado ao salvar.");
+        } catch (IOException e) {
+            pararInicializacao("Falha ao guardar o snapshot inválido: " + e.getMessage());
+        }
+    }
 
-            /**
-             * Lê o valor literal null.
-             */
-            private Object parseNull() {
-                if (json.startsWith("null", pos)) {
-                    pos += 4;
-                    return null;
-                }
-                throw new IllegalArgumentException("Valor nulo inválido");
-            }
-
-            /**
-             * Pula todos os caracteres de espaço, quebra de linha, etc.
-             * antes de ler o próximo valor.
-             */
-            private void skipWhitespace() {
-                while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) pos++;
-            }
-
-            /**
-             * Verifica se o próximo caractere é o esperado,
-             * sem consumir (usado para checar fim de objeto/array).
-             */
-            private boolean peek(char esperado) {
-                return pos < json.length() && json.charAt(pos) == esperado;
-            }
-
-            /**
-             * Garante que o próximo caractere seja o esperado.
-             * Se for, consome-o; se não, lança um erro.
-             * 
-             * Exemplo: expect(':') garante que o próximo símbolo é ':'
-             */
-            private void expect(char esperado) {
-                skipWhitespace();
-                if (pos >= json.length() || json.charAt(pos) != esperado) {
-                    throw new IllegalArgumentException("Esperado '" + esperado + "' em " + pos);
-                }
-                pos++;
-                skipWhitespace();
+    /**
+     * Encerra o programa antes de abrir o journal e aceitar alterações: continuar sem os dados
+     * faria o próximo salvamento sobrescrever o snapshot e descartar o journal.
+     */
+    private static void pararInicializacao(String motivo) {
+        System.out.println(motivo);
+        System.out.println("O programa não será iniciado, para não perder os dados salvos. Corrija ou remova o arquivo e tente de novo.");
+        System.exit(1);
+    }
+
+    /**
+     * Lê o arquivo "dados.json" (ou os arquivos das partições, em paralelo) e recria na memória
+     * todas as listas (clientes, produtos e pedidos).
+     * Em seguida reaplica o journal, recuperando o que foi feito depois do último salvamento
+     * (inclusive se o programa foi fechado sem a opção "Salvar e Sair").
+     * Assim, o programa continua do ponto em que parou na última vez.
+     * Se o snapshot estiver corrompido, ele é guardado à parte e o journal é reaplicado mesmo assim;
+     * se o snapshot ou o journal não puderem ser lidos, o programa é encerrado antes de salvar.
+     */
+    private static void carregarDados() {
+        List<Path> arquivos = arquivosSnapshot(); // dados.json e/ou dados.0.json, dados.1.json, ...
+        DadosPersistidos dados = null;
+        long inicio = System.nanoTime(); // Para as métricas de carregamento
+
+        // O formato é descoberto pelo cabeçalho: o binário é lido em bloco para a memória e o JSON
+        // é lido em streaming (os objetos são criados enquanto o texto é percorrido)
+        if (!arquivos.isEmpty()) {
+            try {
+                formatoSnapshot = SnapshotBinario.ehBinario(arquivos.get(0)) ? Formato.BINARIO : Formato.JSON;
+                dados = arquivos.size() == 1 ? lerArquivo(arquivos.get(0)) : lerParticoes(arquivos);
+            } catch (RuntimeException e) {
+                // Caso o arquivo tenha um conteúdo que não segue o formato esperado: ele é guardado
+                // à parte (com uma cópia do journal) e o journal ainda é reaplicado, para que o
+                // próximo salvamento não descarte alterações que só estavam no journal
+                System.out.println("Conteúdo de " + arquivos + " inválido: " + e.getMessage());
+                guardarInvalidos(arquivos);
+            } catch (IOException e) {
+                // Caso não consiga abrir ou ler o arquivo: sem os dados, um salvamento apagaria o
+                // snapshot e o journal, então o programa não continua
+                pararInicializacao("Falha ao carregar dados: " + e.getMessage());
             }
         }
+
+        // Arquivo inexistente ou vazio: começa com listas vazias (o journal ainda pode ter dados)
+        if (dados == null) {
+            dados = new DadosPersistidos();
+            dados.clientes = new ArrayList<>();
+            dados.produtos = new ArrayList<>();
+            dados.pedidos = new ArrayList<>();
+        }
+
+        int registros;
+        try {
+            registros = Journal.reproduzir(Path.of(ARQUIVO_JOURNAL), dados);
+        } catch (IOException e) {
+            // O journal não reaplicado seria descartado no próximo salvamento
+            pararInicializacao("Falha ao ler o journal: " + e.getMessage());
+            return;
+        }
+        long bytes = 0;
+        for (Path caminho : arquivos) bytes += tamanhoSeExistir(caminho);
+        processor.getMetricas().registrarCarregamento(System.nanoTime() - inicio,
+                bytes + tamanhoSeExistir(Path.of(ARQUIVO_JOURNAL))
+                        + tamanhoSeExistir(Path.of(ARQUIVO_JOURNAL + ".1")));
+
+        if (dados.clientes.isEmpty() && dados.produtos.isEmpty() && dados.pedidos.isEmpty()) {
+            System.out.println("Nenhum dado anterior encontrado.");
+            return;
+        }
+
+        // Limpa os repositórios e substitui pelos dados carregados.
+        // Os itens dos pedidos já chegam ligados aos mesmos objetos Produto do repositório.
+        // A sequência de IDs de cada repositório continua a partir do maior ID carregado.
+        clientes.limpar();
+        produtos.limpar();
+        pedidos.limpar();
+
+        clientes.adicionarTodos(dados.clientes);
+        produtos.adicionarTodos(dados.produtos);
+        pedidos.adicionarTodos(dados.pedidos);
+        agregados.reconstruir(dados.pedidos); // Totais do relatório, em uma passada sobre os pedidos
+        indicePedidos.reconstruir(dados.pedidos); // Índices por cliente, produto e status
+        // Os índices de busca só são montados na primeira busca, para não atrasar a abertura
+        buscaClientes.reconstruirDepois(() -> clientes);
+        buscaProdutos.reconstruirDepois(() -> produtos);
+
+        System.out.println(registros > 0
+                ? "Dados carregados! (" + registros + " alteração(ões) recuperada(s) do journal)"
+                : "Dados carregados!");
     }
 }
@@ -0,0 +1,331 @@
+package app;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Instrumentação do fluxo de pedidos e da persistência.
+ *
+ * <p>Mede o tempo de cada pedido em {@code FILA} (espera), em
+ * {@code PROCESSANDO} e de ponta a ponta, além da duração e do tamanho em bytes
+ * de cada salvamento e carregamento. No caminho crítico só há contadores
+ * {@link LongAdder} e incrementos em {@link Histograma}s de memória fixa; os
+ * percentis são calculados apenas quando alguém lê (JMX ou dump periódico).
+ * A saturação da fila (ocupação, pico, recusas e esperas por vaga) vem dos
+ * contadores da própria {@link FilaPedidos}.
+ */
+public final class Metricas implements MetricasMXBean {
+    private static final DateTimeFormatter HORARIO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final FilaPedidos fila;
+    private final IntSupplier emProcessamento;
+
+    private final LongAdder recebidos = new LongAdder();
+    private final LongAdder finalizados = new LongAdder();
+    private final Histograma esperaFila = new Histograma();
+    private final Histograma processamento = new Histograma();
+    private final Histograma total = new Histograma();
+    private final Histograma salvamentos = new Histograma();
+    private final Histograma carregamentos = new Histograma();
+    private final Histograma lotes = new Histograma(); // tamanho (em pedidos) de cada lote
+
+    private volatile long ultimoSalvamentoNs;
+    private volatile long ultimoSalvamentoBytes;
+    private volatile long ultimoCarregamentoNs;
+    private volatile long ultimoCarregamentoBytes;
+
+    // Amostragem da vazão, atualizada a cada dump (ou a cada leitura, se não houver dump)
+    private long amostraFinalizados;
+    private long amostraInstanteNs = System.nanoTime();
+    private volatile double vazaoPorSegundo;
+
+    private volatile ScheduledExecutorService agendador;
+    private Path arquivoDump;
+
+    /**
+     * @param fila            fila do processador (profundidade e saturação)
+     * @param emProcessamento fonte da quantidade de pedidos em andamento
+     */
+    Metricas(FilaPedidos fila, IntSupplier emProcessamento) {
+        this.fila = fila;
+        this.emProcessamento = emProcessamento;
+    }
+
+    // ----------------------------------------------------------------------
+    // Registro (caminho crítico)
+    // ----------------------------------------------------------------------
+
+    void pedidoRecebido() {
+        recebidos.increment();
+    }
+
+    /** Um lote foi retirado da fila e vai para a integração. */
+    void loteIniciado(int tamanho) {
+        lotes.registrar(tamanho);
+    }
+
+    /** Pedido saiu da fila e começou a ser processado. */
+    void processamentoIniciado(long esperaNs) {
+        esperaFila.registrar(esperaNs);
+    }
+
+    /** Pedido chegou a {@code FINALIZADO}. */
+    void pedidoFinalizado(long processamentoNs, long totalNs) {
+        processamento.registrar(processamentoNs);
+        total.registrar(totalNs);
+        finalizados.increment();
+    }
+
+    void registrarSalvamento(long duracaoNs, long bytes) {
+        salvamentos.registrar(duracaoNs);
+        ultimoSalvamentoNs = duracaoNs;
+        ultimoSalvamentoBytes = bytes;
+    }
+
+    void registrarCarregamento(long duracaoNs, long bytes) {
+        carregamentos.registrar(duracaoNs);
+        ultimoCarregamentoNs = duracaoNs;
+        ultimoCarregamentoBytes = bytes;
+    }
+
+    // ----------------------------------------------------------------------
+    // Publicação
+    // ----------------------------------------------------------------------
+
+    /** Publica as métricas no servidor JMX da plataforma como {@code app:type=Metricas}. */
+    void registrarJmx() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName("app:type=Metricas");
+            if (servidor.isRegistered(nome)) servidor.unregisterMBean(nome);
+            servidor.registerMBean(this, nome);
+        } catch (JMException e) {
+            System.out.println("Métricas indisponíveis via JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Anexa um resumo das métricas ao arquivo a cada intervalo, em uma thread
+     * de fundo. Um último resumo é gravado em {@link #encerrar()}.
+     */
+    synchronized void iniciarDump(Path arquivo, long intervalo, TimeUnit unidade) {
+        if (agendador != null) throw new IllegalStateException("Dump de métricas já iniciado");
+        arquivoDump = arquivo;
+        agendador = Executors.newSingleThreadScheduledExecutor(PedidoProcessor.fabrica("metricas-dump"));
+        agendador.scheduleAtFixedRate(this::gravarDump, intervalo, intervalo, unidade);
+    }
+
+    /** Para o dump periódico, gravando o resumo final. */
+    synchronized void encerrar() {
+        if (agendador == null) return;
+        agendador.shutdown();
+        agendador = null;
+        gravarDump();
+    }
+
+    /** Resumo em uma linha, no formato gravado pelo dump. */
+    String resumo() {
+        atualizarVazao();
+        return String.format(Locale.ROOT,
+                "%s fila=%d/%d[alta=%d normal=%d baixa=%d] pico=%d rejeitados=%d bloqueios=%d(%.1fms)"
+                        + " emProcessamento=%d recebidos=%d finalizados=%d vazao=%.1f/s lotes=%d(media=%.1f max=%d) espera%s processamento%s total%s salvar[n=%d ultimo=%.1fms %dB] carregar[n=%d ultimo=%.1fms %dB]",
+                LocalDateTime.now().format(HORARIO), getTamanhoFila(), getCapacidadeFila(),
+                fila.tamanho(FilaPedidos.Prioridade.ALTA), fila.tamanho(FilaPedidos.Prioridade.NORMAL),
+                fila.tamanho(FilaPedidos.Prioridade.BAIXA), getPicoFila(), getPedidosRejeitados(),
+                getBloqueiosProdutor(), getTempoBloqueadoMs(), getEmProcessamento(),
+                getPedidosRecebidos(), getPedidosFinalizados(), vazaoPorSegundo,
+                getLotes(), getTamanhoMedioLote(), lotes.getMaximo(),
+                percentis(esperaFila), percentis(processamento), percentis(total),
+                salvamentos.getContagem(), getUltimoSalvamentoMs(), ultimoSalvamentoBytes,
+                carregamentos.getContagem(), getUltimoCarregamentoMs(), ultimoCarregamentoBytes);
+    }
+
+    private synchronized void gravarDump() {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(arquivoDump, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            out.println(resumo());
+        } catch (IOException e) {
+            System.out.println("Falha ao gravar métricas: " + e.getMessage());
+        }
+    }
+
+    private synchronized void atualizarVazao() {
+        long agora = System.nanoTime();
+        long decorrido = agora - amostraInstanteNs;
+        if (decorrido < 100_000_000) return; // evita amostras curtas demais em leituras seguidas
+        long contagem = finalizados.sum();
+        vazaoPorSegundo = (contagem - amostraFinalizados) * 1e9 / decorrido;
+        amostraFinalizados = contagem;
+        amostraInstanteNs = agora;
+    }
+
+    private static String percentis(Histograma h) {
+        return String.format(Locale.ROOT, "[p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms]",
+                ms(h.percentil(50)), ms(h.percentil(99)), ms(h.percentil(99.9)), ms(h.getMaximo()));
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // ----------------------------------------------------------------------
+    // MetricasMXBean
+    // ----------------------------------------------------------------------
+
+    @Override
+    public int getTamanhoFila() {
+        return fila.tamanho();
+    }
+
+    @Override
+    public int getCapacidadeFila() {
+        return fila.getCapacidade();
+    }
+
+    @Override
+    public double getOcupacaoFilaPercentual() {
+        return 100.0 * fila.tamanho() / fila.getCapacidade();
+    }
+
+    @Override
+    public int getPicoFila() {
+        return fila.getPico();
+    }
+
+    @Override
+    public long getPedidosRejeitados() {
+        return fila.getRejeitados();
+    }
+
+    @Override
+    public long getBloqueiosProdutor() {
+        return fila.getBloqueios();
+    }
+
+    @Override
+    public double getTempoBloqueadoMs() {
+        return ms(fila.getTempoBloqueadoNs());
+    }
+
+    @Override
+    public int getEmProcessamento() {
+        return emProcessamento.getAsInt();
+    }
+
+    @Override
+    public long getPedidosRecebidos() {
+        return recebidos.sum();
+    }
+
+    @Override
+    public long getPedidosFinalizados() {
+        return finalizados.sum();
+    }
+
+    @Override
+    public double getVazaoPorSegundo() {
+        if (agendador == null) atualizarVazao();
+        return vazaoPorSegundo;
+    }
+
+    @Override
+    public long getLotes() {
+        return lotes.getContagem();
+    }
+
+    @Override
+    public double getTamanhoMedioLote() {
+        return lotes.getMedia();
+    }
+
+    @Override
+    public double getEsperaFilaP50Ms() {
+        return ms(esperaFila.percentil(50));
+    }
+
+    @Override
+    public double getEsperaFilaP99Ms() {
+        return ms(esperaFila.percentil(99));
+    }
+
+    @Override
+    public double getEsperaFilaP999Ms() {
+        return ms(esperaFila.percentil(99.9));
+    }
+
+    @Override
+    public double getProcessamentoP50Ms() {
+        return ms(processamento.percentil(50));
+    }
+
+    @Override
+    public double getProcessamentoP99Ms() {
+        return ms(processamento.percentil(99));
+    }
+
+    @Override
+    public double getProcessamentoP999Ms() {
+        return ms(processamento.percentil(99.9));
+    }
+
+    @Override
+    public double getTotalP50Ms() {
+        return ms(total.percentil(50));
+    }
+
+    @Override
+    public double getTotalP99Ms() {
+        return ms(total.percentil(99));
+    }
+
+    @Override
+    public double getTotalP999Ms() {
+        return ms(total.percentil(99.9));
+    }
+
+    @Override
+    public long getSalvamentos() {
+        return salvamentos.getContagem();
+    }
+
+    @Override
+    public double getUltimoSalvamentoMs() {
+        return ms(ultimoSalvamentoNs);
+    }
+
+    @Override
+    public long getUltimoSalvamentoBytes() {
+        return ultimoSalvamentoBytes;
+    }
+
+    @Override
+    public long getCarregamentos() {
+        return carregamentos.getContagem();
+    }
+
+    @Override
+    public double getUltimoCarregamentoMs() {
+        return ms(ultimoCarregamentoNs);
+    }
+
+    @Override
+    public long getUltimoCarregamentoBytes() {
+        return ultimoCarregamentoBytes;
+    }
+}
@@ -0,0 +1,68 @@
+package app;
+
+/**
+ * Métricas do sistema publicadas via JMX (por exemplo, no JConsole em
+ * {@code app:type=Metricas}). Tempos em milissegundos.
+ */
+public interface MetricasMXBean {
+    int getTamanhoFila();
+
+    int getCapacidadeFila();
+
+    double getOcupacaoFilaPercentual();
+
+    /** Maior profundidade da fila desde o início. */
+    int getPicoFila();
+
+    /** Pedidos recusados por fila cheia. */
+    long getPedidosRejeitados();
+
+    /** Vezes em que quem enfileirava esperou por vaga. */
+    long getBloqueiosProdutor();
+
+    double getTempoBloqueadoMs();
+
+    int getEmProcessamento();
+
+    long getPedidosRecebidos();
+
+    long getPedidosFinalizados();
+
+    /** Pedidos finalizados por segundo no último intervalo de amostragem. */
+    double getVazaoPorSegundo();
+
+    /** Lotes entregues à integração. */
+    long getLotes();
+
+    double getTamanhoMedioLote();
+
+    double getEsperaFilaP50Ms();
+
+    double getEsperaFilaP99Ms();
+
+    double getEsperaFilaP999Ms();
+
+    double getProcessamentoP50Ms();
+
+    double getProcessamentoP99Ms();
+
+    double getProcessamentoP999Ms();
+
+    double getTotalP50Ms();
+
+    double getTotalP99Ms();
+
+    double getTotalP999Ms();
+
+    long getSalvamentos();
+
+    double getUltimoSalvamentoMs();
+
+    long getUltimoSalvamentoBytes();
+
+    long getCarregamentos();
+
+    double getUltimoCarregamentoMs();
+
+    long getUltimoCarregamentoBytes();
+}
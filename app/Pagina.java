@@ -0,0 +1,60 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Uma página de uma listagem paginada por cursor.
+ *
+ * <p>O cursor é opaco para quem lista: basta devolvê-lo na próxima chamada
+ * para continuar de onde a página parou. Ele aponta para o próximo resultado
+ * já encontrado, então {@link #temMais()} é exato e a página seguinte nunca
+ * vem vazia.
+ */
+public final class Pagina<T> {
+    /** Cursor da primeira página. */
+    public static final int INICIO = 0;
+
+    private final List<T> itens;
+    private final int proximoCursor;
+
+    Pagina(List<T> itens, int proximoCursor) {
+        this.itens = Collections.unmodifiableList(itens);
+        this.proximoCursor = proximoCursor;
+    }
+
+    /**
+     * Pagina uma lista já ordenada por ID usando o próprio ID como cursor: a
+     * página começa no primeiro elemento com ID maior ou igual ao cursor, então
+     * elementos que entram ou saem da lista entre uma página e outra não
+     * deslocam os demais.
+     */
+    static <T extends Identificavel> Pagina<T> porId(List<T> ordenadaPorId, int cursor, int limite) {
+        if (cursor < 0) throw new IllegalArgumentException("Cursor inválido");
+        if (limite <= 0) throw new IllegalArgumentException("Tamanho da página deve ser positivo");
+        int inicio = 0;
+        int fim = ordenadaPorId.size();
+        while (inicio < fim) { // busca binária pelo primeiro ID >= cursor
+            int meio = (inicio + fim) >>> 1;
+            if (ordenadaPorId.get(meio).getId() < cursor) inicio = meio + 1;
+            else fim = meio;
+        }
+        int ate = (int) Math.min(ordenadaPorId.size(), (long) inicio + limite);
+        int proximo = ate < ordenadaPorId.size() ? ordenadaPorId.get(ate).getId() : -1;
+        return new Pagina<>(new ArrayList<>(ordenadaPorId.subList(inicio, ate)), proximo);
+    }
+
+    public List<T> getItens() {
+        return itens;
+    }
+
+    /** Cursor para a próxima página; só tem significado se {@link #temMais()}. */
+    public int getProximoCursor() {
+        return proximoCursor;
+    }
+
+    public boolean temMais() {
+        return proximoCursor >= 0;
+    }
+}
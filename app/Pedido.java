@@ -14,7 +14,12 @@ public class Pedido implements Identificavel {
     private int id;                          // Identificador numérico do pedido
     private Cliente cliente;                 // O cliente que fez o pedido
     private List<ItemPedido> itens = new ArrayList<>(); // Lista de itens do pedido
-    private StatusPedido status = StatusPedido.ABERTO;  // Situação atual do pedido (começa como ABERTO)
+    private long totalCentavos;              // Soma dos subtotais, atualizada a cada item adicionado
+    private long criadoEm;                   // Momento da criação (milissegundos desde 1970, UTC); 0 = desconhecido
+    // "volatile" garante que a mudança de status feita por um worker do processador
+    // seja vista imediatamente pela thread do menu (listagens) e pela gravação do snapshot
+    private volatile StatusPedido status = StatusPedido.ABERTO;  // Situação atual do pedido (começa como ABERTO)
+    private volatile long entradaFilaNs;     // Momento (System.nanoTime) em que entrou na fila; usado nas métricas
 
     // Construtor: é chamado quando criamos um novo Pedido (new Pedido(...))
     // Recebe o id e o cliente como parâmetros obrigatórios
@@ -22,6 +27,7 @@ public class Pedido implements Identificavel {
         validar(id, cliente); // Chama o método que checa se os dados são válidos
         this.id = id;         // "this.id" é o atributo da classe, recebe o valor de "id" passado
         this.cliente = cliente; // Atribui o cliente informado
+        this.criadoEm = System.currentTimeMillis(); // Guarda quando o pedido foi criado
     }
 
     // Construtor protegido, usado por sistemas de serialização (quando o Java cria objetos automaticamente)
@@ -65,27 +71,53 @@ public class Pedido implements Identificavel {
         this.status = status;
     }
 
+    // Momento em que o pedido entrou na fila de processamento (só faz sentido comparado a outro System.nanoTime)
+    long getEntradaFilaNs() {
+        return entradaFilaNs;
+    }
+
+    void setEntradaFilaNs(long entradaFilaNs) {
+        this.entradaFilaNs = entradaFilaNs;
+    }
+
     // Método para adicionar um item novo ao pedido a partir de um produto e quantidade
     public void adicionarItem(Produto produto, int quantidade) {
         // Cria um novo objeto ItemPedido com o produto e a quantidade
-        // e adiciona esse objeto à lista de itens
-        itens.add(new ItemPedido(produto, quantidade));
+        // e adiciona esse objeto à lista de itens (o total é atualizado junto)
+        adicionarItem(new ItemPedido(produto, quantidade));
     }
 
     // Outra forma de adicionar um item: passando o ItemPedido já pronto
     public void adicionarItem(ItemPedido item) {
         // Verifica se o item é nulo (vazio ou inexistente)
         if (item == null) throw new ValidacaoException("Item inválido");
+        // Soma o subtotal antes de adicionar, para não deixar lista e total diferentes
+        // caso o valor estoure o limite de um long
+        totalCentavos = Math.addExact(totalCentavos, item.calcularSubtotalCentavos());
         // Se for válido, adiciona à lista
         itens.add(item);
     }
 
-    // Calcula o total do pedido somando o subtotal de cada item
+    // Retorna o total do pedido. Não percorre os itens: o valor já foi somado
+    // em adicionarItem, em centavos (long), para não acumular erros de arredondamento
     public double calcularTotal() {
-        // "stream()" cria um fluxo de dados dos itens
-        // "mapToDouble" pega o subtotal de cada item (preço * quantidade)
-        // "sum()" soma todos os valores
-        return itens.stream().mapToDouble(ItemPedido::calcularSubtotal).sum();
+        return totalCentavos / 100.0;
+    }
+
+    // Total exato em centavos, para relatórios e somas entre pedidos
+    public long getTotalCentavos() {
+        return totalCentavos;
+    }
+
+    // Momento da criação em milissegundos desde 1970 (UTC), usado nos filtros por data.
+    // Pedidos salvos antes de existir esse campo ficam com 0 (data desconhecida)
+    public long getCriadoEm() {
+        return criadoEm;
+    }
+
+    // Usado ao carregar o pedido de um arquivo, para manter a data original
+    void setCriadoEm(long criadoEm) {
+        this.criadoEm = criadoEm;
     }
 
     // Método especial que transforma o objeto em texto
@@ -1,52 +1,577 @@
 package app;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 /**
  * Consumidor assíncrono de pedidos que processa a fila e atualiza seus status
  * conforme o fluxo definido.
+ *
+ * <p>Opera em quatro modos: {@link Modo#POOL}, com um número fixo de workers
+ * consumindo a mesma fila, {@link Modo#VIRTUAL}, em que um despachante cria
+ * uma thread virtual por lote (Java 21+) com até {@code workers} lotes em
+ * andamento, {@link Modo#PIPELINE}, em que cada
+ * pedido percorre as etapas assíncronas de um {@link PipelinePedido} e até
+ * {@code workers} pedidos ficam em andamento ao mesmo tempo, sem uma thread
+ * bloqueada por pedido, e {@link Modo#PARTICIONADO}, em que a fila é dividida
+ * em {@code workers} partições pelo ID do cliente, cada uma consumida por uma
+ * única thread: os pedidos de um mesmo cliente são processados um de cada vez,
+ * na ordem em que foram enfileirados, e partições diferentes não disputam a
+ * mesma trava.
+ *
+ * <p>Os pedidos são retirados em lotes: o worker espera o primeiro pedido,
+ * drena os que já estão na fila até o tamanho máximo do lote e, se ainda houver
+ * espaço, aguarda novos pedidos até o prazo do lote. O lote inteiro é entregue
+ * em uma única chamada ao {@link ProcessadorLote}. Com o padrão (lotes de um
+ * pedido, sem espera) o comportamento é o de um pedido por vez. O modo
+ * {@link Modo#PIPELINE} não usa lotes: cada pedido entra no pipeline sozinho.
+ *
+ * <p>Com uma {@link FilaDuravel} configurada, cada pedido enfileirado também é
+ * registrado em disco e confirmado ao chegar a {@link StatusPedido#FINALIZADO};
+ * {@link #retomarPendentes} recoloca na fila só o que ficou pendente.
  */
 public class PedidoProcessor implements Runnable {
+    /** Estratégia de execução dos pedidos retirados da fila. */
+    public enum Modo {
+        POOL,
+        VIRTUAL,
+        PIPELINE,
+        PARTICIONADO
+    }
+
+    /** Tempo simulado de integração com pagamento/estoque. */
+    public static final long TEMPO_PROCESSAMENTO_PADRAO_MS = 3000;
+
+    /** Capacidade da fila quando nenhuma é informada. */
+    public static final int CAPACIDADE_FILA_PADRAO = 10_000;
+
+    /** Prazo padrão que quem enfileira espera por vaga com a fila cheia. */
+    public static final long ESPERA_FILA_CHEIA_PADRAO_MS = 5000;
+
+    /** Intervalo máximo que um worker fica bloqueado antes de reavaliar o encerramento. */
+    private static final long ESPERA_FILA_MS = 200;
+
     /**
-     * Fila concorrente (thread-safe) responsável por armazenar pedidos aguardando
-     * processamento. A implementação {@link LinkedBlockingQueue} garante
-     * sincronização interna, permitindo múltiplos produtores/consumidores sem
-     * necessidade de bloqueios explícitos.
+     * Fila limitada (thread-safe) com os pedidos aguardando processamento,
+     * dividida em faixas de prioridade. Quando está cheia, quem enfileira espera
+     * ou é recusado, conforme a política configurada.
      */
-    private BlockingQueue<Pedido> fila = new LinkedBlockingQueue<>();
+    private final FilaPedidos fila;
+
+    // Partições da fila no modo PARTICIONADO (null nos demais); a partição vem do ID do cliente
+    private final FilaPedidos[] particoes;
+
+    private final Modo modo;
+    private final int workers;
+    private final long tempoProcessamentoMs;
+    private final AtomicInteger emProcessamento = new AtomicInteger();
+    private final List<StatusListener> listeners = new CopyOnWriteArrayList<>();
+    private final Metricas metricas;
+
+    private int tamanhoMaximoLote = 1;
+    private long esperaLoteNs;
+    private ProcessadorLote processadorLote = this::simularIntegracao;
+    private PipelinePedido pipeline;
+    private Semaphore emVoo; // vagas de lotes (VIRTUAL) ou pedidos (PIPELINE) em andamento
+    private volatile FilaDuravel filaDuravel;
+
+    private ExecutorService executor;
+    private ExecutorService despachante;
+    private volatile boolean encerrando;
+
+    /**
+     * Cria um processador com um único worker, equivalente ao comportamento
+     * original de uma thread dedicada.
+     */
+    public PedidoProcessor() {
+        this(Modo.POOL, 1, TEMPO_PROCESSAMENTO_PADRAO_MS);
+    }
+
+    /**
+     * Cria um processador configurável.
+     *
+     * @param modo                 estratégia de execução
+     * @param workers              quantidade de workers no modo {@link Modo#POOL}, de lotes em
+     *                             andamento no {@link Modo#VIRTUAL}, de pedidos em andamento no
+     *                             {@link Modo#PIPELINE} e de partições no {@link Modo#PARTICIONADO}
+     * @param tempoProcessamentoMs duração simulada do processamento de cada pedido
+     */
+    public PedidoProcessor(Modo modo, int workers, long tempoProcessamentoMs) {
+        this(modo, workers, tempoProcessamentoMs, new FilaPedidos(CAPACIDADE_FILA_PADRAO,
+                FilaPedidos.Politica.BLOQUEAR, ESPERA_FILA_CHEIA_PADRAO_MS, FilaPedidos.Classificador.nenhum()));
+    }
+
+    /**
+     * Cria um processador sobre uma fila já configurada (capacidade, política
+     * de fila cheia e prioridades).
+     */
+    PedidoProcessor(Modo modo, int workers, long tempoProcessamentoMs, FilaPedidos fila) {
+        if (modo == null) throw new IllegalArgumentException("Modo de processamento obrigatório");
+        if (fila == null) throw new IllegalArgumentException("Fila de pedidos obrigatória");
+        if (workers <= 0) throw new IllegalArgumentException("Quantidade de workers deve ser positiva");
+        if (tempoProcessamentoMs < 0) throw new IllegalArgumentException("Tempo de processamento inválido");
+        this.modo = modo;
+        this.workers = workers;
+        this.tempoProcessamentoMs = tempoProcessamentoMs;
+        this.fila = fila;
+        this.particoes = modo == Modo.PARTICIONADO ? fila.particionar(workers) : null;
+        this.metricas = new Metricas(fila, this::getEmProcessamento);
+    }
 
     /**
      * Enfileira um novo pedido definindo seu status como {@link StatusPedido#FILA}.
+     * Com a fila cheia, espera por vaga ou recusa o pedido conforme a política
+     * da fila; um pedido recusado volta ao status que tinha antes. Com fila
+     * durável, o pedido é registrado em disco antes, e um pedido recusado
+     * continua registrado para ser retomado no próximo carregamento.
+     *
+     * @return {@code false} se o pedido foi recusado
+     */
+    public boolean adicionarPedido(Pedido pedido) {
+        FilaDuravel duravel = filaDuravel;
+        if (duravel != null) {
+            try {
+                duravel.registrar(pedido);
+            } catch (IOException e) {
+                // Uma falha aqui não impede o processamento; o pedido só não sobrevive a uma queda
+                System.out.println("Falha ao registrar pedido " + pedido.getId() + " na fila durável: " + e.getMessage());
+            }
+        }
+        return enfileirar(pedido);
+    }
+
+    /**
+     * Recoloca na fila os pedidos pendentes da fila durável, sem registrá-los de
+     * novo. Os que já estão {@link StatusPedido#FINALIZADO} (ou não existem
+     * mais) são apenas confirmados.
+     *
+     * @param buscar localiza o pedido pelo ID
+     * @return quantidade de pedidos recolocados na fila
+     */
+    int retomarPendentes(IntFunction<Pedido> buscar) {
+        FilaDuravel duravel = filaDuravel;
+        if (duravel == null) throw new IllegalStateException("Fila durável não configurada");
+        int retomados = 0;
+        for (int id : duravel.pendentes()) {
+            Pedido pedido = buscar.apply(id);
+            if (pedido == null) {
+                System.out.println("Pedido " + id + " da fila durável não encontrado; descartado.");
+                continue;
+            }
+            if (pedido.getStatus() == StatusPedido.FINALIZADO) {
+                duravel.confirmar(pedido);
+            } else if (enfileirar(pedido)) {
+                retomados++;
+            }
+        }
+        return retomados;
+    }
+
+    private boolean enfileirar(Pedido pedido) {
+        StatusPedido anterior = pedido.getStatus();
+        alterarStatus(pedido, StatusPedido.FILA);
+        pedido.setEntradaFilaNs(System.nanoTime());
+        boolean aceito;
+        try {
+            aceito = filaDo(pedido).oferecer(pedido);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            aceito = false;
+        }
+        if (!aceito) {
+            alterarStatus(pedido, anterior);
+            return false;
+        }
+        metricas.pedidoRecebido();
+        return true;
+    }
+
+    /** Fila em que o pedido entra: a partição do cliente no modo PARTICIONADO. */
+    private FilaPedidos filaDo(Pedido pedido) {
+        if (particoes == null) return fila;
+        return particoes[particao(pedido.getCliente().getId(), particoes.length)];
+    }
+
+    /**
+     * Partição de um cliente entre {@code quantidade} partições. É a mesma regra
+     * usada para dividir os arquivos do snapshot.
      */
-    public void adicionarPedido(Pedido pedido) {
-        pedido.setStatus(StatusPedido.FILA);
-        fila.add(pedido);
+    static int particao(int clienteId, int quantidade) {
+        return Math.floorMod(clienteId, quantidade);
+    }
+
+    /**
+     * Configura o agrupamento em lotes. Deve ser chamado antes de {@link #iniciar()}.
+     *
+     * @param tamanhoMaximo quantidade máxima de pedidos por lote
+     * @param esperaMs      quanto esperar por mais pedidos depois do primeiro do lote
+     */
+    public synchronized void configurarLotes(int tamanhoMaximo, long esperaMs) {
+        if (executor != null) throw new IllegalStateException("Processador já iniciado");
+        if (tamanhoMaximo <= 0) throw new IllegalArgumentException("Tamanho do lote deve ser positivo");
+        if (esperaMs < 0) throw new IllegalArgumentException("Espera do lote inválida");
+        this.tamanhoMaximoLote = tamanhoMaximo;
+        this.esperaLoteNs = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+    }
+
+    /**
+     * Troca a integração chamada para cada lote (por padrão, uma espera de
+     * {@code tempoProcessamentoMs} simulando pagamento/estoque). Deve ser
+     * chamado antes de {@link #iniciar()}.
+     */
+    public synchronized void setProcessadorLote(ProcessadorLote processadorLote) {
+        if (executor != null) throw new IllegalStateException("Processador já iniciado");
+        if (processadorLote == null) throw new IllegalArgumentException("Processador de lote obrigatório");
+        this.processadorLote = processadorLote;
+    }
+
+    /**
+     * Passa a registrar em disco os pedidos enfileirados. Deve ser chamado antes
+     * de {@link #iniciar()}.
+     */
+    synchronized void setFilaDuravel(FilaDuravel filaDuravel) {
+        if (executor != null) throw new IllegalStateException("Processador já iniciado");
+        if (filaDuravel == null) throw new IllegalArgumentException("Fila durável obrigatória");
+        this.filaDuravel = filaDuravel;
+    }
+
+    /**
+     * Define as etapas usadas no modo {@link Modo#PIPELINE}. Sem esta chamada,
+     * é usado {@link PipelinePedido#simulado} com o tempo de processamento
+     * dividido entre estoque e pagamento. Deve ser chamado antes de
+     * {@link #iniciar()}.
+     */
+    public synchronized void setPipeline(PipelinePedido pipeline) {
+        if (executor != null) throw new IllegalStateException("Processador já iniciado");
+        if (pipeline == null) throw new IllegalArgumentException("Pipeline obrigatório");
+        this.pipeline = pipeline;
+    }
+
+    /** Registra um observador para todas as transições de status feitas pelo processador. */
+    public void adicionarListener(StatusListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Inicia os workers (modo {@link Modo#POOL}), uma thread por partição (modo
+     * {@link Modo#PARTICIONADO}) ou o despachante de threads virtuais (modo
+     * {@link Modo#VIRTUAL}) ou do pipeline (modo {@link Modo#PIPELINE}).
+     */
+    public synchronized void iniciar() {
+        if (executor != null) throw new IllegalStateException("Processador já iniciado");
+        encerrando = false;
+        if (modo == Modo.POOL) {
+            executor = Executors.newFixedThreadPool(workers, fabrica("pedido-worker"));
+            for (int i = 0; i < workers; i++) {
+                executor.execute(this);
+            }
+        } else if (modo == Modo.PARTICIONADO) {
+            executor = Executors.newFixedThreadPool(workers, fabrica("pedido-particao"));
+            for (FilaPedidos particao : particoes) {
+                executor.execute(() -> consumir(particao));
+            }
+        } else if (modo == Modo.VIRTUAL) {
+            executor = novoExecutorVirtual();
+            emVoo = new Semaphore(workers);
+            despachante = Executors.newSingleThreadExecutor(fabrica("pedido-despachante"));
+            despachante.execute(this::despachar);
+        } else {
+            executor = novoExecutorVirtual();
+            if (pipeline == null) {
+                pipeline = PipelinePedido.simulado(executor, tempoProcessamentoMs / 2, Integer.MAX_VALUE,
+                        tempoProcessamentoMs - tempoProcessamentoMs / 2, Integer.MAX_VALUE,
+                        Math.max(1000, tempoProcessamentoMs * 10));
+            }
+            emVoo = new Semaphore(workers);
+            despachante = Executors.newSingleThreadExecutor(fabrica("pedido-despachante"));
+            despachante.execute(this::despacharPipeline);
+        }
+    }
+
+    /**
+     * Encerra o processador de forma graciosa: para de retirar pedidos da fila e
+     * aguarda os pedidos em andamento até o prazo informado. Pedidos ainda na
+     * fila permanecem com status {@link StatusPedido#FILA} para serem retomados
+     * no próximo carregamento.
+     *
+     * @return {@code true} se todos os pedidos em andamento terminaram no prazo
+     */
+    public synchronized boolean encerrar(long prazo, TimeUnit unidade) throws InterruptedException {
+        if (executor == null) return true;
+        encerrando = true;
+        long limite = System.nanoTime() + unidade.toNanos(prazo);
+        if (despachante != null) {
+            despachante.shutdown();
+            despachante.awaitTermination(prazo, unidade);
+        }
+        boolean concluido = true;
+        if (emVoo != null) {
+            // Espera todas as vagas voltarem (no pipeline não há uma thread por pedido)
+            concluido = emVoo.tryAcquire(workers, Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+            emVoo = null;
+        }
+        executor.shutdown();
+        concluido &= executor.awaitTermination(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+        if (!concluido) {
+            // Interrompe o que restou; os pedidos afetados ficam em PROCESSANDO e são retomados depois
+            executor.shutdownNow();
+        }
+        executor = null;
+        despachante = null;
+        return concluido;
+    }
+
+    /** Quantidade de pedidos aguardando na fila. */
+    public int getTamanhoFila() {
+        return fila.tamanho();
+    }
+
+    /** Máximo de pedidos que a fila comporta. */
+    public int getCapacidadeFila() {
+        return fila.getCapacidade();
+    }
+
+    /** Quantidade de pedidos sendo processados neste momento. */
+    public int getEmProcessamento() {
+        return emProcessamento.get();
+    }
+
+    /** Tempos por etapa, vazão e profundidade da fila deste processador. */
+    public Metricas getMetricas() {
+        return metricas;
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /** Quantidade de partições da fila (1 fora do modo {@link Modo#PARTICIONADO}). */
+    public int getParticoes() {
+        return particoes == null ? 1 : particoes.length;
+    }
+
+    public int getTamanhoMaximoLote() {
+        return tamanhoMaximoLote;
     }
 
     @Override
     public void run() {
-        // Loop de vida da thread. O método take() bloqueia enquanto a fila estiver
-        // vazia, reduzindo consumo de CPU e despertando automaticamente quando um
-        // novo pedido é enfileirado.
-        while (true) {
+        consumir(fila);
+    }
+
+    /**
+     * Loop de vida do worker. A retirada bloqueia enquanto a fila estiver vazia,
+     * reduzindo consumo de CPU, mas acorda periodicamente para perceber o
+     * pedido de encerramento sem precisar interromper um processamento em curso.
+     */
+    private void consumir(FilaPedidos origem) {
+        List<Pedido> lote = new ArrayList<>(tamanhoMaximoLote);
+        while (!encerrando) {
+            try {
+                if (montarLote(origem, lote)) {
+                    processar(lote);
+                    lote.clear();
+                }
+            } catch (InterruptedException e) {
+                // Interrupção sinaliza encerramento forçado da thread
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Loop do modo virtual: reserva uma vaga, monta um lote da fila e o entrega
+     * a uma thread virtual própria. Com as {@code workers} vagas ocupadas o
+     * despachante para de retirar pedidos, então a fila enche e a política de
+     * fila cheia age, em vez de os lotes se acumularem na memória.
+     */
+    private void despachar() {
+        Semaphore vagas = emVoo;
+        while (!encerrando) {
             try {
-                Pedido pedido = fila.take();
+                if (!vagas.tryAcquire(ESPERA_FILA_MS, TimeUnit.MILLISECONDS)) continue;
+                List<Pedido> lote = new ArrayList<>(tamanhoMaximoLote);
+                if (!montarLote(fila, lote)) {
+                    vagas.release();
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        processar(lote);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        vagas.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
 
-                // Transição de estado: FILA -> PROCESSANDO
-                pedido.setStatus(StatusPedido.PROCESSANDO);
+    /**
+     * Loop do modo pipeline: reserva uma vaga, retira um pedido e o coloca no
+     * pipeline sem esperar que termine. Só bloqueia quando todas as vagas estão
+     * ocupadas, o que deixa a fila encher e a política de fila cheia agir.
+     */
+    private void despacharPipeline() {
+        Semaphore vagas = emVoo;
+        while (!encerrando) {
+            try {
+                if (!vagas.tryAcquire(ESPERA_FILA_MS, TimeUnit.MILLISECONDS)) continue;
+                Pedido pedido = fila.retirar(ESPERA_FILA_MS, TimeUnit.MILLISECONDS);
+                if (pedido == null) {
+                    vagas.release();
+                    continue;
+                }
+                iniciarPipeline(pedido, vagas);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void iniciarPipeline(Pedido pedido, Semaphore vagas) {
+        emProcessamento.incrementAndGet();
+        long inicio = System.nanoTime();
+        metricas.processamentoIniciado(inicio - pedido.getEntradaFilaNs());
+
+        // Transição de estado: FILA -> PROCESSANDO
+        alterarStatus(pedido, StatusPedido.PROCESSANDO);
+        System.out.println("Processando pedido " + pedido.getId() + "...");
+
+        // As etapas rodam de forma assíncrona; a conclusão volta para o executor do processador
+        pipeline.processar(pedido).whenCompleteAsync((resultado, erro) -> {
+            try {
+                if (erro == null) {
+                    // Transição de estado: PROCESSANDO -> FINALIZADO
+                    alterarStatus(pedido, StatusPedido.FINALIZADO);
+                    long fim = System.nanoTime();
+                    metricas.pedidoFinalizado(fim - inicio, fim - pedido.getEntradaFilaNs());
+                    System.out.println("Pedido " + pedido.getId() + " finalizado!");
+                } else {
+                    // O pedido fica em PROCESSANDO e é retomado no próximo carregamento
+                    Throwable causa = erro instanceof CompletionException && erro.getCause() != null
+                            ? erro.getCause() : erro;
+                    System.out.println("Falha ao processar pedido " + pedido.getId() + ": " + causa.getMessage());
+                }
+            } finally {
+                emProcessamento.decrementAndGet();
+                vagas.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Espera o primeiro pedido (até {@link #ESPERA_FILA_MS}) e completa o lote
+     * com os que já estão na fila ou chegam dentro do prazo do lote.
+     *
+     * @return {@code false} se nenhum pedido chegou
+     */
+    private boolean montarLote(FilaPedidos origem, List<Pedido> lote) throws InterruptedException {
+        Pedido primeiro = origem.retirar(ESPERA_FILA_MS, TimeUnit.MILLISECONDS);
+        if (primeiro == null) return false;
+        lote.add(primeiro);
+        long limite = System.nanoTime() + esperaLoteNs;
+        while (lote.size() < tamanhoMaximoLote) {
+            if (origem.drenar(lote, tamanhoMaximoLote - lote.size()) > 0) continue;
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) break;
+            Pedido proximo = origem.retirar(restante, TimeUnit.NANOSECONDS);
+            if (proximo == null) break;
+            lote.add(proximo);
+        }
+        return true;
+    }
+
+    private void processar(List<Pedido> lote) throws InterruptedException {
+        emProcessamento.addAndGet(lote.size());
+        try {
+            long inicio = System.nanoTime();
+            metricas.loteIniciado(lote.size());
+
+            // Transição de estado: FILA -> PROCESSANDO, na ordem em que saíram da fila
+            for (Pedido pedido : lote) {
+                metricas.processamentoIniciado(inicio - pedido.getEntradaFilaNs());
+                alterarStatus(pedido, StatusPedido.PROCESSANDO);
                 System.out.println("Processando pedido " + pedido.getId() + "...");
+            }
 
-                // Simula trabalho pesado (ex.: integração com pagamento/estoque)
-                Thread.sleep(3000);
+            // Uma única chamada à integração (pagamento/estoque) para o lote inteiro
+            try {
+                processadorLote.processar(Collections.unmodifiableList(lote));
+            } catch (RuntimeException e) {
+                // Os pedidos ficam em PROCESSANDO e são retomados no próximo carregamento
+                System.out.println("Falha ao processar lote de " + lote.size() + " pedido(s): " + e.getMessage());
+                return;
+            }
 
-                // Transição de estado: PROCESSANDO -> FINALIZADO
-                pedido.setStatus(StatusPedido.FINALIZADO);
+            // Transição de estado: PROCESSANDO -> FINALIZADO, na mesma ordem
+            for (Pedido pedido : lote) {
+                alterarStatus(pedido, StatusPedido.FINALIZADO);
+                long fim = System.nanoTime();
+                metricas.pedidoFinalizado(fim - inicio, fim - pedido.getEntradaFilaNs());
                 System.out.println("Pedido " + pedido.getId() + " finalizado!");
-            } catch (InterruptedException e) {
-                // Interrupção sinaliza encerramento gracioso da thread
-                break;
             }
+        } finally {
+            emProcessamento.addAndGet(-lote.size());
+        }
+    }
+
+    /** Integração padrão: simula trabalho pesado (ex.: pagamento/estoque) com uma espera por lote. */
+    private void simularIntegracao(List<Pedido> lote) throws InterruptedException {
+        Thread.sleep(tempoProcessamentoMs);
+    }
+
+    private void alterarStatus(Pedido pedido, StatusPedido novo) {
+        StatusPedido anterior = pedido.getStatus();
+        pedido.setStatus(novo);
+        for (StatusListener listener : listeners) {
+            listener.statusAlterado(pedido, anterior, novo);
         }
+        // Confirma depois dos observadores, para que o status já esteja no journal
+        FilaDuravel duravel = filaDuravel;
+        if (duravel != null && novo == StatusPedido.FINALIZADO) duravel.confirmar(pedido);
+    }
+
+    /**
+     * Cria um executor com uma thread virtual por tarefa. Em JDKs anteriores ao
+     * 21 recorre a um pool elástico de threads de plataforma.
+     */
+    static ExecutorService novoExecutorVirtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(fabrica("pedido-virtual"));
+        }
+    }
+
+    /** Fábrica de threads daemon nomeadas, para não impedir o término da JVM. */
+    static ThreadFactory fabrica(String prefixo) {
+        AtomicInteger contador = new AtomicInteger();
+        return tarefa -> {
+            Thread thread = new Thread(tarefa, prefixo + "-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
@@ -0,0 +1,129 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sequência de etapas assíncronas pela qual cada pedido passa no modo
+ * {@link PedidoProcessor.Modo#PIPELINE} (por exemplo: validação, reserva de
+ * estoque, pagamento e finalização).
+ *
+ * <p>Cada etapa devolve um {@link CompletableFuture} em vez de bloquear, então
+ * muitos pedidos avançam ao mesmo tempo, cada um em uma etapa diferente. Cada
+ * etapa tem seu próprio limite de concorrência (quantos pedidos podem estar
+ * nela ao mesmo tempo, sem bloquear threads) e um prazo, que inclui a espera
+ * por vaga; um pedido que estoura o prazo falha com {@link TimeoutException}.
+ */
+public final class PipelinePedido {
+
+    /** Uma etapa do processamento de um pedido. */
+    @FunctionalInterface
+    public interface Etapa {
+        CompletableFuture<Void> executar(Pedido pedido);
+    }
+
+    private final Executor executor;
+    private final List<EtapaConfigurada> etapas = new ArrayList<>();
+
+    /** @param executor onde as etapas são iniciadas e as continuações rodam */
+    public PipelinePedido(Executor executor) {
+        if (executor == null) throw new IllegalArgumentException("Executor obrigatório");
+        this.executor = executor;
+    }
+
+    /**
+     * Acrescenta uma etapa ao final da sequência.
+     *
+     * @param concorrenciaMaxima pedidos que podem estar nesta etapa ao mesmo tempo
+     * @param prazoMs            tempo máximo da etapa, incluindo a espera por vaga
+     */
+    public PipelinePedido adicionarEtapa(String nome, int concorrenciaMaxima, long prazoMs, Etapa etapa) {
+        if (nome == null || nome.isBlank()) throw new IllegalArgumentException("Nome da etapa obrigatório");
+        if (prazoMs <= 0) throw new IllegalArgumentException("Prazo da etapa deve ser positivo");
+        if (etapa == null) throw new IllegalArgumentException("Etapa obrigatória");
+        etapas.add(new EtapaConfigurada(nome, etapa, new LimiteConcorrencia(concorrenciaMaxima, executor), prazoMs));
+        return this;
+    }
+
+    /** Nomes das etapas, na ordem de execução. */
+    public List<String> getEtapas() {
+        List<String> nomes = new ArrayList<>();
+        etapas.forEach(e -> nomes.add(e.nome));
+        return Collections.unmodifiableList(nomes);
+    }
+
+    /**
+     * Executa todas as etapas para o pedido, uma após a outra. O futuro falha
+     * na primeira etapa que falhar ou estourar o prazo.
+     */
+    public CompletableFuture<Void> processar(Pedido pedido) {
+        CompletableFuture<Void> cadeia = CompletableFuture.completedFuture(null);
+        for (EtapaConfigurada etapa : etapas) {
+            cadeia = cadeia.thenComposeAsync(anterior -> etapa.executar(pedido), executor);
+        }
+        return cadeia;
+    }
+
+    /**
+     * Pipeline com implementações locais das integrações, para rodar e testar
+     * sem sistemas externos: valida o pedido, "reserva estoque" e "cobra o
+     * pagamento" com atrasos simulados (sem ocupar threads) e finaliza.
+     */
+    public static PipelinePedido simulado(Executor executor, long estoqueMs, int limiteEstoque,
+                                          long pagamentoMs, int limitePagamento, long prazoMs) {
+        return new PipelinePedido(executor)
+                .adicionarEtapa("validacao", Integer.MAX_VALUE, prazoMs, PipelinePedido::validar)
+                .adicionarEtapa("estoque", limiteEstoque, prazoMs, atraso(estoqueMs, executor))
+                .adicionarEtapa("pagamento", limitePagamento, prazoMs, atraso(pagamentoMs, executor))
+                .adicionarEtapa("finalizacao", Integer.MAX_VALUE, prazoMs, pedido -> CompletableFuture.completedFuture(null));
+    }
+
+    private static CompletableFuture<Void> validar(Pedido pedido) {
+        if (pedido.getItens().isEmpty()) {
+            return CompletableFuture.failedFuture(new ValidacaoException("Pedido " + pedido.getId() + " sem itens"));
+        }
+        if (pedido.getTotalCentavos() <= 0) {
+            return CompletableFuture.failedFuture(new ValidacaoException("Pedido " + pedido.getId() + " sem valor"));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /** Etapa que só termina depois do atraso, sem bloquear thread enquanto espera. */
+    private static Etapa atraso(long ms, Executor executor) {
+        Executor atrasado = CompletableFuture.delayedExecutor(ms, TimeUnit.MILLISECONDS, executor);
+        return pedido -> CompletableFuture.runAsync(() -> { }, atrasado);
+    }
+
+    private static final class EtapaConfigurada {
+        final String nome;
+        final Etapa etapa;
+        final LimiteConcorrencia limite;
+        final long prazoMs;
+
+        EtapaConfigurada(String nome, Etapa etapa, LimiteConcorrencia limite, long prazoMs) {
+            this.nome = nome;
+            this.etapa = etapa;
+            this.limite = limite;
+            this.prazoMs = prazoMs;
+        }
+
+        CompletableFuture<Void> executar(Pedido pedido) {
+            return limite.executar(() -> etapa.executar(pedido))
+                    .orTimeout(prazoMs, TimeUnit.MILLISECONDS)
+                    .exceptionallyCompose(erro -> {
+                        Throwable causa = erro instanceof CompletionException && erro.getCause() != null
+                                ? erro.getCause() : erro;
+                        if (causa instanceof TimeoutException) {
+                            causa = new TimeoutException("Etapa '" + nome + "' excedeu " + prazoMs + " ms");
+                        }
+                        return CompletableFuture.failedFuture(causa);
+                    });
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package app;
+
+import java.util.List;
+
+/**
+ * Integração externa (pagamento, estoque...) chamada pelo {@link PedidoProcessor}
+ * uma única vez para cada lote de pedidos retirados da fila.
+ *
+ * <p>É chamada com todos os pedidos do lote já em {@link StatusPedido#PROCESSANDO},
+ * na ordem em que saíram da fila; quando retorna normalmente, todos passam para
+ * {@link StatusPedido#FINALIZADO} nessa mesma ordem.
+ */
+@FunctionalInterface
+public interface ProcessadorLote {
+    void processar(List<Pedido> lote) throws InterruptedException;
+}
@@ -1,13 +1,19 @@
 package app;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
 /**
  * Entidade que representa um produto comercializado, incluindo categoria e preço
  * validado.
  */
 public class Produto implements Identificavel {
+    /** Maior preço aceito (R$ 1 bilhão); em centavos fica bem abaixo do limite de um {@code long}. */
+    public static final double PRECO_MAXIMO = 1_000_000_000.0;
+
     private int id;
     private String nome;
-    private double preco;
+    private long precoCentavos; // guardado em centavos para que somas de valores sejam exatas
     private Categoria categoria;
 
     /**
@@ -18,7 +24,7 @@ public class Produto implements Identificavel {
         validar(id, nome, preco, categoria);
         this.id = id;
         this.nome = nome.trim();
-        this.preco = preco;
+        this.precoCentavos = paraCentavos(preco);
         this.categoria = categoria;
     }
 
@@ -29,18 +35,30 @@ public class Produto implements Identificavel {
     private void validar(int id, String nome, double preco, Categoria categoria) {
         if (id <= 0) throw new ValidacaoException("ID do produto inválido");
         if (nome == null || nome.isBlank()) throw new ValidacaoException("Nome do produto obrigatório");
+        if (!Double.isFinite(preco) || preco > PRECO_MAXIMO) throw new ValidacaoException("Preço inválido");
         if (preco <= 0) throw new ValidacaoException("Preço deve ser positivo");
         if (categoria == null) throw new ValidacaoException("Categoria do produto obrigatória");
+        if (paraCentavos(preco) <= 0) throw new ValidacaoException("Preço deve ser de pelo menos um centavo");
+    }
+
+    /**
+     * Converte o preço decimal para centavos, arredondando a partir da
+     * representação textual do {@code double} (1.005 vira 101, não 100).
+     */
+    private static long paraCentavos(double preco) {
+        return BigDecimal.valueOf(preco).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
     }
 
     @Override
     public int getId() { return id; }
     public String getNome() { return nome; }
-    public double getPreco() { return preco; }
+    public double getPreco() { return precoCentavos / 100.0; }
+    /** Preço exato em centavos, usado nos totais dos pedidos. */
+    public long getPrecoCentavos() { return precoCentavos; }
     public Categoria getCategoria() { return categoria; }
 
     @Override
     public String toString() {
-        return "Produto [ID=" + id + ", Nome=" + nome + ", Preço=" + preco + ", Categoria=" + categoria + "]";
+        return "Produto [ID=" + id + ", Nome=" + nome + ", Preço=" + getPreco() + ", Categoria=" + categoria + "]";
     }
 }
@@ -0,0 +1,362 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Relatório de vendas sobre um conjunto de pedidos: receita e itens por
+ * {@link Categoria}, receita e quantidade por produto, receita e pedidos por
+ * cliente e a distribuição por {@link StatusPedido}.
+ *
+ * <p>Os valores são acumulados em centavos em arrays {@code long[]} indexados
+ * pelo ordinal (categoria, status) e, por produto e por cliente, em uma
+ * {@link SomasPorId}, cujo tamanho depende de quantos IDs aparecem e não do
+ * maior ID, sem boxing.
+ * {@link #calcular} divide a lista em uma parte por thread do pool comum, cada
+ * parte é somada em seu próprio acumulador com um stream paralelo e os
+ * acumuladores são combinados no final, sem sincronização durante a soma.
+ */
+public final class RelatorioVendas {
+
+    /** Abaixo disso a divisão em partes custa mais do que economiza. */
+    private static final int MINIMO_POR_PARTE = 10_000;
+
+    /** Uma linha de ranking (produto ou cliente). */
+    public static final class Posicao {
+        private final int id;
+        private final long quantidade;
+        private final long receitaCentavos;
+
+        Posicao(int id, long quantidade, long receitaCentavos) {
+            this.id = id;
+            this.quantidade = quantidade;
+            this.receitaCentavos = receitaCentavos;
+        }
+
+        /** ID do produto ou do cliente. */
+        public int getId() {
+            return id;
+        }
+
+        /** Unidades vendidas (produto) ou pedidos feitos (cliente). */
+        public long getQuantidade() {
+            return quantidade;
+        }
+
+        public long getReceitaCentavos() {
+            return receitaCentavos;
+        }
+    }
+
+    private final Acumulador dados;
+
+    RelatorioVendas(Acumulador dados) {
+        this.dados = dados;
+    }
+
+    /**
+     * Calcula o relatório em paralelo. A lista deve permitir acesso por índice
+     * (por exemplo, a cópia devolvida por {@link Repositorio#listar()}).
+     */
+    public static RelatorioVendas calcular(List<Pedido> pedidos) {
+        int partes = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), pedidos.size() / MINIMO_POR_PARTE));
+        if (partes == 1) return calcularSequencial(pedidos);
+        Acumulador total = IntStream.range(0, partes).parallel()
+                .mapToObj(parte -> acumular(pedidos,
+                        (int) ((long) pedidos.size() * parte / partes),
+                        (int) ((long) pedidos.size() * (parte + 1) / partes)))
+                .reduce(Acumulador::combinar)
+                .orElseGet(Acumulador::new);
+        return new RelatorioVendas(total);
+    }
+
+    /** Calcula o relatório em uma única thread (referência para os benchmarks). */
+    public static RelatorioVendas calcularSequencial(List<Pedido> pedidos) {
+        return new RelatorioVendas(acumular(pedidos, 0, pedidos.size()));
+    }
+
+    private static Acumulador acumular(List<Pedido> pedidos, int inicio, int fim) {
+        Acumulador acumulador = new Acumulador();
+        for (int i = inicio; i < fim; i++) {
+            acumulador.adicionar(pedidos.get(i));
+        }
+        return acumulador;
+    }
+
+    /** Somas completas, para quem inicializa outros contadores a partir delas. */
+    Acumulador dados() {
+        return dados;
+    }
+
+    public long getPedidos() {
+        return dados.pedidos;
+    }
+
+    public long getItens() {
+        return dados.itens;
+    }
+
+    public long getReceitaTotalCentavos() {
+        return dados.receitaTotal;
+    }
+
+    public long getReceitaCentavos(Categoria categoria) {
+        return dados.receitaPorCategoria[categoria.ordinal()];
+    }
+
+    /** Unidades vendidas na categoria. */
+    public long getUnidades(Categoria categoria) {
+        return dados.unidadesPorCategoria[categoria.ordinal()];
+    }
+
+    public long getPedidos(StatusPedido status) {
+        return dados.pedidosPorStatus[status.ordinal()];
+    }
+
+    public long getValorCentavos(StatusPedido status) {
+        return dados.valorPorStatus[status.ordinal()];
+    }
+
+    /** Os {@code n} produtos de maior receita, do maior para o menor. */
+    public List<Posicao> topProdutos(int n) {
+        return maiores(dados.porProduto, n);
+    }
+
+    /** Os {@code n} clientes de maior receita, do maior para o menor. */
+    public List<Posicao> topClientes(int n) {
+        return maiores(dados.porCliente, n);
+    }
+
+    /**
+     * Seleciona as {@code n} posições de maior receita com um heap mínimo de
+     * tamanho {@code n} (O(m log n), sem ordenar a tabela inteira). O heap
+     * guarda posições da tabela de {@code somas}, não IDs.
+     */
+    private static List<Posicao> maiores(SomasPorId somas, int n) {
+        if (n <= 0) throw new IllegalArgumentException("Quantidade do ranking deve ser positiva");
+        int[] heap = new int[Math.min(n, somas.tamanho)];
+        int tamanho = 0;
+        for (int posicao = 0; posicao < somas.ocupada.length; posicao++) {
+            if (!somas.ocupada[posicao] || somas.quantidade[posicao] == 0) continue;
+            if (tamanho < heap.length) {
+                heap[tamanho] = posicao;
+                subir(heap, tamanho++, somas);
+            } else if (menor(heap[0], posicao, somas)) {
+                heap[0] = posicao;
+                descer(heap, tamanho, somas);
+            }
+        }
+        List<Posicao> ranking = new ArrayList<>(tamanho);
+        while (tamanho > 0) {
+            int posicao = heap[0];
+            ranking.add(new Posicao(somas.ids[posicao], somas.quantidade[posicao], somas.receita[posicao]));
+            heap[0] = heap[--tamanho];
+            descer(heap, tamanho, somas);
+        }
+        Collections.reverse(ranking);
+        return ranking;
+    }
+
+    /** Ordem do ranking: menor receita primeiro; no empate, o maior ID fica abaixo. */
+    private static boolean menor(int a, int b, SomasPorId somas) {
+        long receitaA = somas.receita[a];
+        long receitaB = somas.receita[b];
+        return receitaA != receitaB ? receitaA < receitaB : somas.ids[a] > somas.ids[b];
+    }
+
+    private static void subir(int[] heap, int i, SomasPorId somas) {
+        while (i > 0) {
+            int pai = (i - 1) / 2;
+            if (!menor(heap[i], heap[pai], somas)) return;
+            trocar(heap, i, pai);
+            i = pai;
+        }
+    }
+
+    private static void descer(int[] heap, int tamanho, SomasPorId somas) {
+        int i = 0;
+        while (true) {
+            int menor = i;
+            int esquerdo = 2 * i + 1;
+            int direito = esquerdo + 1;
+            if (esquerdo < tamanho && menor(heap[esquerdo], heap[menor], somas)) menor = esquerdo;
+            if (direito < tamanho && menor(heap[direito], heap[menor], somas)) menor = direito;
+            if (menor == i) return;
+            trocar(heap, i, menor);
+            i = menor;
+        }
+    }
+
+    private static void trocar(int[] heap, int i, int j) {
+        int temp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = temp;
+    }
+
+    /**
+     * Somas parciais de uma parte da lista; as somas por produto e por cliente
+     * ganham uma entrada para cada ID encontrado. Também recebe a cópia dos
+     * {@link AgregadosVendas}.
+     */
+    static final class Acumulador {
+        long pedidos;
+        long itens;
+        long receitaTotal;
+        final long[] receitaPorCategoria = new long[Categoria.values().length];
+        final long[] unidadesPorCategoria = new long[Categoria.values().length];
+        final long[] pedidosPorStatus = new long[StatusPedido.values().length];
+        final long[] valorPorStatus = new long[StatusPedido.values().length];
+        SomasPorId porProduto = new SomasPorId(); // receita e unidades vendidas
+        SomasPorId porCliente = new SomasPorId(); // receita e pedidos feitos
+
+        void adicionar(Pedido pedido) {
+            long valorPedido = 0;
+            for (ItemPedido item : pedido.getItens()) {
+                Produto produto = item.getProduto();
+                long subtotal = item.calcularSubtotalCentavos();
+                porProduto.somar(produto.getId(), subtotal, item.getQuantidade());
+                receitaPorCategoria[produto.getCategoria().ordinal()] += subtotal;
+                unidadesPorCategoria[produto.getCategoria().ordinal()] += item.getQuantidade();
+                valorPedido += subtotal;
+                itens++;
+            }
+            porCliente.somar(pedido.getCliente().getId(), valorPedido, 1);
+            int status = pedido.getStatus().ordinal();
+            pedidosPorStatus[status]++;
+            valorPorStatus[status] += valorPedido;
+            receitaTotal += valorPedido;
+            pedidos++;
+        }
+
+        /** Soma {@code outro} neste acumulador (o maior dos dois recebe o menor). */
+        Acumulador combinar(Acumulador outro) {
+            if (outro.porCliente.tamanho + outro.porProduto.tamanho > porCliente.tamanho + porProduto.tamanho) {
+                return outro.combinar(this);
+            }
+            pedidos += outro.pedidos;
+            itens += outro.itens;
+            receitaTotal += outro.receitaTotal;
+            somar(receitaPorCategoria, outro.receitaPorCategoria);
+            somar(unidadesPorCategoria, outro.unidadesPorCategoria);
+            somar(pedidosPorStatus, outro.pedidosPorStatus);
+            somar(valorPorStatus, outro.valorPorStatus);
+            porProduto.somar(outro.porProduto);
+            porCliente.somar(outro.porCliente);
+            return this;
+        }
+
+        private static void somar(long[] destino, long[] origem) {
+            for (int i = 0; i < origem.length; i++) {
+                destino[i] += origem[i];
+            }
+        }
+    }
+
+    /**
+     * Receita e quantidade por ID, em uma tabela de endereçamento aberto como a
+     * do {@link IndiceInt}, mas com os valores em arrays {@code long[]}
+     * paralelos. O espaço acompanha a quantidade de IDs, então um ID alto (o
+     * importador e o snapshot aceitam qualquer ID positivo) não custa mais que
+     * um baixo.
+     */
+    static final class SomasPorId {
+        private static final int CAPACIDADE_MINIMA = 64;
+
+        private int[] ids;
+        private long[] receita;
+        private long[] quantidade;
+        private boolean[] ocupada;
+        private int tamanho;
+
+        SomasPorId() {
+            this(CAPACIDADE_MINIMA / 2);
+        }
+
+        /** Cria a tabela já dimensionada para {@code esperado} IDs. */
+        SomasPorId(int esperado) {
+            alocar(Integer.highestOneBit(Math.max(CAPACIDADE_MINIMA, esperado * 2 - 1)) << 1);
+        }
+
+        /** Soma receita e quantidade no ID, criando a entrada se preciso. */
+        void somar(int id, long receitaId, long quantidadeId) {
+            int posicao = posicaoDe(id);
+            receita[posicao] += receitaId;
+            quantidade[posicao] += quantidadeId;
+        }
+
+        /** Soma todas as entradas de {@code outra} nesta tabela. */
+        void somar(SomasPorId outra) {
+            for (int i = 0; i < outra.ocupada.length; i++) {
+                if (outra.ocupada[i]) somar(outra.ids[i], outra.receita[i], outra.quantidade[i]);
+            }
+        }
+
+        /** Quantidade de IDs com entrada. */
+        int tamanho() {
+            return tamanho;
+        }
+
+        /** Entrega cada ID com suas somas, em ordem arbitrária. */
+        void percorrer(Visitante visitante) {
+            for (int i = 0; i < ocupada.length; i++) {
+                if (ocupada[i]) visitante.visitar(ids[i], receita[i], quantidade[i]);
+            }
+        }
+
+        @FunctionalInterface
+        interface Visitante {
+            void visitar(int id, long receita, long quantidade);
+        }
+
+        private int posicaoDe(int id) {
+            int mascara = ids.length - 1;
+            int i = espalhar(id, mascara);
+            while (ocupada[i]) {
+                if (ids[i] == id) return i;
+                i = (i + 1) & mascara;
+            }
+            if (tamanho + 1 > ids.length / 2) { // fator de carga de 50%, como no IndiceInt
+                redimensionar();
+                return posicaoDe(id);
+            }
+            ocupada[i] = true;
+            ids[i] = id;
+            tamanho++;
+            return i;
+        }
+
+        private void redimensionar() {
+            int[] idsAntigos = ids;
+            long[] receitaAntiga = receita;
+            long[] quantidadeAntiga = quantidade;
+            boolean[] ocupadaAntiga = ocupada;
+            alocar(ids.length * 2);
+            int mascara = ids.length - 1;
+            for (int j = 0; j < ocupadaAntiga.length; j++) {
+                if (!ocupadaAntiga[j]) continue;
+                int i = espalhar(idsAntigos[j], mascara);
+                while (ocupada[i]) i = (i + 1) & mascara;
+                ocupada[i] = true;
+                ids[i] = idsAntigos[j];
+                receita[i] = receitaAntiga[j];
+                quantidade[i] = quantidadeAntiga[j];
+            }
+        }
+
+        private void alocar(int capacidade) {
+            ids = new int[capacidade];
+            receita = new long[capacidade];
+            quantidade = new long[capacidade];
+            ocupada = new boolean[capacidade];
+        }
+
+        /** Espalha IDs sequenciais pela tabela (mesma função do {@link IndiceInt}). */
+        private static int espalhar(int id, int mascara) {
+            int h = id * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mascara;
+        }
+    }
+}
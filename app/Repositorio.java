@@ -0,0 +1,257 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Coleção de entidades {@link Identificavel} com busca por ID em tempo
+ * constante e geração de IDs por sequência atômica, segura para uso por várias
+ * threads (menu, workers do processador, gravação de snapshots).
+ *
+ * <p>As entidades ficam em um log somente-anexação dividido em segmentos: cada
+ * inserção reserva uma posição com um contador atômico e publica a entidade
+ * com escrita volátil, então listagens percorrem o log sem nenhum bloqueio e
+ * enxergam a entidade já completamente construída. O índice por ID é dividido
+ * em faixas, cada uma com sua própria trava, para que inserções e buscas de IDs
+ * diferentes raramente disputem a mesma trava. A sequência acompanha o maior
+ * ID já inserido, de modo que entidades carregadas de arquivo nunca colidam
+ * com as novas.
+ */
+public class Repositorio<T extends Identificavel> implements Iterable<T> {
+    private static final int BITS_SEGMENTO = 12;
+    private static final int TAMANHO_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int BITS_FAIXAS = 4;
+
+    private final IndiceInt<T>[] indices;
+    private final ReentrantReadWriteLock[] travas;
+    private final AtomicInteger sequencia = new AtomicInteger();
+    private final AtomicInteger reservados = new AtomicInteger(); // posições já entregues a inserções
+    private final AtomicInteger publicados = new AtomicInteger(); // inserções concluídas
+
+    // Diretório de segmentos; só é trocado (por um maior) sob o bloqueio do repositório
+    private volatile AtomicReferenceArray<AtomicReferenceArray<T>> segmentos = new AtomicReferenceArray<>(16);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Repositorio() {
+        indices = new IndiceInt[1 << BITS_FAIXAS];
+        travas = new ReentrantReadWriteLock[1 << BITS_FAIXAS];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = new IndiceInt<>();
+            travas[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /** Reserva o próximo ID livre. */
+    public int proximoId() {
+        return sequencia.incrementAndGet();
+    }
+
+    /**
+     * Adiciona a entidade, rejeitando IDs repetidos. A entidade não deve mais
+     * ser alterada estruturalmente depois de adicionada (apenas campos
+     * voláteis, como o status do pedido).
+     */
+    public void adicionar(T item) {
+        if (item == null) throw new ValidacaoException("Entidade obrigatória");
+        int id = item.getId();
+        int faixa = faixa(id);
+        ReentrantReadWriteLock.WriteLock escrita = travas[faixa].writeLock();
+        escrita.lock();
+        try {
+            if (indices[faixa].colocarSeAusente(id, item) != null) {
+                throw new ValidacaoException("ID já cadastrado: " + id);
+            }
+        } finally {
+            escrita.unlock();
+        }
+        int posicao = reservados.getAndIncrement();
+        segmento(posicao >>> BITS_SEGMENTO).set(posicao & (TAMANHO_SEGMENTO - 1), item);
+        publicados.incrementAndGet();
+        sequencia.accumulateAndGet(id, Math::max);
+    }
+
+    public void adicionarTodos(Collection<? extends T> novos) {
+        novos.forEach(this::adicionar);
+    }
+
+    /** Entidade com o ID informado, ou {@code null}. */
+    public T buscar(int id) {
+        int faixa = faixa(id);
+        ReentrantReadWriteLock.ReadLock leitura = travas[faixa].readLock();
+        leitura.lock();
+        try {
+            return indices[faixa].buscar(id);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return publicados.get() == 0;
+    }
+
+    public int tamanho() {
+        return publicados.get();
+    }
+
+    /**
+     * Cópia das entidades publicadas até este momento, na ordem de inserção.
+     * Inserções concorrentes feitas depois da chamada não aparecem na cópia.
+     */
+    public List<T> listar() {
+        List<T> copia = new ArrayList<>(tamanho());
+        forEach(copia::add);
+        return copia;
+    }
+
+    /**
+     * Página de até {@code limite} entidades que atendem ao filtro, na ordem de
+     * inserção, a partir do cursor ({@link Pagina#INICIO} na primeira chamada).
+     * O cursor é uma posição do log, que nunca muda de lugar, então inserções
+     * entre uma página e outra não fazem resultados pularem ou se repetirem.
+     * Custa o número de posições percorridas até completar a página e achar o
+     * próximo resultado.
+     */
+    public Pagina<T> pagina(int cursor, int limite, Predicate<? super T> filtro) {
+        if (cursor < 0) throw new IllegalArgumentException("Cursor inválido");
+        if (limite <= 0) throw new IllegalArgumentException("Tamanho da página deve ser positivo");
+        int fim = reservados.get();
+        List<T> itens = new ArrayList<>(Math.min(limite, 64));
+        for (int posicao = cursor; posicao < fim; posicao++) {
+            AtomicReferenceArray<T> segmento = segmentoPublicado(segmentos, posicao >>> BITS_SEGMENTO);
+            T item = segmento == null ? null : segmento.get(posicao & (TAMANHO_SEGMENTO - 1));
+            if (item == null || !filtro.test(item)) continue;
+            if (itens.size() == limite) return new Pagina<>(itens, posicao);
+            itens.add(item);
+        }
+        return new Pagina<>(itens, -1);
+    }
+
+    /** Quantidade de posições já reservadas no log (limite superior para {@link #percorrer}). */
+    public int tamanhoLog() {
+        return reservados.get();
+    }
+
+    /**
+     * Aplica a ação às entidades das posições {@code [inicio, fim)} do log, na
+     * ordem de inserção e sem bloqueios; posições ainda sendo preenchidas são
+     * puladas. Permite dividir o log em partes percorridas por threads diferentes.
+     */
+    public void percorrer(int inicio, int fim, Consumer<? super T> acao) {
+        if (inicio < 0 || fim < inicio) throw new IllegalArgumentException("Intervalo inválido");
+        int limite = Math.min(fim, reservados.get());
+        for (int posicao = inicio; posicao < limite; posicao++) {
+            AtomicReferenceArray<T> segmento = segmentoPublicado(segmentos, posicao >>> BITS_SEGMENTO);
+            T item = segmento == null ? null : segmento.get(posicao & (TAMANHO_SEGMENTO - 1));
+            if (item != null) acao.accept(item);
+        }
+    }
+
+    /** Percorre o log sem bloqueios; equivale a iterar sobre {@link #listar()} sem a cópia. */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Esvazia o repositório. Usado apenas na carga inicial: não deve ser
+     * chamado enquanto outras threads inserem.
+     */
+    public synchronized void limpar() {
+        for (int i = 0; i < indices.length; i++) {
+            travas[i].writeLock().lock();
+            try {
+                indices[i].limpar();
+            } finally {
+                travas[i].writeLock().unlock();
+            }
+        }
+        segmentos = new AtomicReferenceArray<>(16);
+        reservados.set(0);
+        publicados.set(0);
+        sequencia.set(0);
+    }
+
+    /**
+     * Iterador fracamente consistente: cobre as posições reservadas no início
+     * da iteração e pula as que ainda estão sendo preenchidas.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        int limite = reservados.get();
+        AtomicReferenceArray<AtomicReferenceArray<T>> diretorio = segmentos;
+        return new Iterator<>() {
+            private int posicao;
+            private T proximo = avancar();
+
+            @Override
+            public boolean hasNext() {
+                return proximo != null;
+            }
+
+            @Override
+            public T next() {
+                if (proximo == null) throw new NoSuchElementException();
+                T atual = proximo;
+                proximo = avancar();
+                return atual;
+            }
+
+            private T avancar() {
+                while (posicao < limite) {
+                    int i = posicao++;
+                    int s = i >>> BITS_SEGMENTO;
+                    AtomicReferenceArray<T> segmento = segmentoPublicado(diretorio, s);
+                    if (segmento == null) segmento = segmentoPublicado(segmentos, s); // diretório cresceu depois do início
+                    T item = segmento == null ? null : segmento.get(i & (TAMANHO_SEGMENTO - 1));
+                    if (item != null) return item;
+                }
+                return null;
+            }
+        };
+    }
+
+    private AtomicReferenceArray<T> segmento(int indice) {
+        AtomicReferenceArray<AtomicReferenceArray<T>> diretorio = segmentos;
+        if (indice < diretorio.length()) {
+            AtomicReferenceArray<T> segmento = diretorio.get(indice);
+            if (segmento != null) return segmento;
+        }
+        // Raro: a cada TAMANHO_SEGMENTO inserções é preciso criar um segmento novo
+        synchronized (this) {
+            diretorio = segmentos;
+            if (indice >= diretorio.length()) {
+                AtomicReferenceArray<AtomicReferenceArray<T>> maior =
+                        new AtomicReferenceArray<>(Math.max(diretorio.length() * 2, indice + 1));
+                for (int i = 0; i < diretorio.length(); i++) {
+                    maior.set(i, diretorio.get(i));
+                }
+                segmentos = diretorio = maior;
+            }
+            AtomicReferenceArray<T> segmento = diretorio.get(indice);
+            if (segmento == null) {
+                segmento = new AtomicReferenceArray<>(TAMANHO_SEGMENTO);
+                diretorio.set(indice, segmento);
+            }
+            return segmento;
+        }
+    }
+
+    private static <T> AtomicReferenceArray<T> segmentoPublicado(
+            AtomicReferenceArray<AtomicReferenceArray<T>> diretorio, int indice) {
+        return indice < diretorio.length() ? diretorio.get(indice) : null;
+    }
+
+    private static int faixa(int id) {
+        return (id * 0x9E3779B9) >>> (Integer.SIZE - BITS_FAIXAS);
+    }
+}
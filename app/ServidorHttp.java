@@ -0,0 +1,415 @@
+package app;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * API HTTP embutida para cadastrar e consultar clientes, produtos e pedidos,
+ * com corpo e respostas em JSON:
+ * <pre>
+ *   POST /clientes        {"nome":"Ana","email":"ana@ex.com"}
+ *   POST /produtos        {"nome":"Livro","preco":39.9,"categoria":"LIVROS"}
+ *   POST /pedidos         {"clienteId":1,"itens":[{"produtoId":2,"quantidade":3}]}
+ *   GET  /clientes/{id}   (idem para produtos e pedidos)
+ *   GET  /clientes?cursor=0&amp;limite=100
+ *   GET  /pedidos?status=FILA&amp;clienteId=1&amp;produtoId=2&amp;cursor=0&amp;limite=100
+ * </pre>
+ * Cadastros respondem 201 com a entidade criada; um pedido recusado pela fila
+ * cheia também é criado, com status ABERTO, e processado no próximo
+ * carregamento (como no menu). Erros de validação respondem 422, JSON ou
+ * parâmetros inválidos 400 e IDs inexistentes 404, sempre com {@code {"erro":...}}.
+ *
+ * <p>Cada requisição roda em uma thread virtual
+ * ({@link PedidoProcessor#novoExecutorVirtual}), então milhares de conexões
+ * simultâneas esperando a fila ou o journal não prendem threads do sistema.
+ * Toda resposta é montada antes do envio e sai com {@code Content-Length},
+ * o que mantém a conexão aberta (keep-alive) para a próxima requisição. As
+ * listagens são escritas direto nos bytes da resposta e enviadas com uma única
+ * escrita, sem passar por {@code String} nem por cópias do buffer.
+ */
+final class ServidorHttp {
+    private static final int LIMITE_PADRAO = 100;
+    private static final int LIMITE_MAXIMO = 1000;
+    private static final int TAMANHO_MAXIMO_CORPO = 64 * 1024;
+
+    /** O que o cadastro faz além de criar a entidade (repositório, índices, journal e fila). */
+    interface Cadastro {
+        void cadastrar(Cliente cliente);
+
+        void cadastrar(Produto produto);
+
+        /** @return {@code false} se a fila recusou o pedido (ele fica ABERTO) */
+        boolean cadastrar(Pedido pedido);
+    }
+
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+    private final Repositorio<Cliente> clientes;
+    private final Repositorio<Produto> produtos;
+    private final Repositorio<Pedido> pedidos;
+    private final IndicePedidos indicePedidos;
+    private final Cadastro cadastro;
+
+    /**
+     * Abre a porta (0 escolhe uma livre); as requisições só são atendidas depois
+     * de {@link #iniciar}.
+     *
+     * @param backlog conexões aguardando aceitação que o sistema operacional pode enfileirar
+     */
+    ServidorHttp(int porta, int backlog, Repositorio<Cliente> clientes, Repositorio<Produto> produtos,
+                 Repositorio<Pedido> pedidos, IndicePedidos indicePedidos, Cadastro cadastro) throws IOException {
+        this.clientes = clientes;
+        this.produtos = produtos;
+        this.pedidos = pedidos;
+        this.indicePedidos = indicePedidos;
+        this.cadastro = cadastro;
+        servidor = HttpServer.create(new InetSocketAddress(porta), backlog);
+        executor = PedidoProcessor.novoExecutorVirtual();
+        servidor.setExecutor(executor);
+        servidor.createContext("/clientes", troca -> atender(troca, this::clientes));
+        servidor.createContext("/produtos", troca -> atender(troca, this::produtos));
+        servidor.createContext("/pedidos", troca -> atender(troca, this::pedidos));
+    }
+
+    void iniciar() {
+        servidor.start();
+    }
+
+    /** Para de aceitar conexões e espera até {@code segundos} pelas requisições em andamento. */
+    void parar(int segundos) {
+        servidor.stop(segundos);
+        executor.shutdown();
+    }
+
+    int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    /** Trata uma requisição já separada em método, ID (ou -1 para a coleção) e parâmetros. */
+    private interface Rota {
+        void tratar(Requisicao requisicao, Resposta resposta) throws IOException;
+    }
+
+    private void atender(HttpExchange troca, Rota rota) throws IOException {
+        Resposta resposta = new Resposta();
+        try (troca) {
+            try {
+                rota.tratar(new Requisicao(troca), resposta);
+            } catch (ErroHttp e) {
+                resposta.erro(e.status, e.getMessage());
+            } catch (ValidacaoException e) {
+                resposta.erro(422, e.getMessage());
+            } catch (IllegalArgumentException e) { // JSON, número ou status inválido
+                resposta.erro(400, e.getMessage());
+            } catch (RuntimeException e) {
+                resposta.erro(500, "Erro interno: " + e.getMessage());
+            }
+            resposta.enviar(troca);
+        }
+    }
+
+    private void clientes(Requisicao requisicao, Resposta resposta) throws IOException {
+        if (requisicao.criacao()) {
+            String nome = null;
+            String email = null;
+            JsonReader json = requisicao.json();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "nome" -> nome = json.nextString();
+                    case "email" -> email = json.nextString();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            Cliente cliente = new Cliente(clientes.proximoId(), nome, email);
+            cadastro.cadastrar(cliente);
+            resposta.criado("/clientes/" + cliente.getId());
+            JsonUtil.appendCliente(resposta.json(), cliente, 0);
+        } else if (requisicao.id >= 0) {
+            JsonUtil.appendCliente(resposta.json(), existente(clientes.buscar(requisicao.id), "Cliente"), 0);
+        } else {
+            Pagina<Cliente> pagina = clientes.pagina(requisicao.cursor(), requisicao.limite(), c -> true);
+            resposta.pagina(pagina, JsonUtil::appendCliente);
+        }
+    }
+
+    private void produtos(Requisicao requisicao, Resposta resposta) throws IOException {
+        if (requisicao.criacao()) {
+            String nome = null;
+            double preco = 0;
+            Categoria categoria = null;
+            JsonReader json = requisicao.json();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "nome" -> nome = json.nextString();
+                    case "preco" -> preco = json.nextDouble();
+                    case "categoria" -> categoria = categoria(json.nextString());
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+            Produto produto = new Produto(produtos.proximoId(), nome, preco, categoria);
+            cadastro.cadastrar(produto);
+            resposta.criado("/produtos/" + produto.getId());
+            JsonUtil.appendProduto(resposta.json(), produto, 0);
+        } else if (requisicao.id >= 0) {
+            JsonUtil.appendProduto(resposta.json(), existente(produtos.buscar(requisicao.id), "Produto"), 0);
+        } else {
+            Pagina<Produto> pagina = produtos.pagina(requisicao.cursor(), requisicao.limite(), p -> true);
+            resposta.pagina(pagina, JsonUtil::appendProduto);
+        }
+    }
+
+    private void pedidos(Requisicao requisicao, Resposta resposta) throws IOException {
+        if (requisicao.criacao()) {
+            Pedido pedido = lerPedido(requisicao.json());
+            cadastro.cadastrar(pedido);
+            resposta.criado("/pedidos/" + pedido.getId());
+            JsonUtil.appendPedido(resposta.json(), pedido, 0);
+        } else if (requisicao.id >= 0) {
+            JsonUtil.appendPedido(resposta.json(), existente(pedidos.buscar(requisicao.id), "Pedido"), 0);
+        } else {
+            String status = requisicao.parametros.get("status");
+            String clienteId = requisicao.parametros.get("clienteId");
+            String produtoId = requisicao.parametros.get("produtoId");
+            Pagina<Pedido> pagina;
+            if (status == null && clienteId == null && produtoId == null) {
+                pagina = pedidos.pagina(requisicao.cursor(), requisicao.limite(), p -> true);
+            } else {
+                // Com filtro, a consulta parte do índice mais seletivo em vez de percorrer os pedidos
+                IndicePedidos.Consulta consulta = indicePedidos.consulta();
+                if (status != null) consulta.status(StatusPedido.valueOf(status.toUpperCase()));
+                if (clienteId != null) consulta.cliente(numero(clienteId, "clienteId"));
+                if (produtoId != null) consulta.produto(numero(produtoId, "produtoId"));
+                pagina = consulta.pagina(requisicao.cursor(), requisicao.limite());
+            }
+            resposta.pagina(pagina, JsonUtil::appendPedido);
+        }
+    }
+
+    /** Pedido no formato {@code {"clienteId":1,"itens":[{"produtoId":2,"quantidade":3}]}}, já com novo ID. */
+    private Pedido lerPedido(JsonReader json) throws IOException {
+        Cliente cliente = null;
+        Pedido pedido = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "clienteId" -> {
+                    int clienteId = json.nextInt();
+                    cliente = clientes.buscar(clienteId);
+                    if (cliente == null) throw new ValidacaoException("Cliente não encontrado: " + clienteId);
+                    pedido = new Pedido(pedidos.proximoId(), cliente);
+                }
+                case "itens" -> {
+                    if (pedido == null) throw new ValidacaoException("Informe clienteId antes dos itens");
+                    json.beginArray();
+                    while (json.hasNext()) lerItem(json, pedido);
+                    json.endArray();
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        if (pedido == null) throw new ValidacaoException("Cliente obrigatório");
+        if (pedido.getItens().isEmpty()) throw new ValidacaoException("Pedido precisa ter pelo menos um item");
+        return pedido;
+    }
+
+    private void lerItem(JsonReader json, Pedido pedido) throws IOException {
+        int produtoId = 0;
+        int quantidade = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "produtoId" -> produtoId = json.nextInt();
+                case "quantidade" -> quantidade = json.nextInt();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        Produto produto = produtos.buscar(produtoId);
+        if (produto == null) throw new ValidacaoException("Produto não encontrado: " + produtoId);
+        pedido.adicionarItem(produto, quantidade);
+    }
+
+    private static Categoria categoria(String texto) {
+        try {
+            return Categoria.valueOf(texto.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidacaoException("Categoria inválida: " + texto);
+        }
+    }
+
+    private static int numero(String texto, String nome) {
+        try {
+            return Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parâmetro " + nome + " inválido: " + texto);
+        }
+    }
+
+    private static <T> T existente(T entidade, String tipo) {
+        if (entidade == null) throw new ErroHttp(404, tipo + " não encontrado");
+        return entidade;
+    }
+
+    /** Método, ID do caminho e parâmetros da URL de uma requisição. */
+    private static final class Requisicao {
+        final HttpExchange troca;
+        final String metodo;
+        final int id; // -1 quando o caminho é a própria coleção
+        final Map<String, String> parametros = new HashMap<>();
+
+        Requisicao(HttpExchange troca) {
+            this.troca = troca;
+            this.metodo = troca.getRequestMethod();
+            String caminho = troca.getRequestURI().getPath().substring(troca.getHttpContext().getPath().length());
+            if (caminho.isEmpty() || caminho.equals("/")) {
+                id = -1;
+            } else {
+                id = idDoCaminho(caminho.substring(1));
+                if (id < 0) throw new ErroHttp(404, "Caminho não encontrado: " + troca.getRequestURI().getPath());
+            }
+            String consulta = troca.getRequestURI().getRawQuery();
+            if (consulta != null) {
+                for (String par : consulta.split("&")) {
+                    int igual = par.indexOf('=');
+                    if (igual <= 0) continue;
+                    parametros.put(URLDecoder.decode(par.substring(0, igual), StandardCharsets.UTF_8),
+                            URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+                }
+            }
+            boolean permitido = metodo.equals("GET") || (metodo.equals("POST") && id < 0);
+            if (!permitido) {
+                troca.getResponseHeaders().set("Allow", id < 0 ? "GET, POST" : "GET");
+                throw new ErroHttp(405, "Método não permitido: " + metodo);
+            }
+        }
+
+        private static int idDoCaminho(String texto) {
+            try {
+                return Integer.parseInt(texto);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        boolean criacao() {
+            return metodo.equals("POST");
+        }
+
+        /** Lê o corpo inteiro (até o limite) e devolve um leitor JSON sobre ele. */
+        JsonReader json() throws IOException {
+            InputStream corpo = troca.getRequestBody();
+            byte[] bytes = corpo.readNBytes(TAMANHO_MAXIMO_CORPO + 1);
+            if (bytes.length > TAMANHO_MAXIMO_CORPO) {
+                throw new ErroHttp(413, "Corpo maior que " + TAMANHO_MAXIMO_CORPO + " bytes");
+            }
+            return new JsonReader(new StringReader(new String(bytes, StandardCharsets.UTF_8)));
+        }
+
+        int cursor() {
+            String texto = parametros.get("cursor");
+            return texto == null ? Pagina.INICIO : numero(texto, "cursor");
+        }
+
+        int limite() {
+            String texto = parametros.get("limite");
+            return texto == null ? LIMITE_PADRAO : Math.min(LIMITE_MAXIMO, numero(texto, "limite"));
+        }
+    }
+
+    /** Escreve uma entidade como objeto JSON no nível informado (os {@code append*} do JsonUtil). */
+    private interface Serializador<T> {
+        void escrever(JsonUtil.Saida saida, T entidade, int nivel) throws IOException;
+    }
+
+    /**
+     * Corpo da resposta montado na memória: o JSON é codificado direto no array
+     * deste buffer, que é enviado como está (sem {@code toByteArray}).
+     */
+    private static final class Resposta extends ByteArrayOutputStream {
+        private final Writer texto = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+        private int status = 200;
+        private String local;
+
+        Resposta() {
+            super(1024);
+        }
+
+        JsonUtil.Saida json() {
+            return new JsonUtil.Saida(texto, true);
+        }
+
+        void criado(String caminho) {
+            status = 201;
+            local = caminho;
+        }
+
+        /** {@code {"itens":[...],"proximoCursor":N}}; o cursor é {@code null} na última página. */
+        <T> void pagina(Pagina<T> pagina, Serializador<T> serializador) throws IOException {
+            JsonUtil.Saida saida = json();
+            saida.literal("{\"itens\":[");
+            List<T> itens = pagina.getItens();
+            for (int i = 0; i < itens.size(); i++) {
+                if (i > 0) saida.append(',');
+                serializador.escrever(saida, itens.get(i), 0);
+            }
+            saida.literal("],\"proximoCursor\":");
+            if (pagina.temMais()) {
+                saida.append(pagina.getProximoCursor());
+            } else {
+                saida.literal("null");
+            }
+            saida.append('}');
+        }
+
+        void erro(int status, String mensagem) throws IOException {
+            texto.flush();
+            reset(); // descarta o que já tinha sido escrito antes do erro
+            this.status = status;
+            local = null;
+            json().literal("{\"erro\":").texto(mensagem).append('}');
+        }
+
+        void enviar(HttpExchange troca) throws IOException {
+            texto.flush();
+            troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            if (local != null) troca.getResponseHeaders().set("Location", local);
+            // Com o tamanho conhecido a conexão continua aberta para a próxima requisição
+            troca.sendResponseHeaders(status, count == 0 ? -1 : count);
+            try (OutputStream corpo = troca.getResponseBody()) {
+                corpo.write(buf, 0, count);
+            }
+        }
+    }
+
+    /** Erro com status HTTP próprio (404, 405, 413). */
+    private static final class ErroHttp extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ErroHttp(int status, String mensagem) {
+            super(mensagem);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot binário colunar, alternativo ao JSON do {@link JsonUtil}.
+ *
+ * <p>O arquivo começa com o cabeçalho {@code PDBN} + versão, seguido de uma
+ * tabela de strings (offsets + bytes UTF-8) e das colunas de largura fixa de
+ * cada entidade: um array por atributo, com textos referenciados pelo índice na
+ * tabela de strings. A gravação passa por um buffer reaproveitado de
+ * {@value #TAMANHO_BUFFER} bytes e a leitura traz o arquivo com leituras
+ * posicionais do {@link FileChannel} para um buffer, copiando cada coluna em
+ * bloco, sem nenhum parsing de texto. O arquivo não é mapeado com
+ * {@link FileChannel#map}: um mapeamento só é desfeito quando o coletor de lixo
+ * libera o buffer, e no Windows um arquivo mapeado não pode ser substituído
+ * nem apagado, o que faria falhar a troca atômica do snapshot.
+ *
+ * <pre>
+ * cabeçalho : magic(4) versao(4) nStrings(4) nClientes(4) nProdutos(4) nPedidos(4) nItens(4) tamBytes(4)
+ * strings   : offset[nStrings + 1] int, bytes[tamBytes]           (alinhado a 4)
+ * clientes  : id[n] int, nome[n] int, email[n] int
+ * produtos  : id[n] int, nome[n] int, preco[n] double, categoria[n] byte   (alinhado a 4)
+ * pedidos   : id[n] int, clienteId[n] int, primeiroItem[n + 1] int, status[n] byte (alinhado a 4)
+ * itens     : produtoId[n] int, quantidade[n] int
+ * criação   : criadoEm[nPedidos] long                              (versão 2)
+ * </pre>
+ *
+ * A versão 1 não tem a coluna de criação; os pedidos lidos dela ficam com data
+ * desconhecida. Limitado a arquivos de até 2 GiB (tamanho máximo de um {@link ByteBuffer}).
+ */
+final class SnapshotBinario {
+
+    /** Assinatura que identifica o formato no início do arquivo. */
+    static final int MAGIC = ('P' << 24) | ('D' << 16) | ('B' << 8) | 'N';
+    static final int VERSAO = 2;
+
+    private static final int TAMANHO_CABECALHO = 8 * Integer.BYTES;
+    private static final ByteOrder ORDEM = ByteOrder.LITTLE_ENDIAN;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private SnapshotBinario() {
+        // Classe utilitária: não deve ser instanciada
+    }
+
+    /** Verifica pelo cabeçalho se o arquivo está no formato binário. */
+    static boolean ehBinario(Path arquivo) throws IOException {
+        try (InputStream in = Files.newInputStream(arquivo)) {
+            byte[] inicio = in.readNBytes(4);
+            return inicio.length == 4
+                    && ByteBuffer.wrap(inicio).order(ORDEM).getInt() == MAGIC;
+        }
+    }
+
+    /** Grava o snapshot completo em {@code arquivo}, substituindo o conteúdo anterior. */
+    static void gravar(DadosPersistidos dados, Path arquivo) throws IOException {
+        List<Cliente> clientes = dados.clientes;
+        List<Produto> produtos = dados.produtos;
+        List<Pedido> pedidos = dados.pedidos;
+
+        // Tabela de strings sem repetição (nomes e e-mails)
+        TabelaStrings strings = new TabelaStrings();
+        int[] nomeCliente = new int[clientes.size()];
+        int[] emailCliente = new int[clientes.size()];
+        for (int i = 0; i < clientes.size(); i++) {
+            nomeCliente[i] = strings.indice(clientes.get(i).getNome());
+            emailCliente[i] = strings.indice(clientes.get(i).getEmail());
+        }
+        int[] nomeProduto = new int[produtos.size()];
+        for (int i = 0; i < produtos.size(); i++) {
+            nomeProduto[i] = strings.indice(produtos.get(i).getNome());
+        }
+        int totalItens = 0;
+        for (Pedido pedido : pedidos) {
+            totalItens += pedido.getItens().size();
+        }
+
+        long tamanho = TAMANHO_CABECALHO
+                + alinhar(4L * (strings.quantidade() + 1) + strings.bytes)
+                + 12L * clientes.size()
+                + alinhar(17L * produtos.size())
+                + alinhar(4L * (pedidos.size() + 1) + 9L * pedidos.size())
+                + 8L * totalItens
+                + 8L * pedidos.size();
+        if (tamanho > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot binário excede 2 GiB; use o formato JSON");
+        }
+
+        Files.deleteIfExists(arquivo);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            Saida saida = new Saida(canal);
+
+            saida.putInt(MAGIC).putInt(VERSAO)
+                 .putInt(strings.quantidade()).putInt(clientes.size()).putInt(produtos.size())
+                 .putInt(pedidos.size()).putInt(totalItens).putInt(strings.bytes);
+
+            // Tabela de strings
+            int offset = 0;
+            for (byte[] texto : strings.valores) {
+                saida.putInt(offset);
+                offset += texto.length;
+            }
+            saida.putInt(offset);
+            for (byte[] texto : strings.valores) {
+                saida.put(texto);
+            }
+            saida.alinhar();
+
+            // Clientes
+            for (Cliente c : clientes) saida.putInt(c.getId());
+            for (int indice : nomeCliente) saida.putInt(indice);
+            for (int indice : emailCliente) saida.putInt(indice);
+
+            // Produtos
+            for (Produto p : produtos) saida.putInt(p.getId());
+            for (int indice : nomeProduto) saida.putInt(indice);
+            for (Produto p : produtos) saida.putDouble(p.getPreco());
+            for (Produto p : produtos) saida.put((byte) p.getCategoria().ordinal());
+            saida.alinhar();
+
+            // Pedidos: os itens de cada pedido ficam no intervalo [primeiroItem[i], primeiroItem[i + 1])
+            for (Pedido p : pedidos) saida.putInt(p.getId());
+            for (Pedido p : pedidos) saida.putInt(p.getCliente().getId());
+            int item = 0;
+            for (Pedido p : pedidos) {
+                saida.putInt(item);
+                item += p.getItens().size();
+            }
+            saida.putInt(item);
+            for (Pedido p : pedidos) saida.put((byte) p.getStatus().ordinal());
+            saida.alinhar();
+
+            // Itens
+            for (Pedido p : pedidos) {
+                for (ItemPedido i : p.getItens()) saida.putInt(i.getProduto().getId());
+            }
+            for (Pedido p : pedidos) {
+                for (ItemPedido i : p.getItens()) saida.putInt(i.getQuantidade());
+            }
+
+            // Data de criação dos pedidos
+            for (Pedido p : pedidos) saida.putLong(p.getCriadoEm());
+            saida.esvaziar();
+            canal.force(false);
+        }
+    }
+
+    /** Carrega o snapshot lendo o arquivo inteiro para um buffer, sem mapeá-lo. */
+    static DadosPersistidos ler(Path arquivo) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot binário excede 2 GiB");
+            }
+            buffer = ByteBuffer.allocate((int) tamanho);
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer, buffer.position()) < 0) {
+                    throw new IOException("Snapshot binário truncado: " + arquivo);
+                }
+            }
+        }
+        buffer.flip();
+        buffer.order(ORDEM);
+        return ler(buffer);
+    }
+    private static DadosPersistidos ler(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("Arquivo não é um snapshot binário");
+        int versao = buffer.getInt();
+        if (versao > VERSAO) throw new IllegalArgumentException("Versão de snapshot não suportada: " + versao);
+        int nStrings = buffer.getInt();
+        int nClientes = buffer.getInt();
+        int nProdutos = buffer.getInt();
+        int nPedidos = buffer.getInt();
+        int nItens = buffer.getInt();
+        int tamanhoStrings = buffer.getInt();
+
+        // Tabela de strings: copia os bytes de uma vez e decodifica cada texto uma única vez
+        int[] offsets = lerInts(buffer, nStrings + 1);
+        byte[] bytes = new byte[tamanhoStrings];
+        buffer.get(bytes);
+        String[] strings = new String[nStrings];
+        for (int i = 0; i < nStrings; i++) {
+            strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+        pularAlinhamento(buffer);
+
+        DadosPersistidos dados = new DadosPersistidos();
+
+        int[] idCliente = lerInts(buffer, nClientes);
+        int[] nomeCliente = lerInts(buffer, nClientes);
+        int[] emailCliente = lerInts(buffer, nClientes);
+        dados.clientes = new ArrayList<>(nClientes);
+        IndiceInt<Cliente> clientesPorId = new IndiceInt<>(nClientes);
+        for (int i = 0; i < nClientes; i++) {
+            Cliente cliente = new Cliente(idCliente[i], strings[nomeCliente[i]], strings[emailCliente[i]]);
+            dados.clientes.add(cliente);
+            clientesPorId.colocar(cliente.getId(), cliente);
+        }
+
+        int[] idProduto = lerInts(buffer, nProdutos);
+        int[] nomeProduto = lerInts(buffer, nProdutos);
+        double[] preco = new double[nProdutos];
+        buffer.asDoubleBuffer().get(preco);
+        buffer.position(buffer.position() + nProdutos * Double.BYTES);
+        byte[] categoria = new byte[nProdutos];
+        buffer.get(categoria);
+        pularAlinhamento(buffer);
+        Categoria[] categorias = Categoria.values();
+        dados.produtos = new ArrayList<>(nProdutos);
+        IndiceInt<Produto> produtosPorId = new IndiceInt<>(nProdutos);
+        for (int i = 0; i < nProdutos; i++) {
+            Produto produto = new Produto(idProduto[i], strings[nomeProduto[i]], preco[i], categorias[categoria[i]]);
+            dados.produtos.add(produto);
+            produtosPorId.colocar(produto.getId(), produto);
+        }
+
+        int[] idPedido = lerInts(buffer, nPedidos);
+        int[] clientePedido = lerInts(buffer, nPedidos);
+        int[] primeiroItem = lerInts(buffer, nPedidos + 1);
+        byte[] status = new byte[nPedidos];
+        buffer.get(status);
+        pularAlinhamento(buffer);
+        int[] produtoItem = lerInts(buffer, nItens);
+        int[] quantidadeItem = lerInts(buffer, nItens);
+        long[] criadoEm = new long[nPedidos];
+        if (versao >= 2) buffer.asLongBuffer().get(criadoEm);
+
+        StatusPedido[] todosStatus = StatusPedido.values();
+        dados.pedidos = new ArrayList<>(nPedidos);
+        for (int i = 0; i < nPedidos; i++) {
+            Pedido pedido = new Pedido(idPedido[i], buscar(clientesPorId, clientePedido[i], "cliente"));
+            for (int j = primeiroItem[i]; j < primeiroItem[i + 1]; j++) {
+                pedido.adicionarItem(buscar(produtosPorId, produtoItem[j], "produto"), quantidadeItem[j]);
+            }
+            pedido.setStatus(todosStatus[status[i]]);
+            pedido.setCriadoEm(criadoEm[i]);
+            dados.pedidos.add(pedido);
+        }
+        return dados;
+    }
+
+    private static <T> T buscar(IndiceInt<T> porId, int id, String tipo) {
+        T entidade = porId.buscar(id);
+        if (entidade == null) {
+            throw new IllegalArgumentException("Pedido referencia " + tipo + " inexistente: " + id);
+        }
+        return entidade;
+    }
+
+    /** Copia uma coluna de ints em bloco e avança a posição do buffer. */
+    private static int[] lerInts(ByteBuffer buffer, int quantidade) {
+        int[] valores = new int[quantidade];
+        buffer.asIntBuffer().get(valores);
+        buffer.position(buffer.position() + quantidade * Integer.BYTES);
+        return valores;
+    }
+
+    private static long alinhar(long tamanho) {
+        return (tamanho + 3) & ~3L;
+    }
+
+    private static void pularAlinhamento(ByteBuffer buffer) {
+        buffer.position((int) alinhar(buffer.position()));
+    }
+
+    /** Escreve no canal em blocos, por meio de um buffer reaproveitado. */
+    private static final class Saida {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER).order(ORDEM);
+        private long posicao; // bytes já escritos, contando os que ainda estão no buffer
+
+        Saida(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        Saida putInt(int valor) throws IOException {
+            garantir(Integer.BYTES);
+            buffer.putInt(valor);
+            posicao += Integer.BYTES;
+            return this;
+        }
+
+        void putLong(long valor) throws IOException {
+            garantir(Long.BYTES);
+            buffer.putLong(valor);
+            posicao += Long.BYTES;
+        }
+
+        void putDouble(double valor) throws IOException {
+            garantir(Double.BYTES);
+            buffer.putDouble(valor);
+            posicao += Double.BYTES;
+        }
+
+        void put(byte valor) throws IOException {
+            garantir(1);
+            buffer.put(valor);
+            posicao++;
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int escritos = 0; escritos < bytes.length; ) {
+                garantir(1);
+                int parte = Math.min(buffer.remaining(), bytes.length - escritos);
+                buffer.put(bytes, escritos, parte);
+                escritos += parte;
+            }
+            posicao += bytes.length;
+        }
+
+        /** Completa com zeros até a próxima posição múltipla de 4. */
+        void alinhar() throws IOException {
+            while ((posicao & 3) != 0) put((byte) 0);
+        }
+
+        /** Grava no canal o que está no buffer. */
+        void esvaziar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) canal.write(buffer);
+            buffer.clear();
+        }
+
+        private void garantir(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) esvaziar();
+        }
+    }
+
+    /** Strings únicas na ordem em que aparecem, já codificadas em UTF-8. */
+    private static final class TabelaStrings {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<byte[]> valores = new ArrayList<>();
+        private int bytes;
+
+        int indice(String texto) {
+            Integer existente = indices.get(texto);
+            if (existente != null) return existente;
+            byte[] codificado = texto.getBytes(StandardCharsets.UTF_8);
+            int indice = valores.size();
+            valores.add(codificado);
+            indices.put(texto, indice);
+            bytes += codificado.length;
+            return indice;
+        }
+
+        int quantidade() {
+            return valores.size();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package app;
+
+/**
+ * Observador das transições de status feitas pelo {@link PedidoProcessor}.
+ * É chamado na thread que fez a transição, logo após o novo status ser aplicado.
+ */
+@FunctionalInterface
+public interface StatusListener {
+    void statusAlterado(Pedido pedido, StatusPedido anterior, StatusPedido novo);
+}
@@ -0,0 +1,478 @@
+package app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks dos caminhos críticos: persistência (JSON e binário), leitura de
+ * tokens JSON, repositório por ID, índices de pedidos, busca textual, total dos
+ * pedidos, relatório de vendas e vazão do processador.
+ *
+ * <p>Uso (a partir da raiz do projeto):
+ * <pre>
+ *   javac -encoding UTF-8 -d out app/*.java bench/app/*.java
+ *   java -Xmx4g -cp out app.Benchmarks [filtro]
+ * </pre>
+ * O filtro opcional roda apenas os benchmarks cujo nome contém o trecho (ex.:
+ * {@code fromJson}). Os tamanhos de massa são definidos por
+ * {@code -Dbench.tamanhos=1000,100000,1000000}.
+ *
+ * <p>Os mesmos cenários existem como {@code @Benchmark} do JMH em
+ * {@code jmh/} (que reaproveita {@link #gerar} desta classe); este harness
+ * continua disponível para rodar só com o {@code javac}.
+ */
+public final class Benchmarks {
+
+    static final long SEMENTE = 42;
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Medidor medidor = new Medidor(args.length > 0 ? args[0] : "");
+        for (String tamanho : System.getProperty("bench.tamanhos", "1000,100000,1000000").split(",")) {
+            persistencia(medidor, Integer.parseInt(tamanho.trim()));
+        }
+        leitorJson(medidor);
+        repositorio(medidor);
+        indicePedidos(medidor);
+        busca(medidor);
+        totais(medidor);
+        for (String tamanho : System.getProperty("bench.tamanhosRelatorio", "100000,1000000").split(",")) {
+            relatorio(medidor, Integer.parseInt(tamanho.trim()));
+        }
+        processador(medidor, PedidoProcessor.Modo.POOL, 1);
+        processador(medidor, PedidoProcessor.Modo.VIRTUAL, 1);
+        processador(medidor, PedidoProcessor.Modo.POOL, 64);
+        processador(medidor, PedidoProcessor.Modo.VIRTUAL, 64);
+        processador(medidor, PedidoProcessor.Modo.PARTICIONADO, 1);
+        processador(medidor, PedidoProcessor.Modo.PARTICIONADO, 64);
+    }
+
+    // ----------------------------------------------------------------------
+    // Persistência
+    // ----------------------------------------------------------------------
+
+    private static void persistencia(Medidor medidor, int pedidos) throws Exception {
+        String sufixo = "[" + pedidos + "]";
+        if (!medidor.ativo("json.toJson" + sufixo, "json.toJsonCompacto" + sufixo, "json.fromJson" + sufixo,
+                "binario.gravar" + sufixo, "binario.ler" + sufixo)) {
+            return;
+        }
+        DadosPersistidos dados = gerar(pedidos);
+
+        medidor.medir("json.toJson" + sufixo, 1, () -> {
+            ContadorBytes contador = new ContadorBytes();
+            try (Writer writer = new OutputStreamWriter(contador, StandardCharsets.UTF_8)) {
+                JsonUtil.toJson(dados, writer, false);
+            }
+            return contador.total;
+        });
+        medidor.medir("json.toJsonCompacto" + sufixo, 1, () -> {
+            ContadorBytes contador = new ContadorBytes();
+            try (Writer writer = new OutputStreamWriter(contador, StandardCharsets.UTF_8)) {
+                JsonUtil.toJson(dados, writer, true);
+            }
+            return contador.total;
+        });
+
+        if (medidor.ativo("json.fromJson" + sufixo)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+                JsonUtil.toJson(dados, writer, true);
+            }
+            byte[] json = bytes.toByteArray();
+            medidor.medir("json.fromJson" + sufixo, 1, () -> JsonUtil.fromJson(
+                    new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8)));
+        }
+
+        if (medidor.ativo("binario.gravar" + sufixo, "binario.ler" + sufixo)) {
+            Path arquivo = Files.createTempFile("bench", ".bin");
+            try {
+                medidor.medir("binario.gravar" + sufixo, 1, () -> {
+                    SnapshotBinario.gravar(dados, arquivo);
+                    return arquivo;
+                });
+                SnapshotBinario.gravar(dados, arquivo);
+                medidor.medir("binario.ler" + sufixo, 1, () -> SnapshotBinario.ler(arquivo));
+            } finally {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Leitura de tokens JSON
+    // ----------------------------------------------------------------------
+
+    private static void leitorJson(Medidor medidor) throws Exception {
+        if (!medidor.ativo("jsonReader.nextString", "jsonReader.nextDouble", "jsonReader.nextInt")) return;
+        DadosPersistidos dados = gerar(10_000);
+
+        // Documentos realistas: nomes/e-mails de clientes, preços de produtos e IDs de pedidos
+        List<String> textos = new ArrayList<>();
+        dados.clientes.forEach(c -> {
+            textos.add(c.getNome());
+            textos.add(c.getEmail());
+        });
+        String strings = arrayJson(textos, true);
+        List<String> precos = new ArrayList<>();
+        dados.produtos.forEach(p -> precos.add(String.valueOf(p.getPreco())));
+        String decimais = arrayJson(precos, false);
+        List<String> ids = new ArrayList<>();
+        dados.pedidos.forEach(p -> ids.add(String.valueOf(p.getId())));
+        String inteiros = arrayJson(ids, false);
+
+        medidor.medir("jsonReader.nextString", textos.size(), () -> {
+            JsonReader json = new JsonReader(new StringReader(strings));
+            int total = 0;
+            json.beginArray();
+            while (json.hasNext()) total += json.nextString().length();
+            json.endArray();
+            return total;
+        });
+        medidor.medir("jsonReader.nextDouble", precos.size(), () -> {
+            JsonReader json = new JsonReader(new StringReader(decimais));
+            double total = 0;
+            json.beginArray();
+            while (json.hasNext()) total += json.nextDouble();
+            json.endArray();
+            return total;
+        });
+        medidor.medir("jsonReader.nextInt", ids.size(), () -> {
+            JsonReader json = new JsonReader(new StringReader(inteiros));
+            long total = 0;
+            json.beginArray();
+            while (json.hasNext()) total += json.nextInt();
+            json.endArray();
+            return total;
+        });
+    }
+
+    static String arrayJson(List<String> valores, boolean comoTexto) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < valores.size(); i++) {
+            if (i > 0) sb.append(", ");
+            if (comoTexto) sb.append('"').append(valores.get(i)).append('"');
+            else sb.append(valores.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    // ----------------------------------------------------------------------
+    // Repositório
+    // ----------------------------------------------------------------------
+
+    private static void repositorio(Medidor medidor) throws Exception {
+        if (!medidor.ativo("repositorio.proximoId", "repositorio.buscar", "repositorio.adicionar",
+                "lista.buscaLinear")) {
+            return;
+        }
+        int quantidade = 100_000;
+        List<Cliente> clientes = new ArrayList<>(quantidade);
+        for (int i = 1; i <= quantidade; i++) clientes.add(new Cliente(i, "Cliente " + i, "c" + i + "@exemplo.com"));
+        Repositorio<Cliente> repositorio = new Repositorio<>();
+        repositorio.adicionarTodos(clientes);
+
+        int[] consultas = new Random(SEMENTE).ints(1024, 1, quantidade + 1).toArray();
+
+        Repositorio<Cliente> sequencia = new Repositorio<>();
+        medidor.medir("repositorio.proximoId", 1024, () -> {
+            int ultimo = 0;
+            for (int i = 0; i < 1024; i++) ultimo = sequencia.proximoId();
+            return ultimo;
+        });
+        medidor.medir("repositorio.buscar[100000]", consultas.length, () -> {
+            long soma = 0;
+            for (int id : consultas) soma += repositorio.buscar(id).getId();
+            return soma;
+        });
+        medidor.medir("repositorio.adicionar[100000]", quantidade, () -> {
+            Repositorio<Cliente> novo = new Repositorio<>();
+            novo.adicionarTodos(clientes);
+            return novo.tamanho();
+        });
+        // Referência: a busca linear que o Main fazia antes do repositório
+        medidor.medir("lista.buscaLinear[100000]", 16, () -> {
+            long soma = 0;
+            for (int i = 0; i < 16; i++) {
+                int id = consultas[i];
+                soma += clientes.stream().filter(c -> c.getId() == id).findFirst().orElseThrow().getId();
+            }
+            return soma;
+        });
+    }
+
+    // ----------------------------------------------------------------------
+    // Índices de pedidos
+    // ----------------------------------------------------------------------
+
+    /** Consultas por cliente, produto e status no índice, com a varredura completa como referência. */
+    private static void indicePedidos(Medidor medidor) throws Exception {
+        if (!medidor.ativo("indice.porCliente", "indice.porProduto", "indice.consulta", "varredura.porCliente")) return;
+        DadosPersistidos dados = gerar(100_000);
+        IndicePedidos indice = new IndicePedidos();
+        indice.reconstruir(dados.pedidos);
+        int[] clientes = new Random(SEMENTE).ints(1024, 1, dados.clientes.size() + 1).toArray();
+        medidor.medir("indice.porCliente[100000]", clientes.length, () -> {
+            long soma = 0;
+            for (int id : clientes) soma += indice.porCliente(id).size();
+            return soma;
+        });
+        medidor.medir("indice.porProduto[100000]", 16, () -> {
+            long soma = 0;
+            for (int i = 0; i < 16; i++) soma += indice.porProduto(clientes[i] % dados.produtos.size() + 1).size();
+            return soma;
+        });
+        medidor.medir("indice.consulta[100000]", clientes.length, () -> {
+            long soma = 0;
+            for (int id : clientes) soma += indice.consulta().cliente(id).status(StatusPedido.FILA).listar().size();
+            return soma;
+        });
+        medidor.medir("varredura.porCliente[100000]", 16, () -> {
+            long soma = 0;
+            for (int i = 0; i < 16; i++) {
+                int id = clientes[i];
+                soma += dados.pedidos.stream().filter(p -> p.getCliente().getId() == id).count();
+            }
+            return soma;
+        });
+    }
+
+    // ----------------------------------------------------------------------
+    // Busca textual
+    // ----------------------------------------------------------------------
+
+    static final String[] PALAVRAS = {
+            "arroz", "feijão", "café", "açúcar", "integral", "orgânico", "torrado", "moído", "tradicional",
+            "notebook", "monitor", "teclado", "mouse", "gamer", "sem", "fio", "usb", "bluetooth", "carregador",
+            "livro", "romance", "história", "ciência", "programação", "java", "edição", "capa", "dura",
+            "premium", "kit", "pacote", "caixa", "pequeno", "médio", "grande", "preto", "branco", "azul"};
+
+    /** Buscas em um catálogo de 50 mil produtos com nomes de 3 a 5 palavras sorteadas. */
+    private static void busca(Medidor medidor) throws Exception {
+        if (!medidor.ativo("busca.montar", "busca.exata", "busca.prefixo", "busca.trecho", "busca.comum",
+                "busca.adicionar", "varredura.contains")) return;
+        Random random = new Random(SEMENTE);
+        Categoria[] categorias = Categoria.values();
+        List<Produto> catalogo = new ArrayList<>();
+        for (int i = 1; i <= 50_000; i++) {
+            StringBuilder nome = new StringBuilder();
+            int palavras = 3 + random.nextInt(3);
+            for (int j = 0; j < palavras; j++) {
+                nome.append(PALAVRAS[random.nextInt(PALAVRAS.length)]).append(' ');
+            }
+            nome.append(i); // como um código de modelo, deixa cada nome distinto
+            catalogo.add(new Produto(i, nome.toString(), 1 + random.nextInt(1000), categorias[i % categorias.length]));
+        }
+
+        medidor.medir("busca.montar[50000]", catalogo.size(), () -> {
+            IndiceBusca<Produto> indice = new IndiceBusca<>(p -> List.of(p.getNome()));
+            indice.reconstruirDepois(() -> catalogo);
+            return indice.quantidadeTermos();
+        });
+
+        IndiceBusca<Produto> indice = new IndiceBusca<>(p -> List.of(p.getNome()));
+        indice.reconstruirDepois(() -> catalogo);
+        indice.quantidadeTermos(); // monta antes de medir
+        medidor.medir("busca.exata[50000]", 1, () -> indice.buscar("Café Torrado Gamer 1234", 10).size());
+        medidor.medir("busca.prefixo[50000]", 1, () -> indice.buscar("note blue carreg", 10).size());
+        medidor.medir("busca.trecho[50000]", 1, () -> indice.buscar("gram edic", 10).size());
+        medidor.medir("busca.comum[50000]", 1, () -> indice.buscar("arroz", 10).size());
+
+        int[] proximo = {catalogo.size()};
+        medidor.medir("busca.adicionar[50000]", 1, () -> {
+            int id = ++proximo[0];
+            indice.adicionar(new Produto(id, "kit java premium " + id, 10, Categoria.LIVROS));
+            return id;
+        });
+
+        medidor.medir("varredura.contains[50000]", 1, () -> catalogo.stream()
+                .filter(p -> p.getNome().toLowerCase().contains("gamer") && p.getNome().contains("1234"))
+                .count());
+    }
+
+    // ----------------------------------------------------------------------
+    // Total dos pedidos
+    // ----------------------------------------------------------------------
+
+    private static void totais(Medidor medidor) throws Exception {
+        if (!medidor.ativo("pedido.calcularTotal", "pedido.adicionarItem", "agregados.statusAlterado")) return;
+        DadosPersistidos dados = gerar(100_000);
+        medidor.medir("pedido.calcularTotal[100000]", dados.pedidos.size(), () -> {
+            double soma = 0;
+            for (Pedido pedido : dados.pedidos) soma += pedido.calcularTotal();
+            return soma;
+        });
+        Cliente cliente = dados.clientes.get(0);
+        Produto produto = dados.produtos.get(0);
+        medidor.medir("pedido.adicionarItem", 64, () -> {
+            Pedido pedido = new Pedido(1, cliente);
+            for (int i = 0; i < 64; i++) pedido.adicionarItem(produto, 1 + (i & 3));
+            return pedido.getTotalCentavos();
+        });
+        AgregadosVendas agregados = new AgregadosVendas();
+        agregados.reconstruir(dados.pedidos);
+        Pedido pedido = dados.pedidos.get(0);
+        medidor.medir("agregados.statusAlterado", 1024, () -> {
+            for (int i = 0; i < 512; i++) {
+                agregados.statusAlterado(pedido, StatusPedido.FILA, StatusPedido.PROCESSANDO);
+                agregados.statusAlterado(pedido, StatusPedido.PROCESSANDO, StatusPedido.FILA);
+            }
+            return agregados;
+        });
+    }
+
+    // ----------------------------------------------------------------------
+    // Relatório de vendas
+    // ----------------------------------------------------------------------
+
+    /**
+     * Relatório completo (categorias, produtos, clientes e status) em uma
+     * thread e em paralelo, com um agrupamento por {@code Collectors.groupingBy}
+     * (valores em {@code Long}) como referência. {@code relatorio.agregados}
+     * mede a leitura dos totais já mantidos pelos {@link AgregadosVendas} (uma
+     * operação por relatório, não por pedido).
+     */
+    private static void relatorio(Medidor medidor, int pedidos) throws Exception {
+        String sufixo = "[" + pedidos + "]";
+        if (!medidor.ativo("relatorio.sequencial" + sufixo, "relatorio.paralelo" + sufixo,
+                "relatorio.agregados" + sufixo, "relatorio.groupingBy" + sufixo)) {
+            return;
+        }
+        List<Pedido> dados = gerar(pedidos).pedidos;
+        medidor.medir("relatorio.sequencial" + sufixo, pedidos, () -> RelatorioVendas.calcularSequencial(dados));
+        medidor.medir("relatorio.paralelo" + sufixo, pedidos, () -> RelatorioVendas.calcular(dados));
+        if (medidor.ativo("relatorio.agregados" + sufixo)) {
+            AgregadosVendas agregados = new AgregadosVendas();
+            agregados.reconstruir(dados);
+            medidor.medir("relatorio.agregados" + sufixo, 1, agregados::relatorio);
+        }
+        medidor.medir("relatorio.groupingBy" + sufixo, pedidos, () -> {
+            Map<Categoria, Long> porCategoria = dados.parallelStream()
+                    .flatMap(pedido -> pedido.getItens().stream())
+                    .collect(Collectors.groupingBy(item -> item.getProduto().getCategoria(),
+                            Collectors.summingLong(ItemPedido::calcularSubtotalCentavos)));
+            Map<Integer, Long> porProduto = dados.parallelStream()
+                    .flatMap(pedido -> pedido.getItens().stream())
+                    .collect(Collectors.groupingBy(item -> item.getProduto().getId(),
+                            Collectors.summingLong(ItemPedido::calcularSubtotalCentavos)));
+            Map<Integer, Long> porCliente = dados.parallelStream()
+                    .collect(Collectors.groupingBy(pedido -> pedido.getCliente().getId(),
+                            Collectors.summingLong(Pedido::getTotalCentavos)));
+            Map<StatusPedido, Long> porStatus = dados.parallelStream()
+                    .collect(Collectors.groupingBy(Pedido::getStatus, Collectors.counting()));
+            return porCategoria.size() + porProduto.size() + porCliente.size() + porStatus.size();
+        });
+    }
+
+    // ----------------------------------------------------------------------
+    // Processador
+    // ----------------------------------------------------------------------
+
+    /**
+     * Vazão de ponta a ponta: enfileira os pedidos e espera todos chegarem a
+     * FINALIZADO. O processador é iniciado uma vez e reaproveitado entre as
+     * chamadas, para que o encerramento não entre na conta. O tempo simulado de
+     * processamento é zero, então o resultado mede o custo da fila, das threads
+     * e das notificações. Com {@code lote > 1} os pedidos são entregues em lotes
+     * de até esse tamanho.
+     */
+    private static void processador(Medidor medidor, PedidoProcessor.Modo modo, int lote) throws Exception {
+        String nome = "processador." + modo.name().toLowerCase() + (lote > 1 ? ".lote" + lote : "") + "[10000]";
+        if (!medidor.ativo(nome)) return;
+        List<Pedido> pedidos = gerar(10_000).pedidos;
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        PedidoProcessor processor = new PedidoProcessor(modo, workers, 0);
+        processor.configurarLotes(lote, 1);
+        AtomicReference<CountDownLatch> finalizados = new AtomicReference<>();
+        processor.adicionarListener((pedido, anterior, novo) -> {
+            if (novo == StatusPedido.FINALIZADO) finalizados.get().countDown();
+        });
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // o processador imprime cada pedido
+        processor.iniciar();
+        try {
+            medidor.medir(nome, pedidos.size(), () -> {
+                CountDownLatch rodada = new CountDownLatch(pedidos.size());
+                finalizados.set(rodada);
+                for (Pedido pedido : pedidos) processor.adicionarPedido(pedido);
+                rodada.await();
+                return rodada;
+            });
+        } finally {
+            processor.encerrar(10, TimeUnit.SECONDS);
+            System.setOut(console);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Massa de dados
+    // ----------------------------------------------------------------------
+
+    /** Gera uma massa determinística: 1 cliente a cada 10 pedidos, até 1000 produtos, 1 a 5 itens por pedido. */
+    static DadosPersistidos gerar(int quantidadePedidos) {
+        Random random = new Random(SEMENTE);
+        Categoria[] categorias = Categoria.values();
+        StatusPedido[] status = StatusPedido.values();
+
+        DadosPersistidos dados = new DadosPersistidos();
+        dados.clientes = new ArrayList<>();
+        dados.produtos = new ArrayList<>();
+        dados.pedidos = new ArrayList<>(quantidadePedidos);
+
+        int quantidadeClientes = Math.max(1, quantidadePedidos / 10);
+        for (int i = 1; i <= quantidadeClientes; i++) {
+            dados.clientes.add(new Cliente(i, "Cliente " + i, "cliente" + i + "@exemplo.com"));
+        }
+        int quantidadeProdutos = Math.min(1000, Math.max(10, quantidadePedidos / 100));
+        for (int i = 1; i <= quantidadeProdutos; i++) {
+            double preco = (1 + random.nextInt(100_000)) / 100.0;
+            dados.produtos.add(new Produto(i, "Produto " + i, preco, categorias[random.nextInt(categorias.length)]));
+        }
+        for (int i = 1; i <= quantidadePedidos; i++) {
+            Pedido pedido = new Pedido(i, dados.clientes.get(random.nextInt(quantidadeClientes)));
+            int itens = 1 + random.nextInt(5);
+            for (int j = 0; j < itens; j++) {
+                pedido.adicionarItem(dados.produtos.get(random.nextInt(quantidadeProdutos)), 1 + random.nextInt(10));
+            }
+            pedido.setStatus(status[random.nextInt(status.length)]);
+            dados.pedidos.add(pedido);
+        }
+        return dados;
+    }
+
+    /** Destino que só conta bytes, para medir a serialização sem custo de disco. */
+    static final class ContadorBytes extends OutputStream {
+        long total;
+
+        @Override
+        public void write(int b) {
+            total++;
+        }
+
+        @Override
+        public void write(byte[] b, int inicio, int quantidade) {
+            total += quantidade;
+        }
+    }
+}
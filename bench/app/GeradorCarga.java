@@ -0,0 +1,414 @@
+package app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga e teste de resistência (soak) do processamento de pedidos.
+ *
+ * <p>Sintetiza um catálogo de clientes e produtos e cria pedidos pelo mesmo
+ * caminho do menu (repositório, totais de vendas, índices e
+ * {@link PedidoProcessor#adicionarPedido}), a uma taxa alvo. A popularidade
+ * dos produtos e dos clientes segue uma distribuição de Zipf, e a quantidade de
+ * itens e de unidades por item é geométrica (a maioria dos pedidos é pequena).
+ * Tudo sai de um {@link Random} com semente e a quantidade de pedidos é fixa
+ * ({@code taxa × duração}, ou {@code carga.pedidos}), e não decidida pelo
+ * relógio: a mesma semente e os mesmos parâmetros geram exatamente a mesma
+ * sequência de pedidos, identificada pela assinatura impressa no fim, o que
+ * permite comparar builds mesmo quando um deles atrasa em relação à agenda.
+ *
+ * <p>A carga é de laço aberto: o pedido {@code i} está agendado para
+ * {@code i / taxa} segundos depois do início e, se o sistema atrasar (fila
+ * cheia bloqueando o produtor), o atraso em relação à agenda é medido em vez
+ * de simplesmente reduzir a taxa (a execução dura mais que o previsto, com os
+ * mesmos pedidos). A cada intervalo sai uma linha com a vazão,
+ * a profundidade da fila, o atraso do gerador, a espera na fila e o tempo
+ * total (percentis do intervalo), o heap usado e as coletas do GC; no fim, um
+ * resumo da janela medida (sem o aquecimento).
+ *
+ * <p>Uso (a partir da raiz do projeto):
+ * <pre>
+ *   javac -encoding UTF-8 -d out app/*.java bench/app/*.java
+ *   java -Xmx1g -Dcarga.taxa=2000 -Dcarga.duracaoS=600 -cp out app.GeradorCarga
+ * </pre>
+ * Parâmetros ({@code -D}): {@code carga.semente} (42), {@code carga.taxa}
+ * (pedidos/s, 1000; 0 = o mais rápido possível), {@code carga.duracaoS} (60),
+ * {@code carga.pedidos} (taxa × duração; obrigatório com taxa 0),
+ * {@code carga.aquecimentoS} (10), {@code carga.intervaloS} (1),
+ * {@code carga.clientes} (10000), {@code carga.produtos} (2000),
+ * {@code carga.zipfProdutos} (1.0), {@code carga.zipfClientes} (0.6) e
+ * {@code carga.csv} (arquivo para as linhas dos intervalos). O processador usa
+ * as mesmas propriedades do programa: {@code pedidos.modo},
+ * {@code pedidos.workers}, {@code pedidos.tempoMs} (aqui, 1 ms por padrão),
+ * {@code pedidos.filaCapacidade}, {@code pedidos.filaPolitica},
+ * {@code pedidos.filaEsperaMs}, {@code pedidos.loteMaximo} e
+ * {@code pedidos.loteEsperaMs}.
+ */
+public final class GeradorCarga {
+
+    private static final String CABECALHO = "t_s,enviados_s,finalizados_s,recusados,fila,"
+            + "atraso_p99_ms,espera_p50_ms,espera_p99_ms,total_p99_ms,heap_mb,gc_coletas,gc_ms";
+
+    private final long semente = Long.getLong("carga.semente", 42);
+    private final double taxa = Double.parseDouble(System.getProperty("carga.taxa", "1000"));
+    private final long duracaoNs = TimeUnit.SECONDS.toNanos(Long.getLong("carga.duracaoS", 60));
+    private final long quantidadePedidos = quantidadePedidos();
+    private final long aquecimentoNs = TimeUnit.SECONDS.toNanos(Long.getLong("carga.aquecimentoS", 10));
+    private final long intervaloS = Long.getLong("carga.intervaloS", 1);
+    private final int quantidadeClientes = Integer.getInteger("carga.clientes", 10_000);
+    private final int quantidadeProdutos = Integer.getInteger("carga.produtos", 2_000);
+    private final double zipfProdutos = Double.parseDouble(System.getProperty("carga.zipfProdutos", "1.0"));
+    private final double zipfClientes = Double.parseDouble(System.getProperty("carga.zipfClientes", "0.6"));
+
+    // Mesmas estruturas que o menu atualiza ao criar um pedido
+    private final Repositorio<Cliente> clientes = new Repositorio<>();
+    private final Repositorio<Produto> produtos = new Repositorio<>();
+    private final Repositorio<Pedido> pedidos = new Repositorio<>();
+    private final AgregadosVendas agregados = new AgregadosVendas();
+    private final IndicePedidos indicePedidos = new IndicePedidos();
+    private final PedidoProcessor processor;
+
+    private final LongAdder enviados = new LongAdder();
+    private final LongAdder finalizados = new LongAdder();
+    private final LongAdder recusados = new LongAdder();
+    private final AtomicReference<Intervalo> intervalo = new AtomicReference<>(new Intervalo());
+    // Janela medida: criada no fim do aquecimento e fechada no fim da geração
+    private volatile Janela janela;
+
+    private final PrintStream console = System.out; // capturado antes de silenciar o processador
+    private final List<String> linhas = new ArrayList<>();
+    private long inicioNs;
+    private long coletasAnteriores;
+    private long tempoGcAnteriorMs;
+    private long enviadosAnteriores;
+    private long finalizadosAnteriores;
+    private long picoHeap;
+
+    private GeradorCarga() {
+        processor = new PedidoProcessor(
+                PedidoProcessor.Modo.valueOf(System.getProperty("pedidos.modo", "POOL").toUpperCase()),
+                Integer.getInteger("pedidos.workers", Runtime.getRuntime().availableProcessors()),
+                Long.getLong("pedidos.tempoMs", 1),
+                new FilaPedidos(
+                        Integer.getInteger("pedidos.filaCapacidade", PedidoProcessor.CAPACIDADE_FILA_PADRAO),
+                        FilaPedidos.Politica.valueOf(System.getProperty("pedidos.filaPolitica", "BLOQUEAR").toUpperCase()),
+                        Long.getLong("pedidos.filaEsperaMs", PedidoProcessor.ESPERA_FILA_CHEIA_PADRAO_MS),
+                        FilaPedidos.Classificador.nenhum()));
+        processor.configurarLotes(Integer.getInteger("pedidos.loteMaximo", 1), Long.getLong("pedidos.loteEsperaMs", 0));
+    }
+
+    /** {@code carga.pedidos}, ou os pedidos que a taxa gera na duração. */
+    private long quantidadePedidos() {
+        long informada = Long.getLong("carga.pedidos", -1);
+        if (informada >= 0) return informada;
+        if (taxa <= 0) throw new IllegalArgumentException("Com carga.taxa=0, informe carga.pedidos");
+        return Math.round(taxa * duracaoNs / 1e9);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new GeradorCarga().executar();
+    }
+
+    private void executar() throws Exception {
+        Random random = new Random(semente);
+        gerarCatalogo(random);
+        Zipf popularidadeProdutos = new Zipf(quantidadeProdutos, zipfProdutos, random);
+        Zipf popularidadeClientes = new Zipf(quantidadeClientes, zipfClientes, random);
+
+        processor.adicionarListener(agregados);
+        processor.adicionarListener(indicePedidos);
+        processor.adicionarListener(this::statusAlterado);
+
+        console.printf(Locale.ROOT, "Carga: semente %d, %d pedidos a %s pedidos/s (aquecimento %d s), %d clientes,"
+                        + " %d produtos, Zipf %.2f/%.2f; processador %s com %d workers, %d ms por pedido%n",
+                semente, quantidadePedidos, taxa > 0 ? String.format(Locale.ROOT, "%.0f", taxa) : "máx.",
+                TimeUnit.NANOSECONDS.toSeconds(aquecimentoNs),
+                quantidadeClientes, quantidadeProdutos, zipfProdutos, zipfClientes, processor.getModo(),
+                processor.getWorkers(), Long.getLong("pedidos.tempoMs", 1));
+        console.println(CABECALHO);
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // o processador imprime cada pedido
+        ScheduledExecutorService relatorio = Executors.newSingleThreadScheduledExecutor(
+                PedidoProcessor.fabrica("carga-relatorio"));
+        lerGc(); // zera a contagem de coletas do intervalo
+        processor.iniciar();
+        inicioNs = System.nanoTime();
+        intervalo.set(new Intervalo());
+        relatorio.scheduleAtFixedRate(this::fecharIntervalo, intervaloS, intervaloS, TimeUnit.SECONDS);
+        long assinatura;
+        try {
+            assinatura = gerarPedidos(random, popularidadeProdutos, popularidadeClientes);
+            aguardarFila();
+        } finally {
+            relatorio.shutdown();
+            relatorio.awaitTermination(10, TimeUnit.SECONDS);
+            processor.encerrar(10, TimeUnit.SECONDS);
+            System.setOut(console);
+        }
+        fecharIntervalo();
+        resumir(assinatura);
+        gravarCsv();
+    }
+
+    /** Clientes e produtos com IDs 1..N; preço e categoria sorteados. */
+    private void gerarCatalogo(Random random) {
+        Categoria[] categorias = Categoria.values();
+        for (int i = 1; i <= quantidadeClientes; i++) {
+            clientes.adicionar(new Cliente(i, "Cliente " + i, "cliente" + i + "@exemplo.com"));
+        }
+        for (int i = 1; i <= quantidadeProdutos; i++) {
+            double preco = (1 + random.nextInt(100_000)) / 100.0;
+            produtos.adicionar(new Produto(i, "Produto " + i, preco, categorias[random.nextInt(categorias.length)]));
+        }
+    }
+
+    /**
+     * Cria os {@code quantidadePedidos} pedidos na taxa alvo e devolve a
+     * assinatura da sequência gerada (cliente, produtos e quantidades de cada
+     * pedido). Um atraso em relação à agenda não corta pedidos, então a
+     * assinatura só depende da semente e dos parâmetros.
+     */
+    private long gerarPedidos(Random random, Zipf popularidadeProdutos, Zipf popularidadeClientes) {
+        long periodoNs = taxa > 0 ? Math.max(1, Math.round(1e9 / taxa)) : 0;
+        long assinatura = semente;
+        for (long i = 0; i < quantidadePedidos; i++) {
+            long agendadoNs = inicioNs + i * periodoNs;
+            long agoraNs = System.nanoTime();
+            if (agoraNs < agendadoNs) {
+                LockSupport.parkNanos(agendadoNs - agoraNs);
+                agoraNs = System.nanoTime();
+            }
+            Pedido pedido = new Pedido(pedidos.proximoId(), clientes.buscar(popularidadeClientes.sortear(random)));
+            if (janela == null && agoraNs - inicioNs >= aquecimentoNs) janela = new Janela(pedido.getId());
+            Cliente cliente = pedido.getCliente();
+            assinatura = assinatura * 31 + cliente.getId();
+            int itens = geometrica(random, 0.5, 8);
+            for (int j = 0; j < itens; j++) {
+                Produto produto = produtos.buscar(popularidadeProdutos.sortear(random));
+                int quantidade = geometrica(random, 0.6, 10);
+                pedido.adicionarItem(produto, quantidade);
+                assinatura = (assinatura * 31 + produto.getId()) * 31 + quantidade;
+            }
+
+            // Mesmo registro do menu (Main.registrarPedido), sem o journal
+            pedidos.adicionar(pedido);
+            agregados.pedidoCriado(pedido);
+            indicePedidos.pedidoCriado(pedido);
+            long atrasoNs = System.nanoTime() - agendadoNs;
+            intervalo.get().atraso.registrar(atrasoNs);
+            if (janela != null) janela.atraso.registrar(atrasoNs);
+            enviados.increment();
+            if (!processor.adicionarPedido(pedido)) recusados.increment();
+        }
+        if (janela != null) janela.fechar(pedidos.tamanhoLog());
+        return assinatura;
+    }
+
+    /** Espera a fila esvaziar depois da geração, por até 60 s. */
+    private void aguardarFila() {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (finalizados.sum() + recusados.sum() < enviados.sum() && System.nanoTime() < limite) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    /**
+     * Mede a espera na fila e o tempo até finalizar. Na janela entram os pedidos
+     * criados durante ela, mesmo que terminem depois; a vazão conta só as
+     * finalizações enquanto ela está aberta.
+     */
+    private void statusAlterado(Pedido pedido, StatusPedido anterior, StatusPedido novo) {
+        if (novo != StatusPedido.PROCESSANDO && novo != StatusPedido.FINALIZADO) return;
+        long decorridoNs = System.nanoTime() - pedido.getEntradaFilaNs();
+        Janela medida = janela;
+        boolean medido = medida != null && medida.contem(pedido.getId());
+        if (novo == StatusPedido.PROCESSANDO) {
+            intervalo.get().espera.registrar(decorridoNs);
+            if (medido) medida.espera.registrar(decorridoNs);
+        } else {
+            finalizados.increment();
+            intervalo.get().total.registrar(decorridoNs);
+            if (medido) medida.total.registrar(decorridoNs);
+            if (medida != null && medida.aberta()) medida.finalizados.increment();
+        }
+    }
+
+    /** Imprime a linha do intervalo que terminou e começa outro. */
+    private synchronized void fecharIntervalo() {
+        Intervalo fechado = intervalo.getAndSet(new Intervalo());
+        double segundos = (System.nanoTime() - fechado.inicioNs) / 1e9;
+        long totalEnviados = enviados.sum();
+        long totalFinalizados = finalizados.sum();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        picoHeap = Math.max(picoHeap, heap);
+        long[] gc = lerGc();
+        String linha = String.format(Locale.ROOT, "%.0f,%.0f,%.0f,%d,%d,%.2f,%.2f,%.2f,%.2f,%d,%d,%d",
+                (System.nanoTime() - inicioNs) / 1e9,
+                (totalEnviados - enviadosAnteriores) / segundos,
+                (totalFinalizados - finalizadosAnteriores) / segundos,
+                recusados.sum(), processor.getTamanhoFila(),
+                ms(fechado.atraso.percentil(99)), ms(fechado.espera.percentil(50)), ms(fechado.espera.percentil(99)),
+                ms(fechado.total.percentil(99)), heap >> 20, gc[0], gc[1]);
+        enviadosAnteriores = totalEnviados;
+        finalizadosAnteriores = totalFinalizados;
+        linhas.add(linha);
+        console.println(linha);
+    }
+
+    /** Coletas e milissegundos de GC desde a última leitura, somando todos os coletores. */
+    private long[] lerGc() {
+        long coletas = 0;
+        long tempoMs = 0;
+        for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+            coletas += Math.max(0, coletor.getCollectionCount());
+            tempoMs += Math.max(0, coletor.getCollectionTime());
+        }
+        long[] delta = { coletas - coletasAnteriores, tempoMs - tempoGcAnteriorMs };
+        coletasAnteriores = coletas;
+        tempoGcAnteriorMs = tempoMs;
+        return delta;
+    }
+
+    private void resumir(long assinatura) {
+        Janela medida = janela;
+        console.println();
+        console.printf(Locale.ROOT, "Enviados %d, finalizados %d, recusados %d; assinatura da carga %016x%n",
+                enviados.sum(), finalizados.sum(), recusados.sum(), assinatura);
+        if (medida == null) {
+            console.println("Duração menor que o aquecimento: nada foi medido.");
+            return;
+        }
+        double segundos = (medida.fimNs - medida.inicioNs) / 1e9;
+        console.printf(Locale.ROOT, "Janela medida: %.1f s, vazão sustentada %.1f pedidos/s (alvo %s)%n",
+                segundos, medida.finalizados.sum() / segundos,
+                taxa > 0 ? String.format(Locale.ROOT, "%.0f", taxa) : "máx.");
+        console.println("Atraso do gerador (ms): " + percentis(medida.atraso));
+        console.println("Espera na fila (ms):    " + percentis(medida.espera));
+        console.println("Fila até finalizar (ms): " + percentis(medida.total));
+
+        long totalGcMs = 0;
+        long totalColetas = 0;
+        for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totalColetas += Math.max(0, coletor.getCollectionCount());
+            totalGcMs += Math.max(0, coletor.getCollectionTime());
+        }
+        double execucaoMs = (System.nanoTime() - inicioNs) / 1e6;
+        System.gc(); // heap retido: os pedidos continuam no repositório, como no programa
+        long retido = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        console.printf(Locale.ROOT, "Heap: pico %d MB, retido %d MB (%d pedidos); GC: %d coletas, %d ms (%.2f%% do tempo)%n",
+                picoHeap >> 20, retido >> 20, pedidos.tamanho(), totalColetas, totalGcMs,
+                100.0 * totalGcMs / execucaoMs);
+    }
+
+    private void gravarCsv() throws IOException {
+        String arquivo = System.getProperty("carga.csv");
+        if (arquivo == null) return;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(arquivo)))) {
+            writer.println(CABECALHO);
+            linhas.forEach(writer::println);
+        }
+        console.println("Intervalos gravados em " + arquivo);
+    }
+
+    private static String percentis(Histograma h) {
+        return String.format(Locale.ROOT, "p50 %.2f | p99 %.2f | p999 %.2f | máx %.2f",
+                ms(h.percentil(50)), ms(h.percentil(99)), ms(h.percentil(99.9)), ms(h.getMaximo()));
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /** 1 + quantas falhas antes do primeiro sucesso com probabilidade {@code p}, limitado a {@code maximo}. */
+    private static int geometrica(Random random, double p, int maximo) {
+        int valor = 1;
+        while (valor < maximo && random.nextDouble() >= p) valor++;
+        return valor;
+    }
+
+    /** Histogramas de um intervalo do relatório. */
+    private static class Intervalo {
+        final long inicioNs = System.nanoTime();
+        final Histograma atraso = new Histograma();
+        final Histograma espera = new Histograma();
+        final Histograma total = new Histograma();
+    }
+
+    /** Intervalo da medição final: os pedidos de {@code primeiroId} até o último criado antes do fim. */
+    private static final class Janela extends Intervalo {
+        final int primeiroId;
+        final LongAdder finalizados = new LongAdder();
+        volatile int ultimoId = Integer.MAX_VALUE;
+        volatile long fimNs;
+
+        Janela(int primeiroId) {
+            this.primeiroId = primeiroId;
+        }
+
+        void fechar(int ultimoId) {
+            this.ultimoId = ultimoId;
+            fimNs = System.nanoTime();
+        }
+
+        boolean aberta() {
+            return fimNs == 0;
+        }
+
+        boolean contem(int id) {
+            return id >= primeiroId && id <= ultimoId;
+        }
+    }
+
+    /**
+     * Sorteio de IDs 1..n com distribuição de Zipf (o k-ésimo mais popular tem
+     * peso 1/k^expoente). As posições de popularidade são embaralhadas com a
+     * mesma semente, para que os populares não sejam sempre os primeiros IDs.
+     */
+    static final class Zipf {
+        private final double[] acumulada;
+        private final int[] ids;
+
+        Zipf(int n, double expoente, Random random) {
+            acumulada = new double[n];
+            double soma = 0;
+            for (int k = 1; k <= n; k++) {
+                soma += 1 / Math.pow(k, expoente);
+                acumulada[k - 1] = soma;
+            }
+            for (int k = 0; k < n; k++) acumulada[k] /= soma;
+            List<Integer> embaralhados = new ArrayList<>(n);
+            for (int id = 1; id <= n; id++) embaralhados.add(id);
+            Collections.shuffle(embaralhados, random);
+            ids = embaralhados.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int sortear(Random random) {
+            double u = random.nextDouble();
+            int inicio = 0;
+            int fim = acumulada.length - 1;
+            while (inicio < fim) { // primeira posição com acumulada >= u
+                int meio = (inicio + fim) >>> 1;
+                if (acumulada[meio] < u) inicio = meio + 1;
+                else fim = meio;
+            }
+            return ids[inicio];
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package app;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Harness mínimo de microbenchmarks no estilo do JMH: iterações de aquecimento
+ * descartadas, iterações medidas por tempo fixo e um "sumidouro" volátil que
+ * consome o resultado de cada chamada para o JIT não eliminar o trabalho.
+ *
+ * <p>Configurável com {@code -Dbench.aquecimentos}, {@code -Dbench.iteracoes}
+ * e {@code -Dbench.tempoMs} (duração de cada iteração).
+ */
+final class Medidor {
+
+    /** Trabalho medido; o valor devolvido é consumido pelo sumidouro. */
+    @FunctionalInterface
+    interface Operacao {
+        Object executar() throws Exception;
+    }
+
+    private static volatile int sumidouro;
+
+    private final String filtro;
+    private final int aquecimentos = Integer.getInteger("bench.aquecimentos", 3);
+    private final int iteracoes = Integer.getInteger("bench.iteracoes", 5);
+    private final long tempoIteracaoNs = Long.getLong("bench.tempoMs", 1000) * 1_000_000;
+    private final PrintStream saida = System.out; // capturado antes de qualquer benchmark silenciar o console
+
+    /** @param filtro só roda benchmarks cujo nome contém este trecho (vazio = todos) */
+    Medidor(String filtro) {
+        this.filtro = filtro;
+    }
+
+    /** Indica se algum dos benchmarks citados vai rodar (para evitar preparar dados à toa). */
+    boolean ativo(String... nomes) {
+        for (String nome : nomes) {
+            if (filtro.isEmpty() || nome.contains(filtro)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Mede {@code operacao} e imprime o tempo médio por operação.
+     *
+     * @param operacoesPorChamada quantas operações lógicas cada chamada executa (laços internos)
+     */
+    void medir(String nome, int operacoesPorChamada, Operacao operacao) throws Exception {
+        if (!ativo(nome)) return;
+        for (int i = 0; i < aquecimentos; i++) {
+            rodarIteracao(operacao);
+        }
+        double[] nsPorOperacao = new double[iteracoes];
+        for (int i = 0; i < iteracoes; i++) {
+            nsPorOperacao[i] = rodarIteracao(operacao) / operacoesPorChamada;
+        }
+        double media = 0;
+        for (double valor : nsPorOperacao) media += valor;
+        media /= iteracoes;
+        double variancia = 0;
+        for (double valor : nsPorOperacao) variancia += (valor - media) * (valor - media);
+        double desvio = iteracoes > 1 ? Math.sqrt(variancia / (iteracoes - 1)) : 0;
+        saida.println(String.format(Locale.ROOT, "%-44s %14.1f ns/op +- %10.1f  %,16.0f ops/s",
+                nome, media, desvio, 1e9 / media));
+    }
+
+    /** Executa chamadas até completar o tempo da iteração; devolve ns por chamada. */
+    private double rodarIteracao(Operacao operacao) throws Exception {
+        long inicio = System.nanoTime();
+        long chamadas = 0;
+        long decorrido;
+        do {
+            consumir(operacao.executar());
+            chamadas++;
+            decorrido = System.nanoTime() - inicio;
+        } while (decorrido < tempoIteracaoNs);
+        return (double) decorrido / chamadas;
+    }
+
+    private static void consumir(Object valor) {
+        // hashCode() só para números: em coleções grandes ele percorreria todos os elementos
+        sumidouro ^= valor instanceof Number numero ? numero.hashCode() : System.identityHashCode(valor);
+    }
+}
@@ -0,0 +1,99 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link IndiceBusca} em um catálogo de 50 mil produtos com nomes de 3 a 5
+ * palavras sorteadas: montagem, buscas exatas, por prefixo e por trecho e
+ * inclusão, com {@code contains} como referência.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuscaJmh {
+    private static final int PRODUTOS = 50_000;
+
+    private List<Produto> catalogo;
+    private IndiceBusca<Produto> indice;
+    private int proximo;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(Benchmarks.SEMENTE);
+        Categoria[] categorias = Categoria.values();
+        catalogo = new ArrayList<>();
+        for (int i = 1; i <= PRODUTOS; i++) {
+            StringBuilder nome = new StringBuilder();
+            int palavras = 3 + random.nextInt(3);
+            for (int j = 0; j < palavras; j++) {
+                nome.append(Benchmarks.PALAVRAS[random.nextInt(Benchmarks.PALAVRAS.length)]).append(' ');
+            }
+            nome.append(i); // como um código de modelo, deixa cada nome distinto
+            catalogo.add(new Produto(i, nome.toString(), 1 + random.nextInt(1000), categorias[i % categorias.length]));
+        }
+        indice = new IndiceBusca<>(p -> List.of(p.getNome()));
+        indice.reconstruirDepois(() -> catalogo);
+        indice.quantidadeTermos(); // monta antes de medir
+        proximo = catalogo.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUTOS)
+    public int montar() {
+        IndiceBusca<Produto> novo = new IndiceBusca<>(p -> List.of(p.getNome()));
+        novo.reconstruirDepois(() -> catalogo);
+        return novo.quantidadeTermos();
+    }
+
+    @Benchmark
+    public int exata() {
+        return indice.buscar("Café Torrado Gamer 1234", 10).size();
+    }
+
+    @Benchmark
+    public int prefixo() {
+        return indice.buscar("note blue carreg", 10).size();
+    }
+
+    @Benchmark
+    public int trecho() {
+        return indice.buscar("gram edic", 10).size();
+    }
+
+    @Benchmark
+    public int comum() {
+        return indice.buscar("arroz", 10).size();
+    }
+
+    @Benchmark
+    public int adicionar() {
+        int id = ++proximo;
+        indice.adicionar(new Produto(id, "kit java premium " + id, 10, Categoria.LIVROS));
+        return id;
+    }
+
+    @Benchmark
+    public long varreduraContains() {
+        return catalogo.stream()
+                .filter(p -> p.getNome().toLowerCase().contains("gamer") && p.getNome().contains("1234"))
+                .count();
+    }
+}
@@ -0,0 +1,83 @@
+package app;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Consultas por cliente, produto e status no {@link IndicePedidos} com 100 mil
+ * pedidos, com a varredura completa como referência. Tempo por consulta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicePedidosJmh {
+    private static final int CONSULTAS = 1024;
+
+    private DadosPersistidos dados;
+    private IndicePedidos indice;
+    private int[] clientes;
+
+    @Setup
+    public void preparar() {
+        dados = Benchmarks.gerar(100_000);
+        indice = new IndicePedidos();
+        indice.reconstruir(dados.pedidos);
+        clientes = new Random(Benchmarks.SEMENTE).ints(CONSULTAS, 1, dados.clientes.size() + 1).toArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONSULTAS)
+    public long porCliente() {
+        long soma = 0;
+        for (int id : clientes) soma += indice.porCliente(id).size();
+        return soma;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public long porProduto() {
+        long soma = 0;
+        for (int i = 0; i < 16; i++) soma += indice.porProduto(clientes[i] % dados.produtos.size() + 1).size();
+        return soma;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONSULTAS)
+    public long consulta() {
+        long soma = 0;
+        for (int id : clientes) soma += indice.consulta().cliente(id).status(StatusPedido.FILA).listar().size();
+        return soma;
+    }
+
+    /** Primeira página de um status inteiro, lida do conjunto ordenado a partir do cursor. */
+    @Benchmark
+    public int paginaStatus() {
+        return indice.consulta().status(StatusPedido.FILA).pagina(Pagina.INICIO, 50).getItens().size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public long varreduraPorCliente() {
+        long soma = 0;
+        for (int i = 0; i < 16; i++) {
+            int id = clientes[i];
+            soma += dados.pedidos.stream().filter(p -> p.getCliente().getId() == id).count();
+        }
+        return soma;
+    }
+}
@@ -0,0 +1,83 @@
+package app;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tokens do {@link JsonReader} em documentos realistas: nomes e e-mails de
+ * clientes, preços de produtos e IDs de pedidos (massa de 10 mil pedidos).
+ * Tempo por documento.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeitorJsonJmh {
+
+    private String strings;
+    private String decimais;
+    private String inteiros;
+
+    @Setup
+    public void preparar() {
+        DadosPersistidos dados = Benchmarks.gerar(10_000);
+        List<String> textos = new ArrayList<>();
+        dados.clientes.forEach(c -> {
+            textos.add(c.getNome());
+            textos.add(c.getEmail());
+        });
+        strings = Benchmarks.arrayJson(textos, true);
+        List<String> precos = new ArrayList<>();
+        dados.produtos.forEach(p -> precos.add(String.valueOf(p.getPreco())));
+        decimais = Benchmarks.arrayJson(precos, false);
+        List<String> ids = new ArrayList<>();
+        dados.pedidos.forEach(p -> ids.add(String.valueOf(p.getId())));
+        inteiros = Benchmarks.arrayJson(ids, false);
+    }
+
+    @Benchmark
+    public int nextString() throws IOException {
+        JsonReader json = new JsonReader(new StringReader(strings));
+        int total = 0;
+        json.beginArray();
+        while (json.hasNext()) total += json.nextString().length();
+        json.endArray();
+        return total;
+    }
+
+    @Benchmark
+    public double nextDouble() throws IOException {
+        JsonReader json = new JsonReader(new StringReader(decimais));
+        double total = 0;
+        json.beginArray();
+        while (json.hasNext()) total += json.nextDouble();
+        json.endArray();
+        return total;
+    }
+
+    @Benchmark
+    public long nextInt() throws IOException {
+        JsonReader json = new JsonReader(new StringReader(inteiros));
+        long total = 0;
+        json.beginArray();
+        while (json.hasNext()) total += json.nextInt();
+        json.endArray();
+        return total;
+    }
+}
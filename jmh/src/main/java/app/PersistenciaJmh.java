@@ -0,0 +1,99 @@
+package app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Persistência: {@link JsonUtil#toJson} (formatado e compacto),
+ * {@link JsonUtil#fromJson} e o {@link SnapshotBinario}, com a massa de
+ * {@link Benchmarks#gerar}. Tempo por snapshot completo. Os métodos devolvem
+ * {@code Object} porque o código gerado pelo JMH fica em outro pacote e não
+ * enxerga os tipos internos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenciaJmh {
+
+    @Param({"1000", "100000", "1000000"})
+    public int pedidos;
+
+    private DadosPersistidos dados;
+    private byte[] json;
+    private Path arquivo;
+
+    @Setup
+    public void preparar() throws IOException {
+        dados = Benchmarks.gerar(pedidos);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            JsonUtil.toJson(dados, writer, true);
+        }
+        json = bytes.toByteArray();
+        arquivo = Files.createTempFile("bench", ".bin");
+        SnapshotBinario.gravar(dados, arquivo);
+    }
+
+    @TearDown
+    public void limpar() throws IOException {
+        Files.deleteIfExists(arquivo);
+    }
+
+    @Benchmark
+    public long toJson() throws IOException {
+        return serializar(false);
+    }
+
+    @Benchmark
+    public long toJsonCompacto() throws IOException {
+        return serializar(true);
+    }
+
+    @Benchmark
+    public Object fromJson() throws IOException {
+        return JsonUtil.fromJson(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Path binarioGravar() throws IOException {
+        SnapshotBinario.gravar(dados, arquivo);
+        return arquivo;
+    }
+
+    @Benchmark
+    public Object binarioLer() throws IOException {
+        return SnapshotBinario.ler(arquivo);
+    }
+
+    private long serializar(boolean compacto) throws IOException {
+        Benchmarks.ContadorBytes contador = new Benchmarks.ContadorBytes();
+        try (Writer writer = new OutputStreamWriter(contador, StandardCharsets.UTF_8)) {
+            JsonUtil.toJson(dados, writer, compacto);
+        }
+        return contador.total;
+    }
+}
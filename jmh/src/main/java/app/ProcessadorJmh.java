@@ -0,0 +1,79 @@
+package app;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vazão de ponta a ponta do {@link PedidoProcessor}: enfileira 10 mil pedidos
+ * e espera todos chegarem a FINALIZADO. O processador é iniciado uma vez por
+ * rodada, para que o encerramento não entre na conta, e o tempo simulado de
+ * processamento é zero: o resultado mede a fila, as threads e as notificações.
+ * Tempo por pedido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessadorJmh {
+    private static final int PEDIDOS = 10_000;
+
+    @Param({"POOL", "VIRTUAL", "PARTICIONADO"})
+    public PedidoProcessor.Modo modo;
+
+    @Param({"1", "64"})
+    public int lote;
+
+    private final AtomicReference<CountDownLatch> finalizados = new AtomicReference<>();
+    private List<Pedido> pedidos;
+    private PedidoProcessor processor;
+    private PrintStream console;
+
+    @Setup
+    public void iniciar() {
+        pedidos = Benchmarks.gerar(PEDIDOS).pedidos;
+        processor = new PedidoProcessor(modo, Runtime.getRuntime().availableProcessors(), 0);
+        processor.configurarLotes(lote, 1);
+        processor.adicionarListener((pedido, anterior, novo) -> {
+            if (novo == StatusPedido.FINALIZADO) finalizados.get().countDown();
+        });
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // o processador imprime cada pedido
+        processor.iniciar();
+    }
+
+    @TearDown
+    public void encerrar() throws InterruptedException {
+        processor.encerrar(10, TimeUnit.SECONDS);
+        System.setOut(console);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PEDIDOS)
+    public CountDownLatch processar() throws InterruptedException {
+        CountDownLatch rodada = new CountDownLatch(pedidos.size());
+        finalizados.set(rodada);
+        for (Pedido pedido : pedidos) processor.adicionarPedido(pedido);
+        rodada.await();
+        return rodada;
+    }
+}
@@ -0,0 +1,78 @@
+package app;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Relatório completo (categorias, produtos, clientes e status) em uma thread,
+ * em paralelo e lido dos {@link AgregadosVendas}, com um agrupamento por
+ * {@code Collectors.groupingBy} como referência. Tempo por relatório.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RelatorioJmh {
+
+    @Param({"100000", "1000000"})
+    public int pedidos;
+
+    private List<Pedido> dados;
+    private AgregadosVendas agregados;
+
+    @Setup
+    public void preparar() {
+        dados = Benchmarks.gerar(pedidos).pedidos;
+        agregados = new AgregadosVendas();
+        agregados.reconstruir(dados);
+    }
+
+    @Benchmark
+    public RelatorioVendas sequencial() {
+        return RelatorioVendas.calcularSequencial(dados);
+    }
+
+    @Benchmark
+    public RelatorioVendas paralelo() {
+        return RelatorioVendas.calcular(dados);
+    }
+
+    @Benchmark
+    public RelatorioVendas agregados() {
+        return agregados.relatorio();
+    }
+
+    @Benchmark
+    public int groupingBy() {
+        Map<Categoria, Long> porCategoria = dados.parallelStream()
+                .flatMap(pedido -> pedido.getItens().stream())
+                .collect(Collectors.groupingBy(item -> item.getProduto().getCategoria(),
+                        Collectors.summingLong(ItemPedido::calcularSubtotalCentavos)));
+        Map<Integer, Long> porProduto = dados.parallelStream()
+                .flatMap(pedido -> pedido.getItens().stream())
+                .collect(Collectors.groupingBy(item -> item.getProduto().getId(),
+                        Collectors.summingLong(ItemPedido::calcularSubtotalCentavos)));
+        Map<Integer, Long> porCliente = dados.parallelStream()
+                .collect(Collectors.groupingBy(pedido -> pedido.getCliente().getId(),
+                        Collectors.summingLong(Pedido::getTotalCentavos)));
+        Map<StatusPedido, Long> porStatus = dados.parallelStream()
+                .collect(Collectors.groupingBy(Pedido::getStatus, Collectors.counting()));
+        return porCategoria.size() + porProduto.size() + porCliente.size() + porStatus.size();
+    }
+}
@@ -0,0 +1,81 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Repositorio} com 100 mil clientes: geração de IDs, busca por ID e
+ * inclusão em massa, com a busca linear que o Main fazia antes como referência.
+ * Tempo por operação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositorioJmh {
+    private static final int QUANTIDADE = 100_000;
+    private static final int CONSULTAS = 1024;
+
+    private List<Cliente> clientes;
+    private Repositorio<Cliente> repositorio;
+    private Repositorio<Cliente> sequencia;
+    private int[] consultas;
+
+    @Setup
+    public void preparar() {
+        clientes = new ArrayList<>(QUANTIDADE);
+        for (int i = 1; i <= QUANTIDADE; i++) clientes.add(new Cliente(i, "Cliente " + i, "c" + i + "@exemplo.com"));
+        repositorio = new Repositorio<>();
+        repositorio.adicionarTodos(clientes);
+        sequencia = new Repositorio<>();
+        consultas = new Random(Benchmarks.SEMENTE).ints(CONSULTAS, 1, QUANTIDADE + 1).toArray();
+    }
+
+    @Benchmark
+    public int proximoId() {
+        return sequencia.proximoId();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONSULTAS)
+    public long buscar() {
+        long soma = 0;
+        for (int id : consultas) soma += repositorio.buscar(id).getId();
+        return soma;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUANTIDADE)
+    public int adicionar() {
+        Repositorio<Cliente> novo = new Repositorio<>();
+        novo.adicionarTodos(clientes);
+        return novo.tamanho();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public long buscaLinear() {
+        long soma = 0;
+        for (int i = 0; i < 16; i++) {
+            int id = consultas[i];
+            soma += clientes.stream().filter(c -> c.getId() == id).findFirst().orElseThrow().getId();
+        }
+        return soma;
+    }
+}
@@ -0,0 +1,65 @@
+package app;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Total dos pedidos ({@link Pedido#calcularTotal}, {@link Pedido#adicionarItem})
+ * e a transição de status nos {@link AgregadosVendas}. Tempo por operação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotaisJmh {
+    private static final int PEDIDOS = 100_000;
+
+    private DadosPersistidos dados;
+    private AgregadosVendas agregados;
+
+    @Setup
+    public void preparar() {
+        dados = Benchmarks.gerar(PEDIDOS);
+        agregados = new AgregadosVendas();
+        agregados.reconstruir(dados.pedidos);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PEDIDOS)
+    public double calcularTotal() {
+        double soma = 0;
+        for (Pedido pedido : dados.pedidos) soma += pedido.calcularTotal();
+        return soma;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public long adicionarItem() {
+        Produto produto = dados.produtos.get(0);
+        Pedido pedido = new Pedido(1, dados.clientes.get(0));
+        for (int i = 0; i < 64; i++) pedido.adicionarItem(produto, 1 + (i & 3));
+        return pedido.getTotalCentavos();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public AgregadosVendas statusAlterado() {
+        Pedido pedido = dados.pedidos.get(0);
+        agregados.statusAlterado(pedido, StatusPedido.FILA, StatusPedido.PROCESSANDO);
+        agregados.statusAlterado(pedido, StatusPedido.PROCESSANDO, StatusPedido.FILA);
+        return agregados;
+    }
+}